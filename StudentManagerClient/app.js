@@ -1,4 +1,5 @@
 $(document).ready(function() {
+    subscribeToChanges(); // Сначала подписка: изменения во время загрузки списка не потеряются
     loadStudents();
 
     $('#add-student-form').submit(function(event) {
@@ -37,6 +38,11 @@ $(document).ready(function() {
         generateUniqueNumber(); // Вызов функции генерации уникального номера
     });
 
+    $('#filter-form').submit(function(event) {
+        event.preventDefault();
+        loadStudents(); // Отбор и сортировка выполняются на сервере
+    });
+
     $('#close-popup').click(function() {
         $('#popup-overlay').hide();
     });
@@ -56,27 +62,32 @@ function generateUniqueNumber() {
     });
 }
 
+// Параметры отбора из формы фильтра (пустые поля не передаются)
+function studentFilter() {
+    const filter = {
+        name: $('#filter-name').val(),
+        group: $('#filter-group').val(),
+        birthFrom: $('#filter-birth-from').val(),
+        birthTo: $('#filter-birth-to').val(),
+        sort: $('#filter-sort').val()
+    };
+    Object.keys(filter).forEach(function(key) {
+        if (!filter[key]) {
+            delete filter[key];
+        }
+    });
+    return filter;
+}
+
 function loadStudents() {
     $.ajax({
         url: 'http://localhost:8080/api/students/',
         method: 'GET',
+        data: studentFilter(),
         success: function(data) {
             $('#student-list tbody').empty();
             data.forEach(function(student) {
-                $('#student-list tbody').append(`
-                    <tr>
-                        <td>${student.firstName}</td>
-                        <td>${student.lastName}</td>
-                        <td>${student.patronymic}</td>
-                        <td>${student.birthDate}</td>
-                        <td>${student.groupName}</td>
-                        <td>${student.uniqueNumber}</td>
-                        <td>
-                            <button onclick="editStudent('${student.uniqueNumber}')">Редактировать</button>
-                            <button onclick="deleteStudent('${student.uniqueNumber}')">Удалить</button>
-                        </td>
-                    </tr>
-                `);
+                $('#student-list tbody').append(studentRow(student));
             });
         },
         error: function(xhr) {
@@ -85,6 +96,90 @@ function loadStudents() {
     });
 }
 
+// Строка таблицы; данные студента сохраняются в строке для применения частичных изменений
+function studentRow(student) {
+    return $(`
+        <tr>
+            <td>${student.firstName}</td>
+            <td>${student.lastName}</td>
+            <td>${student.patronymic}</td>
+            <td>${student.birthDate}</td>
+            <td>${student.groupName}</td>
+            <td>${student.uniqueNumber}</td>
+            <td>
+                <button onclick="editStudent('${student.uniqueNumber}')">Редактировать</button>
+                <button onclick="deleteStudent('${student.uniqueNumber}')">Удалить</button>
+            </td>
+        </tr>
+    `).data('student', student);
+}
+
+function findStudentRow(uniqueNumber) {
+    return $('#student-list tbody tr').filter(function() {
+        return $(this).data('student').uniqueNumber === uniqueNumber;
+    });
+}
+
+let changes = null; // Поток изменений с сервера (Server-Sent Events)
+let reloadTimer = null;
+
+// Список обновляется по событиям сервера, без повторной загрузки после каждой операции.
+// При переподключении браузер сам передает Last-Event-ID и получает пропущенные события.
+function subscribeToChanges() {
+    if (!window.EventSource) {
+        return; // Без EventSource список перезагружается после операций
+    }
+    changes = new EventSource('http://localhost:8080/api/students/events');
+    changes.addEventListener('added', function(event) {
+        const student = JSON.parse(event.data);
+        if (isFiltered()) {
+            scheduleReload(); // Подходит ли студент под отбор и где его место, знает только сервер
+            return;
+        }
+        const row = findStudentRow(student.uniqueNumber);
+        if (row.length) {
+            row.replaceWith(studentRow(student));
+        } else {
+            $('#student-list tbody').append(studentRow(student)); // Порядок по умолчанию - по id
+        }
+    });
+    changes.addEventListener('updated', function(event) {
+        const fields = JSON.parse(event.data); // Уникальный номер и измененные поля
+        if (isFiltered()) {
+            scheduleReload();
+            return;
+        }
+        const row = findStudentRow(fields.uniqueNumber);
+        if (row.length) {
+            const student = Object.assign({}, row.data('student'), fields, { id: row.data('student').id });
+            row.replaceWith(studentRow(student));
+        }
+    });
+    changes.addEventListener('deleted', function(event) {
+        findStudentRow(JSON.parse(event.data).uniqueNumber).remove();
+    });
+    changes.addEventListener('reset', function() {
+        loadStudents(); // Пропущенных событий на сервере уже нет
+    });
+}
+
+function isFiltered() {
+    return Object.keys(studentFilter()).length > 0;
+}
+
+// Несколько событий подряд приводят к одной перезагрузке
+function scheduleReload() {
+    clearTimeout(reloadTimer);
+    reloadTimer = setTimeout(loadStudents, 300);
+}
+
+// После операции список перезагружается, только если поток изменений не подключен
+function refreshAfterChange() {
+    if (!changes || changes.readyState !== EventSource.OPEN) {
+        loadStudents();
+    }
+}
+
 function editStudent(uniqueNumber) {
     $.ajax({
         url: `http://localhost:8080/api/students/${uniqueNumber}`,
@@ -120,7 +215,7 @@ function addStudent(studentData) {
         data: JSON.stringify(studentData),
         success: function(response) {
             alert(response.message);
-            loadStudents();
+            refreshAfterChange();
         },
         error: function(xhr) {
             alert('Ошибка добавления студента: ' + xhr.responseText);
@@ -136,7 +231,7 @@ function updateStudent(uniqueNumber, studentData) {
         data: JSON.stringify(studentData),
         success: function(response) {
             alert(response.message);
-            loadStudents();
+            refreshAfterChange();
             $('#popup-overlay').hide();
         },
         error: function(xhr) {
@@ -151,7 +246,7 @@ function deleteStudent(uniqueNumber) {
         method: 'DELETE',
         success: function(response) {
             alert(response.message);
-            loadStudents();
+            refreshAfterChange();
         },
         error: function(xhr) {
             alert('Ошибка удаления студента: ' + xhr.responseText);
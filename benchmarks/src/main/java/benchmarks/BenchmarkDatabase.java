@@ -0,0 +1,78 @@
+package benchmarks;
+
+import db.DatabaseConfig;
+import db.SchemaMigrator;
+import model.Student;
+import service.StudentService;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Встроенная база H2 для бенчмарков.
+ * Настраивает DatabaseConfig через системные свойства, поэтому приложение работает с ней без изменений.
+ */
+public final class BenchmarkDatabase {
+    private static boolean initialized;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Создает базу в памяти и применяет миграции схемы. Повторные вызовы ничего не делают.
+     */
+    public static synchronized void init() throws SQLException {
+        if (initialized) {
+            return;
+        }
+        // Без режима MySQL: в нем H2 при параллельных INSERT в разных сессиях иногда выдает
+        // повторяющиеся значения AUTO_INCREMENT
+        System.setProperty("db.url", "jdbc:h2:mem:bench;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        new SchemaMigrator(DatabaseConfig.getPool()).migrate();
+        initialized = true;
+    }
+
+    /**
+     * Добавляет в базу указанное число студентов с номерами, начинающимися с prefix.
+     *
+     * @return уникальные номера добавленных студентов
+     */
+    public static List<String> seed(StudentService service, String prefix, int count) throws SQLException {
+        List<String> numbers = new ArrayList<>(count);
+        List<Student> chunk = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Student student = sampleStudent(prefix + i);
+            numbers.add(student.getUniqueNumber());
+            chunk.add(student);
+            if (chunk.size() == 1000) {
+                service.addStudents(chunk);
+                chunk.clear();
+            }
+        }
+        service.addStudents(chunk);
+        return numbers;
+    }
+
+    /**
+     * @return студент с заполненными полями и указанным номером
+     */
+    public static Student sampleStudent(String uniqueNumber) {
+        return new Student(uniqueNumber, "Иван", "Иванов", "Иванович", "2001-02-02", "ИВТ-21");
+    }
+
+    /**
+     * @return список из count студентов для бенчмарков сериализации
+     */
+    public static List<Student> sampleStudents(int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Student student = sampleStudent(String.valueOf(100_000 + i));
+            student.setId(i + 1);
+            students.add(student);
+        }
+        return students;
+    }
+}
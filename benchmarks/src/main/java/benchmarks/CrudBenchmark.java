@@ -0,0 +1,69 @@
+package benchmarks;
+
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import service.StudentService;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сквозная пропускная способность CRUD через StudentService, пул соединений и встроенную базу H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CrudBenchmark {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private StudentService service;
+    private List<String> existing;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.init();
+        service = new StudentService();
+        existing = BenchmarkDatabase.seed(service, "c", 10_000);
+    }
+
+    @Benchmark
+    public Student read() throws SQLException {
+        return service.getStudentsByUniqueNumber(randomExisting());
+    }
+
+    @Benchmark
+    public void update() throws SQLException {
+        Student update = new Student();
+        update.setUniqueNumber(randomExisting());
+        update.setGroupName("ИВТ-" + ThreadLocalRandom.current().nextInt(100));
+        service.updateStudent(update);
+    }
+
+    @Benchmark
+    public void addAndDelete() throws SQLException {
+        String uniqueNumber = "n" + SEQUENCE.incrementAndGet();
+        service.addStudent(BenchmarkDatabase.sampleStudent(uniqueNumber));
+        service.deleteStudent(uniqueNumber);
+    }
+
+    private String randomExisting() {
+        return existing.get(ThreadLocalRandom.current().nextInt(existing.size()));
+    }
+}
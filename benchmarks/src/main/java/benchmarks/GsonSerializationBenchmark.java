@@ -0,0 +1,54 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация списка студентов в JSON через Gson при разных размерах списка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private List<Student> students;
+    private Gson sharedGson;
+
+    @Setup
+    public void setUp() {
+        students = BenchmarkDatabase.sampleStudents(size);
+        sharedGson = new Gson();
+    }
+
+    /** Как в StudentHandler: новый Gson на каждый запрос. */
+    @Benchmark
+    public String newGsonPerCall() {
+        return new Gson().toJson(students);
+    }
+
+    /** Один общий экземпляр Gson. */
+    @Benchmark
+    public String sharedGson() {
+        return sharedGson.toJson(students);
+    }
+}
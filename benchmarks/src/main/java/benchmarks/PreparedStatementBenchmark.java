@@ -0,0 +1,98 @@
+package benchmarks;
+
+import db.ConnectionPool;
+import db.PoolSettings;
+import db.SchemaMigrator;
+import db.StudentDAO;
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость подготовки операторов в StudentDAO: prepare на каждый запрос (statementCacheSize=0)
+ * против кэша операторов пула. Кэш разобранных запросов H2 отключен (QUERY_CACHE_SIZE=0),
+ * чтобы каждый prepare без кэша пула разбирал SQL заново, как это делает сервер при серверной подготовке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedStatementBenchmark {
+    private static final int STUDENTS = 10_000;
+    private static final String[] FIELDS = {"firstName", "lastName", "groupName"};
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private ConnectionPool pool;
+    private StudentDAO studentDAO;
+    private List<String> existing;
+
+    @Setup
+    public void setUp() throws SQLException {
+        PoolSettings settings = new PoolSettings("jdbc:h2:mem:prepared" + statementCacheSize
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0", "sa", "");
+        settings.setStatementCacheSize(statementCacheSize);
+        pool = new ConnectionPool(settings);
+        new SchemaMigrator(pool).migrate();
+        studentDAO = new StudentDAO(pool);
+        existing = new ArrayList<>(STUDENTS);
+        List<Student> chunk = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            chunk.add(BenchmarkDatabase.sampleStudent("p" + i));
+            existing.add("p" + i);
+            if (chunk.size() == 1000) {
+                studentDAO.addStudents(chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public Student readByUniqueNumber() throws SQLException {
+        return studentDAO.getStudentByUnique(randomExisting());
+    }
+
+    /**
+     * Обновляет одно из трех полей, поэтому используются три разных готовых UPDATE.
+     */
+    @Benchmark
+    public void partialUpdate() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Student update = new Student();
+        update.setUniqueNumber(randomExisting());
+        switch (FIELDS[random.nextInt(FIELDS.length)]) {
+            case "firstName" -> update.setFirstName("Имя" + random.nextInt(100));
+            case "lastName" -> update.setLastName("Фамилия" + random.nextInt(100));
+            default -> update.setGroupName("ИВТ-" + random.nextInt(100));
+        }
+        studentDAO.updateStudent(update);
+    }
+
+    private String randomExisting() {
+        return existing.get(ThreadLocalRandom.current().nextInt(existing.size()));
+    }
+}
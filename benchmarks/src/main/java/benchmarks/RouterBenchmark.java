@@ -0,0 +1,51 @@
+package benchmarks;
+
+import Handler.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск маршрута для путей StudentHandler. С -prof gc показывает, что поиск ничего не создает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    private static final Router.Endpoint NONE = (exchange, route) -> null;
+
+    @Param({"/api/students/", "/api/students/search", "/api/students/42", "/api/students/operations/17", "/api/unknown/1/2"})
+    public String path;
+
+    private Router router;
+
+    @Setup
+    public void setUp() {
+        router = new Router()
+                .add("GET", "/api/students/", NONE)
+                .add("GET", "/api/students/generateUniqueNumber", NONE)
+                .add("GET", "/api/students/search", NONE)
+                .add("GET", "/api/students/stats", NONE)
+                .add("GET", "/api/students/export", NONE)
+                .add("GET", "/api/students/operations/{id:long}", NONE)
+                .add("GET", "/api/students/{uniqueNumber:long}", NONE);
+    }
+
+    @Benchmark
+    public Router.Route match() {
+        return router.match("GET", path);
+    }
+}
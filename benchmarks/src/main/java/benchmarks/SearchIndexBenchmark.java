@@ -0,0 +1,65 @@
+package benchmarks;
+
+import model.Student;
+import model.StudentRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.StudentSearchIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по индексу в памяти на большом числе студентов со сгенерированными ФИО.
+ * Запросы: начало фамилии, точная фамилия, подстрока внутри слова и два слова сразу.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class SearchIndexBenchmark {
+    private static final String[] ROOTS = {"Иван", "Петр", "Сидор", "Смирн", "Кузнец", "Попов", "Васил", "Соколь",
+            "Михайл", "Новик", "Федор", "Морозь", "Волк", "Алексе", "Лебед", "Семен", "Егор", "Павл", "Козл", "Степан",
+            "Николь", "Орл", "Андре", "Макар", "Никит", "Захар", "Зайц", "Солов", "Борис", "Яковл"};
+    private static final String[] SUFFIXES = {"ов", "ев", "ин", "ова", "ева", "ина", "ский", "ская", "енко", "ович"};
+    private static final String[] FIRST_NAMES = {"Иван", "Пётр", "Алексей", "Мария", "Анна", "Елена", "Дмитрий",
+            "Сергей", "Ольга", "Наталья", "Андрей", "Юлия", "Артём", "Алёна", "Ксения", "Михаил"};
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"Ива", "Петрова", "ловск", "сер иван"})
+    public String query;
+
+    private StudentSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new StudentSearchIndex();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            String lastName = ROOTS[random.nextInt(ROOTS.length)] + ROOTS[random.nextInt(ROOTS.length)].toLowerCase()
+                    + SUFFIXES[random.nextInt(SUFFIXES.length)];
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String patronymic = ROOTS[random.nextInt(ROOTS.length)] + "ович";
+            index.put(new Student(String.valueOf(i), firstName, lastName, patronymic, "2001-02-02", "ИВТ-21"));
+        }
+    }
+
+    @Benchmark
+    public List<StudentRecord> search() {
+        return index.search(query, 20);
+    }
+}
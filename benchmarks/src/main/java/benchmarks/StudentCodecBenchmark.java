@@ -0,0 +1,79 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import json.JsonBuffer;
+import json.StudentCodec;
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение прежнего пути сериализации (новый Gson, промежуточная строка, getBytes)
+ * с {@link StudentCodec}. Запускать с {@code -prof gc}, чтобы увидеть аллокации на операцию.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentCodecBenchmark {
+
+    @Param({"1", "1000"})
+    public int size;
+
+    private List<Student> students;
+    private StudentCodec codec;
+    private byte[] singleBody;
+
+    @Setup
+    public void setUp() {
+        students = BenchmarkDatabase.sampleStudents(size);
+        codec = new StudentCodec();
+        singleBody = new Gson().toJson(students.get(0)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Прежний ответ: новый Gson, строка JSON и отдельный массив байт. */
+    @Benchmark
+    public byte[] encodeNewGson() {
+        return new Gson().toJson(students).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Ответ через кодек: UTF-8 пишется сразу в переиспользуемый буфер. */
+    @Benchmark
+    public void encodeCodec(Blackhole blackhole) {
+        try (JsonBuffer buffer = codec.encode(students)) {
+            blackhole.consume(buffer.length());
+        }
+    }
+
+    /** Прежний разбор тела: readAllBytes, строка и рефлексивный Gson. */
+    @Benchmark
+    public Student decodeNewGson() throws IOException {
+        InputStream is = new ByteArrayInputStream(singleBody);
+        return new Gson().fromJson(new String(is.readAllBytes()), Student.class);
+    }
+
+    /** Разбор тела через кодек прямо из потока. */
+    @Benchmark
+    public Student decodeCodec() throws IOException {
+        return codec.readStudent(new ByteArrayInputStream(singleBody));
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import model.Student;
+import model.StudentRecord;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Размер студентов в куче по JOL: {@link Student} против компактного {@link StudentRecord}.
+ * Студенты строятся так же, как их читает DAO: каждая строка результата дает новые строки.
+ * <p>
+ * Запуск: java -cp target/benchmarks.jar benchmarks.StudentFootprint [число студентов]
+ */
+public final class StudentFootprint {
+    private static final String[] FIRST_NAMES = {"Иван", "Петр", "Алексей", "Мария", "Анна", "Ольга"};
+    private static final String[] LAST_NAMES = {"Иванов", "Петров", "Сидоров", "Смирнова", "Кузнецова", "Попова"};
+    private static final String[] PATRONYMICS = {"Иванович", "Петрович", "Сергеевна", "Алексеевна"};
+
+    private StudentFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(row(i));
+        }
+        List<StudentRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(StudentRecord.of(row(i)));
+        }
+
+        System.out.println(ClassLayout.parseClass(Student.class).toPrintable());
+        System.out.println(ClassLayout.parseClass(StudentRecord.class).toPrintable());
+        long studentBytes = GraphLayout.parseInstance(students).totalSize();
+        long recordBytes = GraphLayout.parseInstance(records).totalSize();
+        System.out.printf("%d students: Student %d bytes (%.1f per student), StudentRecord %d bytes (%.1f per student), -%.0f%%%n",
+                count, studentBytes, (double) studentBytes / count, recordBytes, (double) recordBytes / count,
+                100.0 * (studentBytes - recordBytes) / studentBytes);
+    }
+
+    /**
+     * Строит студента из новых строк, как при чтении строки из базы данных.
+     */
+    private static Student row(int i) {
+        Student student = new Student(
+                new String(String.valueOf(100_000 + i)),
+                new String(FIRST_NAMES[i % FIRST_NAMES.length]),
+                new String(LAST_NAMES[i % LAST_NAMES.length]),
+                new String(PATRONYMICS[i % PATRONYMICS.length]),
+                new String(String.format("%04d-%02d-%02d", 1995 + i % 10, 1 + i % 12, 1 + i % 28)),
+                new String("ИВТ-" + (i % 40)));
+        student.setId(i + 1);
+        return student;
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import Handler.StudentHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор запроса и запись ответа в StudentHandler.
+ * Запрос студента по номеру обслуживается из кэша, поэтому измеряется в основном работа обработчика;
+ * страница списка включает запрос к встроенной базе.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentHandlerBenchmark {
+    private static final String UPDATE_BODY =
+            "{\"firstName\": \"Петр\", \"lastName\": \"Петров\", \"groupName\": \"ИВТ-22\"}";
+
+    private StudentHandler handler;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.init();
+        handler = new StudentHandler();
+        BenchmarkDatabase.seed(new service.StudentService(), "h", 1000);
+    }
+
+    @Benchmark
+    public int getStudentByUniqueNumber() throws IOException {
+        FakeExchange exchange = new FakeExchange("GET", "/api/students/h42", null);
+        handler.handle(exchange);
+        return exchange.writtenBytes();
+    }
+
+    @Benchmark
+    public int getStudentsPage() throws IOException {
+        FakeExchange exchange = new FakeExchange("GET", "/api/students/?after=0&limit=100", null);
+        handler.handle(exchange);
+        return exchange.writtenBytes();
+    }
+
+    @Benchmark
+    public int updateStudent() throws IOException {
+        FakeExchange exchange = new FakeExchange("PUT", "/api/students/h7", UPDATE_BODY);
+        handler.handle(exchange);
+        return exchange.writtenBytes();
+    }
+}
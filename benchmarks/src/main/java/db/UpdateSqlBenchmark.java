@@ -0,0 +1,52 @@
+package db;
+
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение динамического UPDATE в StudentDAO для частичного и полного обновления.
+ * Класс лежит в пакете db, чтобы вызывать package-private StudentDAO.buildUpdateSql.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateSqlBenchmark {
+    private Student partial;
+    private Student full;
+
+    @Setup
+    public void setUp() {
+        partial = new Student();
+        partial.setUniqueNumber("123456");
+        partial.setGroupName("ИВТ-22");
+        full = new Student("123456", "Петр", "Петров", "Петрович", "2000-02-02", "ИВТ-22");
+    }
+
+    @Benchmark
+    public String partialUpdate() {
+        List<Object> parameters = new ArrayList<>();
+        return StudentDAO.buildUpdateSql(partial, parameters);
+    }
+
+    @Benchmark
+    public String fullUpdate() {
+        List<Object> parameters = new ArrayList<>();
+        return StudentDAO.buildUpdateSql(full, parameters);
+    }
+}
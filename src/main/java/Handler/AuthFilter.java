@@ -0,0 +1,71 @@
+package Handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import config.AppConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Фильтр доступа по токену: запрос должен содержать заголовок Authorization: Bearer &lt;auth.token&gt;.
+ * Если токен не задан, проверка выключена. Чтение (GET, HEAD) без токена разрешено,
+ * пока не включена настройка auth.protectReads. Без токена или с неверным токеном - ответ 401.
+ * Токен сравнивается за время, не зависящее от совпавшей части.
+ */
+public class AuthFilter extends Filter {
+    private static final String BEARER = "Bearer ";
+    private static final byte[] BODY = "{\"error\": \"Unauthorized\"}".getBytes(StandardCharsets.UTF_8);
+
+    private volatile byte[] token; // null - проверка выключена
+    private volatile boolean protectReads;
+
+    /**
+     * Создает фильтр по настройкам auth.token и auth.protectReads.
+     */
+    public AuthFilter() {
+        reloadSettings();
+    }
+
+    /**
+     * Применяет измененные auth.token и auth.protectReads (например, смену токена без перезапуска).
+     */
+    public void reloadSettings() {
+        String value = AppConfig.get("auth.token", "");
+        token = value.isBlank() ? null : value.trim().getBytes(StandardCharsets.UTF_8);
+        protectReads = AppConfig.getBoolean("auth.protectReads", false);
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        byte[] expected = token;
+        String method = exchange.getRequestMethod();
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        if (expected == null || read && !protectReads || isAuthorized(exchange, expected)) {
+            chain.doFilter(exchange);
+            return;
+        }
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(401, BODY.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(BODY);
+        }
+    }
+
+    private static boolean isAuthorized(HttpExchange exchange, byte[] expected) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return false;
+        }
+        byte[] provided = header.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, provided);
+    }
+
+    @Override
+    public String description() {
+        return "Requires a bearer token when auth.token is set";
+    }
+}
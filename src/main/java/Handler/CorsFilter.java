@@ -0,0 +1,53 @@
+package Handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import config.AppConfig;
+
+import java.io.IOException;
+
+/**
+ * Фильтр CORS: добавляет заголовки Access-Control-* к каждому ответу и сам отвечает 204
+ * на предварительные запросы OPTIONS, не передавая их дальше по цепочке (в том числе проверке доступа).
+ * Разрешенный источник задается настройкой cors.allowOrigin (по умолчанию любой).
+ */
+public class CorsFilter extends Filter {
+    private final String allowOrigin = AppConfig.get("cors.allowOrigin", "*");
+    private final String allowMethods;
+    private final String allowHeaders;
+    private final String exposeHeaders;
+
+    /**
+     * @param allowMethods  методы для Access-Control-Allow-Methods
+     * @param allowHeaders  заголовки запроса для Access-Control-Allow-Headers
+     * @param exposeHeaders заголовки ответа для Access-Control-Expose-Headers или null
+     */
+    public CorsFilter(String allowMethods, String allowHeaders, String exposeHeaders) {
+        this.allowMethods = allowMethods;
+        this.allowHeaders = allowHeaders;
+        this.exposeHeaders = exposeHeaders;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Access-Control-Allow-Origin", allowOrigin);
+        headers.set("Access-Control-Allow-Methods", allowMethods);
+        headers.set("Access-Control-Allow-Headers", allowHeaders);
+        if (exposeHeaders != null) {
+            headers.set("Access-Control-Expose-Headers", exposeHeaders);
+        }
+        if ("OPTIONS".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+        chain.doFilter(exchange);
+    }
+
+    @Override
+    public String description() {
+        return "Adds CORS headers and answers preflight requests";
+    }
+}
@@ -0,0 +1,38 @@
+package Handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Фильтр метрик: записывает число и длительность запросов по методу, маршруту и коду ответа.
+ * Для потоковых ответов длительность - время до возврата из обработчика.
+ */
+public class MetricsFilter extends Filter {
+    private final Function<HttpExchange, String> routeOf;
+
+    /**
+     * @param routeOf шаблон маршрута запроса для метки route (не сам путь, чтобы число меток было ограничено)
+     */
+    public MetricsFilter(Function<HttpExchange, String> routeOf) {
+        this.routeOf = routeOf;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            Metrics.recordHttp(exchange.getRequestMethod(), routeOf.apply(exchange), exchange.getResponseCode(), start);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Records HTTP request metrics";
+    }
+}
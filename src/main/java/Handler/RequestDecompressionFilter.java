@@ -0,0 +1,125 @@
+package Handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import config.AppConfig;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Фильтр сжатых тел запросов: если указан Content-Encoding gzip или deflate, обработчик читает
+ * уже распакованное тело (потоком, по мере чтения). Неизвестная кодировка или поврежденный
+ * заголовок gzip - ответ 400 без вызова обработчика.
+ * <p>
+ * Распакованное тело ограничено server.maxBodyBytes байт (0 - без ограничения): несколько килобайт gzip
+ * могут распаковаться в гигабайты. Чтение сверх лимита завершается IOException, и обработчик отвечает 400.
+ * <p>
+ * Сжатие ответов остается в обработчике (см. {@link ResponseCompression}): оно зависит от размера тела,
+ * а полный список хранится уже сжатым.
+ */
+public class RequestDecompressionFilter extends Filter {
+    static final long DEFAULT_MAX_BODY_BYTES = 64L * 1024 * 1024;
+
+    private final long maxBodyBytes;
+
+    public RequestDecompressionFilter() {
+        this(AppConfig.getLong("server.maxBodyBytes", DEFAULT_MAX_BODY_BYTES));
+    }
+
+    /**
+     * @param maxBodyBytes наибольший размер распакованного тела в байтах (0 - без ограничения)
+     */
+    public RequestDecompressionFilter(long maxBodyBytes) {
+        if (maxBodyBytes < 0) {
+            throw new IllegalArgumentException("Invalid server.maxBodyBytes: " + maxBodyBytes);
+        }
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if (encoding == null) {
+            chain.doFilter(exchange);
+            return;
+        }
+        InputStream body;
+        try {
+            body = ResponseCompression.requestBody(exchange);
+        } catch (IOException e) {
+            reject(exchange, e.getMessage());
+            return;
+        }
+        exchange.setStreams(maxBodyBytes > 0 ? new LimitedInputStream(body, maxBodyBytes) : body, null);
+        chain.doFilter(exchange);
+    }
+
+    private static void reject(HttpExchange exchange, String message) throws IOException {
+        byte[] body = ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(400, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Поток, чтение из которого сверх limit байт завершается IOException.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            // Не больше чем на байт сверх лимита: распаковывать дальше незачем
+            int n = in.read(b, off, (int) Math.min(len, limit - count + 1));
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, limit - count + 1));
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) throws IOException {
+            count += n;
+            if (count > limit) {
+                throw new IOException("Decoded request body exceeds " + limit + " bytes (server.maxBodyBytes).");
+            }
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Decodes gzip and deflate request bodies";
+    }
+}
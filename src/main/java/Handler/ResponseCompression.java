@@ -0,0 +1,154 @@
+package Handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import config.AppConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Сжатие ответов по заголовку Accept-Encoding (gzip или deflate) и распаковка сжатых тел запросов
+ * (Content-Encoding).
+ * Ответы меньше порога compression.minSize байт не сжимаются: заголовки gzip и работа
+ * компрессора для них дороже экономии трафика.
+ */
+final class ResponseCompression {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final int MIN_SIZE = AppConfig.getInt("compression.minSize", 1024); // Порог сжатия, байт
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private ResponseCompression() {}
+
+    /**
+     * Выбирает кодировку ответа по заголовку Accept-Encoding и добавляет Vary: Accept-Encoding.
+     * gzip предпочтительнее deflate; кодировки с q=0 не используются. "*" разрешает кодировки,
+     * не названные в заголовке явно. Несжатый ответ (identity) допустим всегда, даже с q=0:
+     * это лучше для клиента, чем отказ 406.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return gzip, deflate или null, если клиент не поддерживает сжатие
+     */
+    static String negotiate(HttpExchange exchange) {
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String header = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        Boolean gzip = null; // null - кодировка не названа явно
+        Boolean deflate = null;
+        boolean any = false;
+        for (String part : header.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = !isRejected(tokens);
+            switch (coding) {
+                case GZIP, "x-gzip" -> gzip = accepted;
+                case DEFLATE -> deflate = accepted;
+                case "*" -> any = accepted;
+                default -> { }
+            }
+        }
+        if (gzip != null ? gzip : any) {
+            return GZIP;
+        }
+        return (deflate != null ? deflate : any) ? DEFLATE : null;
+    }
+
+    /**
+     * @return true, если у кодировки указан вес q=0
+     */
+    private static boolean isRejected(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String param = tokens[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Оборачивает поток ответа компрессором. Закрытие возвращенного потока завершает сжатие
+     * и закрывает исходный поток.
+     *
+     * @param out      Поток тела ответа.
+     * @param encoding gzip или deflate.
+     * @return Поток, сжимающий данные.
+     * @throws IOException В случае ошибки ввода-вывода.
+     */
+    static OutputStream wrap(OutputStream out, String encoding) throws IOException {
+        return GZIP.equals(encoding)
+                ? new GZIPOutputStream(out, BUFFER_SIZE)
+                : new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE, false) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            def.end(); // Нативная память Deflater освобождается сразу, не дожидаясь GC
+                        }
+                    }
+                };
+    }
+
+    /**
+     * Возвращает тело запроса, распакованное по заголовку Content-Encoding (gzip или deflate).
+     * Данные распаковываются потоком по мере чтения.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Поток распакованного тела.
+     * @throws IOException Если кодировка не поддерживается или заголовок gzip поврежден.
+     */
+    static InputStream requestBody(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        String encoding = header == null ? "identity" : header.trim().toLowerCase(Locale.ROOT);
+        InputStream body = exchange.getRequestBody();
+        return switch (encoding) {
+            case "identity", "" -> body;
+            case GZIP, "x-gzip" -> new GZIPInputStream(body, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(body, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+            default -> throw new IOException("Unsupported Content-Encoding: " + header);
+        };
+    }
+
+    /**
+     * Сжимает массив байт целиком.
+     *
+     * @param data     Данные.
+     * @param encoding gzip или deflate.
+     * @return Сжатые данные.
+     */
+    static byte[] compress(byte[] data, String encoding) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (OutputStream out = wrap(compressed, encoding)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream не бросает IOException
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,361 @@
+package Handler;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Таблица маршрутов: метод и шаблон пути -> обработчик.
+ * <p>
+ * Шаблоны разбираются один раз при регистрации: "/api/students/{uniqueNumber}",
+ * "/api/students/operations/{id:long}". Параметр занимает один сегмент пути; тип long допускает
+ * только цифры, поэтому путь с другим значением не совпадает с маршрутом. Завершающая косая черта
+ * не учитывается. Маршрут с неизменяемым сегментом на месте параметра проверяется раньше
+ * ("/api/students/search" раньше "/api/students/{uniqueNumber}").
+ * <p>
+ * Поиск маршрута сравнивает сегменты прямо в строке пути, без split и подстрок, и ничего не создает.
+ * Значения параметров извлекаются только по запросу обработчика. Таблица заполняется при создании
+ * обработчика и дальше не меняется, поэтому поиск не требует синхронизации.
+ */
+public final class Router {
+
+    /**
+     * Обработчик маршрута.
+     */
+    @FunctionalInterface
+    public interface Endpoint {
+        /**
+         * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+         * @param route    Совпавший маршрут (для параметров пути).
+         * @return Ответ в формате JSON или null, если ответ уже отправлен.
+         * @throws IOException  В случае ошибки ввода-вывода или некорректного запроса.
+         * @throws SQLException В случае ошибки базы данных.
+         */
+        String handle(HttpExchange exchange, Route route) throws IOException, SQLException;
+    }
+
+    private static final String UNMATCHED = "unmatched"; // Метка метрик для неизвестных путей
+
+    private final Map<String, Route[]> routes = new HashMap<>(); // Метод -> маршруты по убыванию точности
+    private String[] methods = new String[0]; // Методы с маршрутами, по алфавиту (для заголовка Allow)
+
+    /**
+     * Регистрирует маршрут.
+     *
+     * @param method   HTTP-метод
+     * @param pattern  шаблон пути, например "/api/students/{uniqueNumber}"
+     * @param endpoint обработчик
+     * @return этот же маршрутизатор
+     * @throws IllegalArgumentException если шаблон некорректен или такой маршрут уже есть
+     */
+    public Router add(String method, String pattern, Endpoint endpoint) {
+        Route route = new Route(method, pattern, endpoint);
+        Route[] current = routes.getOrDefault(method, new Route[0]);
+        for (Route existing : current) {
+            if (existing.sameShape(route)) {
+                throw new IllegalArgumentException("Route conflicts with " + existing.label + ": " + method + " " + pattern);
+            }
+        }
+        Route[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = route;
+        Arrays.sort(updated, Comparator.comparingInt((Route r) -> r.paramCount)); // Стабильная: порядок регистрации сохраняется
+        if (routes.put(method, updated) == null) {
+            methods = Arrays.copyOf(methods, methods.length + 1);
+            methods[methods.length - 1] = method;
+            Arrays.sort(methods);
+        }
+        return this;
+    }
+
+    /**
+     * Находит маршрут запроса.
+     *
+     * @param method HTTP-метод
+     * @param path   путь запроса (уже декодированный)
+     * @return маршрут или null, если для этого метода и пути маршрута нет
+     */
+    public Route match(String method, String path) {
+        Route[] candidates = routes.get(method);
+        if (candidates == null) {
+            return null;
+        }
+        int end = trimmedEnd(path);
+        int segments = countSegments(path, end);
+        for (Route route : candidates) {
+            if (route.segments.length == segments && route.matches(path, end)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Перечисляет методы, для которых путь известен (для ответа 405 и заголовка Allow).
+     *
+     * @param path путь запроса
+     * @return методы через запятую или null, если путь неизвестен ни для одного метода
+     */
+    public String allowedMethods(String path) {
+        StringJoiner allowed = new StringJoiner(", ");
+        boolean found = false;
+        for (String method : methods) {
+            if (match(method, path) != null) {
+                allowed.add(method);
+                found = true;
+            }
+        }
+        return found ? allowed.toString() : null;
+    }
+
+    /**
+     * Шаблон маршрута для метрик: число различных меток не зависит от номеров студентов и неизвестных путей.
+     *
+     * @param method HTTP-метод
+     * @param path   путь запроса
+     * @return шаблон без типов параметров или "unmatched"
+     */
+    public String labelOf(String method, String path) {
+        return labelOf(match(method, path));
+    }
+
+    /**
+     * Шаблон уже найденного маршрута для метрик.
+     *
+     * @param route маршрут или null, если он не найден
+     * @return шаблон без типов параметров или "unmatched"
+     */
+    public static String labelOf(Route route) {
+        return route != null ? route.label : UNMATCHED;
+    }
+
+    private static int trimmedEnd(String path) {
+        int end = path.length();
+        return end > 1 && path.charAt(end - 1) == '/' ? end - 1 : end;
+    }
+
+    private static int countSegments(String path, int end) {
+        if (end <= 1) {
+            return 0; // "/" или пустой путь
+        }
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Зарегистрированный маршрут: разобранный шаблон и обработчик.
+     */
+    public static final class Route {
+        private final String method;
+        private final String label; // Шаблон без типов параметров: "/api/students/operations/{id}"
+        private final Endpoint endpoint;
+        private final String[] segments; // Неизменяемый текст сегмента или null для параметра
+        private final String[] paramNames; // Имя параметра по номеру сегмента (null - не параметр)
+        private final boolean[] numeric; // Параметр типа long
+        private final int paramCount;
+
+        private Route(String method, String pattern, Endpoint endpoint) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+            }
+            String trimmed = pattern.substring(1, trimmedEnd(pattern));
+            String[] parts = trimmed.isEmpty() ? new String[0] : trimmed.split("/", -1);
+            this.method = method;
+            this.endpoint = endpoint;
+            this.segments = new String[parts.length];
+            this.paramNames = new String[parts.length];
+            this.numeric = new boolean[parts.length];
+            StringBuilder label = new StringBuilder();
+            int params = 0;
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i];
+                label.append('/');
+                if (part.startsWith("{") && part.endsWith("}")) {
+                    String name = part.substring(1, part.length() - 1);
+                    int colon = name.indexOf(':');
+                    if (colon >= 0) {
+                        String type = name.substring(colon + 1);
+                        if (!type.equals("long")) {
+                            throw new IllegalArgumentException("Unknown parameter type '" + type + "' in route " + pattern);
+                        }
+                        numeric[i] = true;
+                        name = name.substring(0, colon);
+                    }
+                    if (name.isEmpty() || Arrays.asList(paramNames).contains(name)) {
+                        throw new IllegalArgumentException("Invalid parameter name in route " + pattern);
+                    }
+                    paramNames[i] = name;
+                    label.append('{').append(name).append('}');
+                    params++;
+                } else if (part.isEmpty() || part.indexOf('{') >= 0 || part.indexOf('}') >= 0) {
+                    throw new IllegalArgumentException("Invalid segment '" + part + "' in route " + pattern);
+                } else {
+                    segments[i] = part;
+                    label.append(part);
+                }
+            }
+            this.label = label.isEmpty() ? "/" : pattern.endsWith("/") ? label + "/" : label.toString();
+            this.paramCount = params;
+        }
+
+        /**
+         * @return шаблон маршрута без типов параметров (метка метрик)
+         */
+        public String label() {
+            return label;
+        }
+
+        /**
+         * @return обработчик маршрута
+         */
+        public Endpoint endpoint() {
+            return endpoint;
+        }
+
+        /**
+         * Возвращает значение параметра пути.
+         *
+         * @param exchange запрос, для которого найден этот маршрут
+         * @param name     имя параметра
+         * @return значение сегмента пути
+         * @throws IllegalArgumentException если у маршрута нет такого параметра
+         */
+        public String param(HttpExchange exchange, String name) {
+            return param(exchange.getRequestURI().getPath(), name);
+        }
+
+        /**
+         * Возвращает значение параметра пути.
+         *
+         * @param path путь, для которого найден этот маршрут
+         * @param name имя параметра
+         * @return значение сегмента пути
+         * @throws IllegalArgumentException если у маршрута нет такого параметра
+         */
+        public String param(String path, String name) {
+            int start = segmentStart(path, indexOf(name));
+            return path.substring(start, segmentEnd(path, start));
+        }
+
+        /**
+         * Возвращает значение параметра пути типа long (разбирается без создания подстроки).
+         *
+         * @param exchange запрос, для которого найден этот маршрут
+         * @param name     имя параметра типа long
+         * @return значение параметра
+         * @throws IOException если значение не помещается в long
+         */
+        public long longParam(HttpExchange exchange, String name) throws IOException {
+            return longParam(exchange.getRequestURI().getPath(), name);
+        }
+
+        /**
+         * Возвращает значение параметра пути типа long.
+         *
+         * @param path путь, для которого найден этот маршрут
+         * @param name имя параметра типа long
+         * @return значение параметра
+         * @throws IOException если значение не помещается в long
+         */
+        public long longParam(String path, String name) throws IOException {
+            int index = indexOf(name);
+            if (!numeric[index]) {
+                throw new IllegalArgumentException("Parameter '" + name + "' of route " + label + " is not a long");
+            }
+            int start = segmentStart(path, index);
+            try {
+                return Long.parseLong(path, start, segmentEnd(path, start), 10);
+            } catch (NumberFormatException e) {
+                throw new IOException("Path parameter '" + name + "' is out of range.");
+            }
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < paramNames.length; i++) {
+                if (name.equals(paramNames[i])) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Route " + label + " has no parameter '" + name + "'");
+        }
+
+        private static int segmentStart(String path, int index) {
+            int start = 1;
+            for (int i = 0; i < index; i++) {
+                start = path.indexOf('/', start) + 1;
+            }
+            return start;
+        }
+
+        private static int segmentEnd(String path, int start) {
+            int slash = path.indexOf('/', start);
+            return slash < 0 ? path.length() : slash;
+        }
+
+        /**
+         * Сравнивает путь с шаблоном посегментно. Число сегментов уже совпало.
+         */
+        private boolean matches(String path, int end) {
+            int start = 1;
+            for (int i = 0; i < segments.length; i++) {
+                int next = path.indexOf('/', start);
+                if (next < 0 || next > end) {
+                    next = end;
+                }
+                int length = next - start;
+                String literal = segments[i];
+                if (literal != null) {
+                    if (length != literal.length() || !path.regionMatches(start, literal, 0, length)) {
+                        return false;
+                    }
+                } else if (length == 0 || numeric[i] && !isDigits(path, start, next)) {
+                    return false;
+                }
+                start = next + 1;
+            }
+            return true;
+        }
+
+        private static boolean isDigits(String path, int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = path.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return true, если маршруты совпадают с точностью до имен параметров
+         */
+        private boolean sameShape(Route other) {
+            if (!method.equals(other.method) || segments.length != other.segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                boolean same = segments[i] != null ? segments[i].equals(other.segments[i])
+                        : other.segments[i] == null && numeric[i] == other.numeric[i];
+                if (!same) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + label;
+        }
+    }
+}
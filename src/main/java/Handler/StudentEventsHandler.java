@@ -0,0 +1,148 @@
+package Handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import service.StudentEventBroadcaster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Лента изменений студентов в формате Server-Sent Events: GET /api/students/events.
+ * <p>
+ * События: added (добавленный студент), updated (уникальный номер и измененные поля),
+ * deleted (уникальный номер) и reset (клиент пропустил слишком много и должен перечитать список).
+ * Переподключившийся клиент передает номер последнего события в заголовке Last-Event-ID
+ * (или параметре lastEventId) и получает пропущенные события.
+ * <p>
+ * Обработчик только отправляет заголовки и подписывается; события пишет отдельный виртуальный поток
+ * подписчика, поэтому долгие соединения не занимают потоки исполнителя запросов.
+ * Пока событий нет, раз в heartbeatMillis отправляется комментарий: так обнаруживается отключение клиента.
+ * CORS и метрики добавляются фильтрами контекста, как и у {@link StudentHandler}.
+ */
+public class StudentEventsHandler implements HttpHandler {
+    private static final Logger logger = Logger.getLogger(StudentEventsHandler.class.getName());
+    private static final String ROUTE = "/api/students/events";
+    private static final byte[] PREAMBLE = "retry: 3000\n\n".getBytes(StandardCharsets.US_ASCII); // Пауза перед переподключением
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final StudentEventBroadcaster events;
+    private volatile long heartbeatMillis;
+
+    /**
+     * @param events          рассылка событий
+     * @param heartbeatMillis период комментария-пульса при отсутствии событий
+     */
+    public StudentEventsHandler(StudentEventBroadcaster events, long heartbeatMillis) {
+        this.events = events;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * @param heartbeatMillis новый период пульса (для уже открытых потоков - со следующего ожидания)
+     */
+    public void setHeartbeatMillis(long heartbeatMillis) {
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * @return шаблон маршрута для метрик (длительность запроса - время до начала потока событий)
+     */
+    public String routeOf(HttpExchange exchange) {
+        return ROUTE;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod()) || !ROUTE.equals(exchange.getRequestURI().getPath())) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+
+        StudentEventBroadcaster.Subscription subscription;
+        try {
+            subscription = events.subscribe(lastEventIdOf(exchange));
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            sendError(exchange, 503, e.getMessage());
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        try {
+            exchange.sendResponseHeaders(200, 0); // chunked, без сжатия: события должны уходить сразу
+        } catch (IOException e) {
+            subscription.close();
+            throw e;
+        }
+        Thread.ofVirtual().name("sse-subscriber").start(() -> stream(exchange, subscription));
+    }
+
+    /**
+     * Пишет события подписки в ответ, пока клиент не отключится или подписка не будет закрыта.
+     * Доступные события отправляются вместе, одним сбросом буфера.
+     */
+    private void stream(HttpExchange exchange, StudentEventBroadcaster.Subscription subscription) {
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(PREAMBLE);
+            if (subscription.isReset()) {
+                body.write(subscription.resetFrame());
+            }
+            body.flush();
+            while (true) {
+                StudentEventBroadcaster.Event event = subscription.next(heartbeatMillis);
+                if (event == null) {
+                    if (subscription.isClosed()) {
+                        break; // Клиент переподключится с Last-Event-ID
+                    }
+                    body.write(HEARTBEAT);
+                } else {
+                    do {
+                        body.write(event.frame());
+                    } while ((event = subscription.poll()) != null);
+                }
+                body.flush();
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Event subscriber disconnected: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscription.close();
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return номер последнего полученного события из Last-Event-ID или параметра lastEventId, иначе -1
+     */
+    private static long lastEventIdOf(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        String query = exchange.getRequestURI().getRawQuery();
+        if (value == null && query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith("lastEventId=")) {
+                    value = pair.substring("lastEventId=".length());
+                }
+            }
+        }
+        try {
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1; // Некорректный номер: только новые события
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int responseCode, String message) throws IOException {
+        byte[] body = ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(responseCode, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
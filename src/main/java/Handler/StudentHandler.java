@@ -1,17 +1,54 @@
 package Handler;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import config.AppConfig;
+import csv.StudentCsv;
+import db.RequestContext;
+import db.StudentDAO;
+import db.TableVersions;
+import json.JsonBuffer;
+import json.NdjsonWriter;
+import json.StudentCodec;
+import model.BatchImportResult;
 import model.Student;
+import model.StudentQuery;
+import model.StudentRecord;
+import model.StudentWrite;
+import model.WriteStatus;
+import service.StudentGroupStats;
 import service.StudentService;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,106 +58,710 @@ import java.util.logging.Logger;
  * включая получение списка, добавление, обновление и удаление студентов.
  */
 public class StudentHandler implements HttpHandler {
-    private final StudentService studentService = new StudentService();
+    private final StudentService studentService;
+    private final StudentCodec codec = new StudentCodec(); // Общий JSON-кодек, потокобезопасен
+    private final StudentListCache listCache = new StudentListCache(); // Последний полный список и его сжатые копии
+    private final Router router = new Router();
+    private final ThreadLocal<RouteMatch> lastMatch = ThreadLocal.withInitial(RouteMatch::new);
     private static final Logger logger = Logger.getLogger(StudentHandler.class.getName());
+    private static final int DEFAULT_PAGE_SIZE = 100; // Размер страницы по умолчанию
+    private static final int MAX_PAGE_SIZE = 1000; // Максимальный размер страницы
+    private static final int DEFAULT_SEARCH_LIMIT = 20; // Число результатов поиска по умолчанию
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int IMPORT_CHUNK_SIZE = AppConfig.getInt("import.chunkSize", 500); // Размер порции пакетной вставки
+    private static final int MAX_IMPORT_CHUNK_SIZE = 5000;
+    private static final int IMPORT_PROGRESS_ROWS = AppConfig.getInt("import.progressRows", 10_000); // Строк между отчетами о ходе загрузки
+    private static final int MAX_REPORTED_ROWS = 100; // Сколько проблемных строк перечислять в итоге загрузки
+    private static final int TRANSFER_BUFFER_SIZE = 16 * 1024;
+    private static final String OPERATIONS_PATH = "/api/students/operations/"; // Состояние отложенных операций
+    private static final int UNMATCHABLE_VERSION = -1; // If-Match, который не совпадет ни с одной версией строки
+    private static final String NUMERIC_UNIQUE_NUMBER = "Unique number must contain only digits.";
+    private static final String VERSION_CONFLICT = "{\"error\": \"Student was modified by another request\"}";
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    public StudentHandler() {
+        this(new StudentService());
+    }
+
+    /**
+     * Создает обработчик, работающий с указанным сервисом.
+     *
+     * @param studentService сервис для работы с данными студентов
+     */
+    public StudentHandler(StudentService studentService) {
+        this.studentService = studentService;
+        router.add("GET", "/api/students/", (exchange, route) -> getStudents(exchange))
+                .add("GET", "/api/students/generateUniqueNumber", (exchange, route) -> generateUniqueNumber(exchange))
+                .add("GET", "/api/students/search", (exchange, route) -> searchStudents(exchange))
+                .add("GET", "/api/students/stats", (exchange, route) -> getStatistics(exchange))
+                .add("GET", "/api/students/export", (exchange, route) -> exportStudents(exchange))
+                .add("GET", OPERATIONS_PATH + "{id:long}",
+                        (exchange, route) -> getOperationStatus(exchange, route.longParam(exchange, "id")))
+                .add("GET", "/api/students/{uniqueNumber:long}",
+                        (exchange, route) -> getStudentByUniqueNumber(exchange, route.param(exchange, "uniqueNumber")))
+                .add("POST", "/api/students/", (exchange, route) -> addStudent(exchange))
+                .add("POST", "/api/students/batch", (exchange, route) -> importStudents(exchange))
+                .add("POST", "/api/students/import", (exchange, route) -> importFile(exchange))
+                .add("PUT", "/api/students/{uniqueNumber:long}",
+                        (exchange, route) -> updateStudent(exchange, route.param(exchange, "uniqueNumber")))
+                .add("DELETE", "/api/students/{uniqueNumber:long}",
+                        (exchange, route) -> deleteStudent(exchange, route.param(exchange, "uniqueNumber")));
+    }
+
+    /**
+     * Возвращает кэш полного списка студентов (для метрик).
+     *
+     * @return кэш списка
+     */
+    public StudentListCache getListCache() {
+        return listCache;
+    }
 
     /**
      * Обрабатывает HTTP-запросы, направленные на /api/students.
+     * CORS, метрики, распаковка тела и проверка доступа выполняются фильтрами контекста (см. Main).
      * @param exchange HttpExchange объект, содержащий запрос и ответ
      * @throws IOException в случае ошибки ввода-вывода
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String response;
-        int responseCode = 200; // По умолчанию - OK
+        RequestContext.begin(clientIdOf(exchange));
+        try {
+            handleRequest(exchange);
+        } finally {
+            RequestContext.end();
+        }
+    }
 
-        // Установка CORS заголовков
-        setupCORS(exchange);
+    /**
+     * Возвращает шаблон маршрута запроса для метрик, чтобы число различных меток не зависело
+     * от номеров студентов и неизвестных путей.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Шаблон маршрута или "unmatched".
+     */
+    public String routeOf(HttpExchange exchange) {
+        return Router.labelOf(routeFor(exchange));
+    }
 
-        if ("OPTIONS".equals(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
+    /**
+     * Находит маршрут запроса один раз: фильтры (лимиты, метрики) и сам обработчик выполняются
+     * в одном потоке, поэтому результат запоминается в потоке вместе с запросом, для которого найден.
+     * Атрибуты HttpExchange для этого не подходят: в JDK 21 они общие для всего контекста.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Маршрут или null, если его нет.
+     */
+    private Router.Route routeFor(HttpExchange exchange) {
+        RouteMatch match = lastMatch.get();
+        if (match.exchange != exchange) {
+            match.route = router.match(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+            match.exchange = exchange;
+        }
+        return match.route;
+    }
+
+    /**
+     * Последний найденный в потоке маршрут и запрос, для которого он найден.
+     */
+    private static final class RouteMatch {
+        private HttpExchange exchange;
+        private Router.Route route;
+    }
+
+    /**
+     * Определяет клиента для read-your-writes: заголовок X-Client-Id, если клиент его передает, иначе адрес клиента.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Идентификатор клиента.
+     */
+    private static String clientIdOf(HttpExchange exchange) {
+        String clientId = exchange.getRequestHeaders().getFirst("X-Client-Id");
+        if (clientId != null && !clientId.isBlank()) {
+            return clientId;
+        }
+        return exchange.getRemoteAddress() != null ? exchange.getRemoteAddress().getAddress().getHostAddress() : null;
+    }
+
+    /**
+     * Выполняет HTTP-запрос в зависимости от метода.
+     * @param exchange HttpExchange объект, содержащий запрос и ответ
+     * @throws IOException в случае ошибки ввода-вывода
+     */
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        Router.Route route = routeFor(exchange);
+        if (route == null) {
+            // Неизвестный путь отклоняется без обращения к кэшу и базе
+            String allowed = router.allowedMethods(exchange.getRequestURI().getPath());
+            if (allowed != null) {
+                exchange.getResponseHeaders().set("Allow", allowed);
+                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+            } else {
+                sendResponse(exchange, 404, "{\"error\": \"Not found\"}");
+            }
             return;
         }
 
+        String response;
+        int responseCode = 200; // По умолчанию - OK
         try {
-            String method = exchange.getRequestMethod();
-            String path = exchange.getRequestURI().getPath();
-            response = switch (method) {
-                case "GET" -> handleGetRequest(path, exchange);
-                case "POST" -> addStudent(exchange);
-                case "DELETE" -> deleteStudent(exchange);
-                case "PUT" -> updateStudent(exchange);
-                default -> {
-                    responseCode = 405; // Метод не разрешен
-                    yield "Method not allowed";
-                }
-            };
+            response = route.endpoint().handle(exchange, route);
         } catch (SQLException e) {
-            responseCode = 500; // Внутренняя ошибка сервера
-            response = "Error: " + e.getMessage();
-            logger.log(Level.SEVERE, "Database error: ", e);
+            if (StudentDAO.isDuplicateKey(e)) {
+                responseCode = 409; // Уникальный номер уже занят (уникальный индекс в базе)
+                response = "{\"error\": \"Unique number already exists\"}";
+            } else if (StudentDAO.isNotFound(e)) {
+                responseCode = 404;
+                response = "{\"error\": \"Student not found\"}";
+            } else if (StudentDAO.isVersionMismatch(e)) {
+                responseCode = 412; // If-Match не совпал: студента уже изменил другой запрос
+                response = VERSION_CONFLICT;
+            } else {
+                responseCode = 500; // Внутренняя ошибка сервера
+                response = "Error: " + e.getMessage();
+                logger.log(Level.SEVERE, "Database error: ", e);
+            }
         } catch (IOException e) {
             responseCode = 400; // Плохой запрос
             response = "Error: " + e.getMessage();
             logger.log(Level.SEVERE, "IO error: ", e);
+        } catch (RejectedExecutionException e) {
+            responseCode = 503; // Очередь отложенной записи переполнена
+            response = "{\"error\": \"" + e.getMessage() + " Try again later.\"}";
+            exchange.getResponseHeaders().set("Retry-After", "1");
         }
 
+        if (exchange.getResponseCode() != -1) {
+            // Ответ уже отправлен потоком, остается только закрыть обмен
+            exchange.close();
+            return;
+        }
         sendResponse(exchange, responseCode, response);
     }
 
     /**
-     * Устанавливает CORS заголовки для разрешения запросов с других источников.
+     * Отправляет ответ клиенту с заданным кодом состояния и сообщением.
      *
-     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param exchange    Объект HttpExchange, представляющий HTTP-запрос.
+     * @param responseCode Код состояния ответа.
+     * @param response     Сообщение ответа в формате JSON.
+     * @throws IOException В случае ошибки ввода-вывода.
      */
-    private void setupCORS(HttpExchange exchange) {
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+    private void sendResponse(HttpExchange exchange, int responseCode, String response) throws IOException {
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        OutputStream os = openBody(exchange, responseCode, body.length);
+        os.write(body);
+        os.close();
     }
 
     /**
-     * Отправляет ответ клиенту с заданным кодом состояния и сообщением.
+     * Отправляет заголовки ответа и открывает тело. Если клиент принимает gzip или deflate
+     * и тело не меньше порога сжатия (или длина заранее неизвестна), тело сжимается
+     * и передается частями (chunked).
      *
-     * @param exchange    Объект HttpExchange, представляющий HTTP-запрос.
+     * @param exchange     Объект HttpExchange, представляющий HTTP-запрос.
      * @param responseCode Код состояния ответа.
-     * @param response     Сообщение ответа в формате JSON.
+     * @param length       Длина несжатого тела или -1, если она неизвестна.
+     * @return Поток для записи несжатого тела; его нужно закрыть.
      * @throws IOException В случае ошибки ввода-вывода.
      */
-    private void sendResponse(HttpExchange exchange, int responseCode, String response) throws IOException {
+    private OutputStream openBody(HttpExchange exchange, int responseCode, long length) throws IOException {
+        String encoding = ResponseCompression.negotiate(exchange);
+        if (encoding != null && (length < 0 || length >= ResponseCompression.MIN_SIZE)) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            exchange.sendResponseHeaders(responseCode, 0);
+            return ResponseCompression.wrap(exchange.getResponseBody(), encoding);
+        }
+        exchange.sendResponseHeaders(responseCode, Math.max(length, 0)); // 0 - длина неизвестна, chunked
+        return exchange.getResponseBody();
+    }
+
+    /**
+     * Отправляет объект клиенту в формате JSON. Объект кодируется сразу в UTF-8
+     * в переиспользуемый буфер, без промежуточной строки.
+     *
+     * @param exchange     Объект HttpExchange, представляющий HTTP-запрос.
+     * @param responseCode Код состояния ответа.
+     * @param value        Объект для сериализации.
+     * @throws IOException В случае ошибки ввода-вывода.
+     */
+    private void sendJson(HttpExchange exchange, int responseCode, Object value) throws IOException {
+        try (JsonBuffer body = codec.encode(value)) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            OutputStream os = openBody(exchange, responseCode, body.length());
+            body.writeTo(os);
+            os.close();
+        }
+    }
+
+    /**
+     * Отправляет сохраненный снимок полного списка с известной длиной, в нужной кодировке.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param snapshot Снимок списка.
+     * @param stamp    Версия таблицы снимка.
+     * @param etag     ETag этой версии.
+     * @throws IOException В случае ошибки ввода-вывода.
+     */
+    private void sendSnapshot(HttpExchange exchange, StudentListCache.Snapshot snapshot,
+                              TableVersions.Stamp stamp, String etag) throws IOException {
+        String encoding = ResponseCompression.negotiate(exchange);
+        if (snapshot.length() < ResponseCompression.MIN_SIZE) {
+            encoding = null;
+        }
+        byte[] body = snapshot.body(encoding);
+        setValidators(exchange, stamp, etag);
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        exchange.sendResponseHeaders(responseCode, response.getBytes().length);
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(200, body.length);
         OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
+        os.write(body);
         os.close();
     }
 
     /**
-     * Обрабатывает GET-запросы в зависимости от URL.
+     * Проверяет условные заголовки запроса (If-None-Match, а при его отсутствии If-Modified-Since)
+     * и, если у клиента актуальная версия, отправляет 304 без тела.
      *
-     * @param path    Путь запроса.
      * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
-     * @return Ответ в формате JSON.
+     * @param stamp    Текущая версия ресурса.
+     * @param etag     ETag текущей версии.
+     * @return true, если отправлен ответ 304.
+     * @throws IOException В случае ошибки ввода-вывода.
+     */
+    private boolean respondIfNotModified(HttpExchange exchange, TableVersions.Stamp stamp, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = etagMatches(ifNoneMatch, etag);
+        } else {
+            notModified = notModifiedSince(exchange.getRequestHeaders().getFirst("If-Modified-Since"), stamp);
+        }
+        if (!notModified) {
+            return false;
+        }
+        setValidators(exchange, stamp, etag);
+        exchange.sendResponseHeaders(304, -1);
+        return true;
+    }
+
+    /**
+     * Устанавливает заголовки ETag, Last-Modified и Cache-Control (клиент должен перепроверять версию).
+     */
+    private void setValidators(HttpExchange exchange, TableVersions.Stamp stamp, String etag) {
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(stamp.modifiedMillis())));
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+    }
+
+    /**
+     * Слабое сравнение ETag: список тегов через запятую или "*", префикс W/ не учитывается.
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Сравнивает If-Modified-Since с временем изменения (с точностью до секунды, как в HTTP-дате).
+     */
+    private static boolean notModifiedSince(String ifModifiedSince, TableVersions.Stamp stamp) {
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, HTTP_DATE).toInstant().getEpochSecond();
+            return stamp.modifiedMillis() / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            return false; // Некорректная дата игнорируется
+        }
+    }
+
+    /**
+     * Получает список студентов из базы данных с учетом параметров отбора и сортировки
+     * (group, name, birthFrom, birthTo, sort), которые выполняются в базе данных.
+     * Если указаны параметры after и/или limit, возвращает одну страницу (keyset-пагинация),
+     * иначе передает всех подходящих студентов потоком. Если версия таблицы совпадает с ETag клиента,
+     * возвращает 304 без обращения к базе. Если полный список этой версии уже сериализован,
+     * он отдается из {@link StudentListCache}.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Список студентов в формате JSON или null, если ответ уже отправлен потоком.
+     * @throws SQLException В случае ошибки базы данных.
+     * @throws IOException  В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String getStudents(HttpExchange exchange) throws SQLException, IOException {
+        // Версия берется до запроса к базе: при совпадении база не используется вовсе
+        TableVersions versions = studentService.getVersions();
+        TableVersions.Stamp stamp = versions.table();
+        String etag = versions.etag("t", stamp);
+        if (respondIfNotModified(exchange, stamp, etag)) {
+            return null;
+        }
+
+        Map<String, String> params = parseQuery(exchange);
+        StudentQuery query = parseStudentQuery(params);
+        if (params.containsKey("after") || params.containsKey("limit")) {
+            return getStudentsPage(exchange, params, query, stamp, etag);
+        }
+        if (query.isUnfiltered()) {
+            StudentListCache.Snapshot snapshot = listCache.get(stamp.version());
+            if (snapshot != null) {
+                sendSnapshot(exchange, snapshot, stamp, etag); // Без базы, сериализации и повторного сжатия
+                return null;
+            }
+        }
+        streamStudents(exchange, query, stamp, etag);
+        return null;
+    }
+
+    /**
+     * Возвращает одну страницу студентов. Если страница заполнена полностью и список упорядочен по id,
+     * в заголовке X-Next-After передается значение after для следующей страницы.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param params   Параметры запроса.
+     * @param query    Условия отбора и сортировка.
+     * @param stamp    Версия таблицы, прочитанная до запроса к базе.
+     * @param etag     ETag этой версии.
+     * @return null - ответ отправляется внутри метода.
+     * @throws SQLException В случае ошибки базы данных.
+     * @throws IOException  В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String getStudentsPage(HttpExchange exchange, Map<String, String> params, StudentQuery query,
+                                   TableVersions.Stamp stamp, String etag) throws SQLException, IOException {
+        int after = parseIntParam(params, "after", 0);
+        int limit = parseIntParam(params, "limit", DEFAULT_PAGE_SIZE);
+        if (after < 0 || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IOException("Parameter 'limit' must be between 1 and " + MAX_PAGE_SIZE + ", 'after' must not be negative.");
+        }
+        if (after > 0 && !query.isIdOrder()) {
+            throw new IOException("Parameter 'after' can only be used with the default sort order.");
+        }
+
+        List<Student> students = studentService.getStudentsPage(query, after, limit);
+        if (students.size() == limit && query.isIdOrder()) {
+            exchange.getResponseHeaders().set("X-Next-After", String.valueOf(students.get(students.size() - 1).getId()));
+        }
+        setValidators(exchange, stamp, etag);
+        sendJson(exchange, 200, students);
+        return null;
+    }
+
+    /**
+     * Передает всех студентов в ответ потоком (chunked), записывая JSON прямо в тело ответа.
+     * Заголовки отправляются только после успешного выполнения запроса к базе данных,
+     * чтобы ошибка подключения все еще могла вернуть код 500.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param query    Условия отбора и сортировка.
+     * @param stamp    Версия таблицы, прочитанная до запроса к базе.
+     * @param etag     ETag этой версии.
      * @throws SQLException В случае ошибки базы данных.
      * @throws IOException  В случае ошибки ввода-вывода.
      */
-    private String handleGetRequest(String path, HttpExchange exchange) throws SQLException, IOException {
-        return switch (path) {
-            case "/api/students/generateUniqueNumber" -> generateUniqueNumber(exchange);
-            case "/api/students/" -> getStudents();
-            default -> getStudentByUniqueNumber(exchange);
-        };
+    private void streamStudents(HttpExchange exchange, StudentQuery query,
+                                TableVersions.Stamp stamp, String etag) throws SQLException, IOException {
+        boolean cacheable = query.isUnfiltered(); // В кэш попадает только полный список
+        JsonWriter[] writer = new JsonWriter[1];
+        studentService.forEachStudent(query, student -> {
+            if (writer[0] == null) {
+                writer[0] = beginJsonStream(exchange, stamp, etag, cacheable);
+            }
+            codec.writeStudent(writer[0], student);
+        });
+        if (writer[0] == null) {
+            writer[0] = beginJsonStream(exchange, stamp, etag, cacheable);
+        }
+        writer[0].endArray();
+        writer[0].close();
+    }
+
+    /**
+     * Отправляет заголовки потокового ответа и открывает JSON-массив в теле ответа.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param stamp    Версия передаваемых данных.
+     * @param etag     ETag этой версии.
+     * @param cacheable Копировать ли список в кэш полного списка.
+     * @return JsonWriter, пишущий в тело ответа.
+     * @throws IOException В случае ошибки ввода-вывода.
+     */
+    private JsonWriter beginJsonStream(HttpExchange exchange, TableVersions.Stamp stamp, String etag,
+                                       boolean cacheable) throws IOException {
+        setValidators(exchange, stamp, etag);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        OutputStream body = openBody(exchange, 200, -1);
+        // Список попутно копируется в кэш, чтобы следующие запросы той же версии обошлись без базы
+        JsonWriter writer = codec.streamTo(cacheable ? listCache.capture(body, stamp.version()) : body);
+        writer.beginArray();
+        return writer;
+    }
+
+    /**
+     * Разбирает параметры строки запроса.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Параметры запроса (имя - значение).
+     */
+    private Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Ищет студентов по началу или части фамилии, имени и отчества: GET /api/students/search?q=...&limit=...
+     * Поиск выполняется по индексу в памяти, без обращения к базе. Пока индекс загружается при запуске,
+     * ответ содержит заголовок X-Search-Index: loading, а результаты могут быть неполными.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return null - ответ отправляется внутри метода.
+     * @throws IOException В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String searchStudents(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange);
+        String q = params.get("q");
+        if (isBlank(q)) {
+            throw new IOException("Parameter 'q' is required.");
+        }
+        int limit = parseIntParam(params, "limit", DEFAULT_SEARCH_LIMIT);
+        if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+            throw new IOException("Parameter 'limit' must be between 1 and " + MAX_SEARCH_LIMIT + ".");
+        }
+
+        List<StudentRecord> students = studentService.searchStudents(q, limit);
+        if (!studentService.getSearchIndex().isReady()) {
+            exchange.getResponseHeaders().set("X-Search-Index", "loading");
+        }
+        sendJson(exchange, 200, students);
+        return null;
     }
 
     /**
-     * Получает список всех студентов из базы данных.
+     * Возвращает статистику студентов: GET /api/students/stats?by=group - для каждой группы число студентов,
+     * распределение по году рождения и по возрасту в полных годах. Статистика ведется в памяти и обновляется
+     * при каждом изменении, база не читается. Пока данные загружаются при запуске, возвращается 503.
+     * ETag меняется с каждым изменением студентов и со сменой даты.
      *
-     * @return Список студентов в формате JSON.
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return null - ответ отправляется внутри метода.
+     * @throws IOException В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String getStatistics(HttpExchange exchange) throws IOException {
+        String by = parseQuery(exchange).getOrDefault("by", "group");
+        if (!"group".equals(by)) {
+            throw new IOException("Parameter 'by' must be 'group'.");
+        }
+        if (!studentService.getSearchIndex().isReady()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendResponse(exchange, 503, "{\"error\": \"Statistics are loading. Try again later.\"}");
+            return null;
+        }
+
+        StudentGroupStats.Snapshot stats = studentService.getGroupStats().snapshot();
+        String etag = "W/\"g" + stats.version() + "-" + stats.date() + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && etagMatches(ifNoneMatch, etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return null;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("by", by);
+        body.put("date", stats.date().toString());
+        body.put("total", stats.total());
+        body.put("groups", stats.groups());
+        sendJson(exchange, 200, body);
+        return null;
+    }
+
+    /**
+     * Выгружает студентов для других систем: GET /api/students/export?format=csv|ndjson
+     * (с теми же параметрами отбора и сортировки, что и список).
+     * <p>
+     * Строки читаются из базы страницами и сразу пишутся в ответ (chunked),
+     * поэтому память не зависит от размера таблицы; кэш списка не используется.
+     * Ответ сжимается, если клиент передал Accept-Encoding: gzip или deflate.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return null - ответ отправляется внутри метода.
      * @throws SQLException В случае ошибки базы данных.
+     * @throws IOException  В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String exportStudents(HttpExchange exchange) throws SQLException, IOException {
+        Map<String, String> params = parseQuery(exchange);
+        String format = params.getOrDefault("format", "csv");
+        if (!"csv".equals(format) && !"ndjson".equals(format)) {
+            throw new IOException("Parameter 'format' must be 'csv' or 'ndjson'.");
+        }
+        StudentQuery query = parseStudentQuery(params);
+
+        // Заголовки отправляются после выполнения запроса к базе, чтобы ошибка подключения вернула 500
+        ExportWriter[] writer = new ExportWriter[1];
+        studentService.forEachStudent(query, student -> {
+            if (writer[0] == null) {
+                writer[0] = beginExport(exchange, format);
+            }
+            writer[0].write(student);
+        });
+        if (writer[0] == null) {
+            writer[0] = beginExport(exchange, format);
+        }
+        writer[0].close();
+        return null;
+    }
+
+    /**
+     * Запись строк выгрузки в тело ответа.
+     */
+    private interface ExportWriter extends Closeable {
+        void write(Student student) throws IOException;
+    }
+
+    /**
+     * Отправляет заголовки выгрузки и открывает запись в тело ответа.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param format   csv или ndjson.
+     * @return Запись строк; ее закрытие завершает ответ.
+     * @throws IOException В случае ошибки ввода-вывода.
      */
-    private String getStudents() throws SQLException {
-        List<Student> students = studentService.getStudents();
-        return new Gson().toJson(students);
+    private ExportWriter beginExport(HttpExchange exchange, String format) throws IOException {
+        boolean csv = "csv".equals(format);
+        exchange.getResponseHeaders().set("Content-Type",
+                csv ? "text/csv; charset=UTF-8" : "application/x-ndjson; charset=UTF-8");
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"students." + format + "\"");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        OutputStream body = openBody(exchange, 200, -1);
+        if (!csv) {
+            NdjsonWriter lines = codec.streamLinesTo(body);
+            return new ExportWriter() {
+                @Override
+                public void write(Student student) throws IOException {
+                    lines.write(student);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    lines.close();
+                }
+            };
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), TRANSFER_BUFFER_SIZE);
+        StudentCsv.writeHeader(out);
+        return new ExportWriter() {
+            @Override
+            public void write(Student student) throws IOException {
+                StudentCsv.writeStudent(out, student);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+
+    /**
+     * Собирает условия отбора и сортировки списка из параметров запроса:
+     * group - точное название группы, name - начало фамилии или имени,
+     * birthFrom/birthTo - диапазон дат рождения (YYYY-MM-DD, включительно),
+     * sort - поле сортировки (например lastName, с минусом - по убыванию).
+     *
+     * @param params Параметры запроса.
+     * @return Условия отбора.
+     * @throws IOException Если значение параметра некорректно.
+     */
+    private StudentQuery parseStudentQuery(Map<String, String> params) throws IOException {
+        StudentQuery query = new StudentQuery();
+        query.setGroupName(nonBlank(params.get("group")));
+        query.setNamePrefix(nonBlank(params.get("name")));
+        query.setBirthFrom(parseDateParam(params, "birthFrom"));
+        query.setBirthTo(parseDateParam(params, "birthTo"));
+
+        String sort = nonBlank(params.get("sort"));
+        if (sort != null) {
+            boolean descending = sort.startsWith("-");
+            StudentQuery.SortField field = StudentQuery.SortField.fromParam(descending ? sort.substring(1) : sort);
+            if (field == null) {
+                throw new IOException("Parameter 'sort' must be one of id, firstName, lastName, birthDate, groupName, uniqueNumber"
+                        + " (prefix with '-' for descending order).");
+            }
+            query.setSortField(field);
+            query.setDescending(descending);
+        }
+        return query;
+    }
+
+    private static String nonBlank(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+
+    /**
+     * Читает параметр-дату в формате YYYY-MM-DD.
+     *
+     * @param params Параметры запроса.
+     * @param name   Имя параметра.
+     * @return Дата или null, если параметр не указан.
+     * @throws IOException Если значение не является датой.
+     */
+    private LocalDate parseDateParam(Map<String, String> params, String name) throws IOException {
+        String value = nonBlank(params.get(name));
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IOException("Parameter '" + name + "' must be a date in YYYY-MM-DD format.");
+        }
+    }
+
+    /**
+     * Читает целочисленный параметр запроса.
+     *
+     * @param query        Параметры запроса.
+     * @param name         Имя параметра.
+     * @param defaultValue Значение, если параметр не указан.
+     * @return Значение параметра.
+     * @throws IOException Если значение не является числом.
+     */
+    private int parseIntParam(Map<String, String> query, String name, int defaultValue) throws IOException {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Parameter '" + name + "' must be an integer.");
+        }
     }
 
     /**
@@ -133,90 +774,479 @@ public class StudentHandler implements HttpHandler {
      */
     private String addStudent(HttpExchange exchange) throws IOException, SQLException {
         Student student = parseStudentFromRequest(exchange);
+        String problem = validateStudent(student); // Как и в очереди: запись в базе не должна расходиться с индексом
+        if (problem != null) {
+            throw new IOException(problem);
+        }
+        if (studentService.getWriteBehind() != null) {
+            return acceptWrite(exchange, StudentWrite.Type.ADD, student);
+        }
         studentService.addStudent(student);
         return "{\"message\": \"Student added successfully\"}";
     }
 
     /**
-     * Парсит объект студента из тела запроса.
+     * Пакетно добавляет студентов из тела запроса.
+     * <p>
+     * Тело - JSON-массив студентов или NDJSON (Content-Type: application/x-ndjson, один студент на строку).
+     * Тело разбирается потоком, студенты вставляются порциями (параметр chunkSize), каждая порция -
+     * в отдельной транзакции. В ответе - статус каждой строки: created, conflict (номер занят) или invalid.
      *
      * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
-     * @return Объект Student.
+     * @return null - ответ отправляется внутри метода.
+     * @throws IOException В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String importStudents(HttpExchange exchange) throws IOException {
+        int chunkSize = parseChunkSize(parseQuery(exchange));
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        boolean ndjson = contentType != null && contentType.contains("ndjson");
+
+        BatchImportResult result = new BatchImportResult();
+        int responseCode = 200;
+        try (JsonReader reader = codec.newReader(exchange.getRequestBody())) {
+            if (!ndjson) {
+                reader.beginArray();
+            }
+            importRows(jsonSource(reader, ndjson), chunkSize, result, () -> { });
+        } catch (IllegalStateException | IOException e) {
+            // Уже добавленные порции остаются в базе, клиент узнает о них из результата
+            responseCode = 400;
+            result.setError("Malformed request body: " + e.getMessage());
+        } catch (SQLException e) {
+            responseCode = 500;
+            result.setError("Database error: " + e.getMessage());
+            logger.log(Level.SEVERE, "Database error during batch import: ", e);
+        }
+
+        result.getResults().sort(Comparator.comparingInt(BatchImportResult.RowResult::getIndex));
+        sendJson(exchange, responseCode, result);
+        return null;
+    }
+
+    /**
+     * Загружает студентов из файла: POST /api/students/import?format=csv|ndjson.
+     * <p>
+     * Формат берется из параметра format, иначе из Content-Type (text/csv или application/x-ndjson).
+     * Тело может быть сжато (Content-Encoding: gzip или deflate, см. RequestDecompressionFilter). Строки разбираются потоком
+     * и вставляются порциями (chunkSize), поэтому память не зависит от размера файла.
+     * <p>
+     * Ответ - NDJSON: после каждых import.progressRows строк отправляется строка с ходом загрузки
+     * (processed, created, conflicts, invalid), последняя строка - итог со счетчиками, ошибкой (если была)
+     * и первыми проблемными строками. Если ошибка случилась до первого отчета, возвращается код 400 или 500.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return null - ответ отправляется внутри метода.
+     * @throws IOException В случае некорректных параметров или ошибки ввода-вывода.
+     */
+    private String importFile(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange);
+        int chunkSize = parseChunkSize(params);
+        String format = params.get("format");
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (format == null && contentType != null) {
+            format = contentType.contains("csv") ? "csv" : contentType.contains("ndjson") ? "ndjson" : null;
+        }
+        if (!"csv".equals(format) && !"ndjson".equals(format)) {
+            throw new IOException("Parameter 'format' must be 'csv' or 'ndjson'.");
+        }
+
+        BatchImportResult result = new BatchImportResult(true, MAX_REPORTED_ROWS);
+        OutputStream[] progress = new OutputStream[1]; // Тело ответа после первого отчета
+        int[] reported = {0};
+        int responseCode = 200;
+        try (InputStream body = exchange.getRequestBody()) {
+            Runnable onProgress = () -> {
+                if (result.getTotal() - reported[0] >= IMPORT_PROGRESS_ROWS) {
+                    reported[0] = result.getTotal();
+                    reportProgress(exchange, progress, result);
+                }
+            };
+            if ("csv".equals(format)) {
+                StudentCsv.StudentCsvReader reader = StudentCsv.newReader(
+                        new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), TRANSFER_BUFFER_SIZE));
+                importRows(new StudentSource() {
+                    @Override
+                    public boolean hasNext() throws IOException {
+                        return reader.hasNext();
+                    }
+
+                    @Override
+                    public Student next() throws IOException {
+                        return reader.next();
+                    }
+                }, chunkSize, result, onProgress);
+            } else {
+                importRows(jsonSource(codec.newReader(body), true), chunkSize, result, onProgress);
+            }
+        } catch (IllegalStateException | IOException e) {
+            responseCode = 400;
+            result.setError("Malformed request body: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Не удалось отправить отчет: клиент отключился
+        } catch (SQLException e) {
+            responseCode = 500;
+            result.setError("Database error: " + e.getMessage());
+            logger.log(Level.SEVERE, "Database error during file import: ", e);
+        }
+        logger.info("Imported " + format + ": " + result.getTotal() + " rows, " + result.getCreated() + " created, "
+                + result.getConflicts() + " conflicts, " + result.getInvalid() + " invalid");
+
+        if (progress[0] == null) {
+            sendJson(exchange, responseCode, result);
+            return null;
+        }
+        try (OutputStream out = progress[0]; JsonBuffer line = codec.encode(result)) {
+            line.writeTo(out);
+            out.write('\n');
+        }
+        return null;
+    }
+
+    /**
+     * Отправляет строку с ходом загрузки. Перед первым отчетом отправляет заголовки ответа 200:
+     * отчеты идут без сжатия, чтобы клиент получал их сразу.
+     *
+     * @throws UncheckedIOException Если не удалось записать отчет.
+     */
+    private void reportProgress(HttpExchange exchange, OutputStream[] progress, BatchImportResult result) {
+        try {
+            if (progress[0] == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=UTF-8");
+                exchange.sendResponseHeaders(200, 0);
+                progress[0] = exchange.getResponseBody();
+            }
+            String line = "{\"processed\":" + result.getTotal() + ",\"created\":" + result.getCreated()
+                    + ",\"conflicts\":" + result.getConflicts() + ",\"invalid\":" + result.getInvalid() + "}\n";
+            progress[0].write(line.getBytes(StandardCharsets.US_ASCII));
+            progress[0].flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Источник строк пакетной загрузки.
+     */
+    private interface StudentSource {
+        boolean hasNext() throws IOException;
+
+        Student next() throws IOException;
+    }
+
+    /**
+     * @param ndjson true - несколько JSON-значений подряд (NDJSON), иначе элементы уже открытого массива
+     * @return источник студентов из JSON
+     */
+    private StudentSource jsonSource(JsonReader reader, boolean ndjson) {
+        reader.setLenient(ndjson); // NDJSON - несколько JSON-значений подряд
+        return new StudentSource() {
+            @Override
+            public boolean hasNext() throws IOException {
+                return ndjson ? reader.peek() != JsonToken.END_DOCUMENT : reader.hasNext();
+            }
+
+            @Override
+            public Student next() throws IOException {
+                return codec.readStudent(reader);
+            }
+        };
+    }
+
+    /**
+     * Проверяет строки источника и вставляет корректные порциями по chunkSize, каждая порция -
+     * в отдельной транзакции. Статус каждой строки попадает в результат.
+     *
+     * @param onProgress Вызывается после каждой строки.
+     */
+    private void importRows(StudentSource source, int chunkSize, BatchImportResult result, Runnable onProgress)
+            throws IOException, SQLException {
+        List<Student> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (source.hasNext()) {
+            Student student = source.next();
+            String problem = validateStudent(student);
+            if (problem != null) {
+                result.addRow(index, student != null ? student.getUniqueNumber() : null, BatchImportResult.INVALID, problem);
+            } else {
+                chunk.add(student);
+                chunkIndexes.add(index);
+                if (chunk.size() == chunkSize) {
+                    flushChunk(chunk, chunkIndexes, result);
+                }
+            }
+            index++;
+            onProgress.run();
+        }
+        flushChunk(chunk, chunkIndexes, result);
+    }
+
+    private int parseChunkSize(Map<String, String> params) throws IOException {
+        int chunkSize = parseIntParam(params, "chunkSize", IMPORT_CHUNK_SIZE);
+        if (chunkSize <= 0 || chunkSize > MAX_IMPORT_CHUNK_SIZE) {
+            throw new IOException("Parameter 'chunkSize' must be between 1 and " + MAX_IMPORT_CHUNK_SIZE + ".");
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Добавляет накопленную порцию студентов и записывает статусы строк в результат.
+     *
+     * @param chunk        Студенты порции.
+     * @param chunkIndexes Номера строк студентов во входных данных.
+     * @param result       Результат пакетного добавления.
+     * @throws SQLException В случае ошибки базы данных.
+     */
+    private void flushChunk(List<Student> chunk, List<Integer> chunkIndexes, BatchImportResult result) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        boolean[] inserted = studentService.addStudents(chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            result.addRow(chunkIndexes.get(i), chunk.get(i).getUniqueNumber(),
+                    inserted[i] ? BatchImportResult.CREATED : BatchImportResult.CONFLICT,
+                    inserted[i] ? null : "Unique number already exists.");
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    /**
+     * Проверяет обязательные поля студента.
+     *
+     * @param student Студент из запроса.
+     * @return Описание ошибки или null, если студент корректен.
+     */
+    private String validateStudent(Student student) {
+        if (student == null) {
+            return "Student data is empty.";
+        }
+        if (isBlank(student.getUniqueNumber())) {
+            return "Unique number is required.";
+        }
+        if (!isDigits(student.getUniqueNumber())) {
+            return NUMERIC_UNIQUE_NUMBER; // Иначе студент недоступен по /api/students/{uniqueNumber:long}
+        }
+        if (isBlank(student.getFirstName()) || isBlank(student.getLastName())) {
+            return "First name and last name are required.";
+        }
+        if (student.getBirthDate() != null) {
+            try {
+                LocalDate.parse(student.getBirthDate());
+            } catch (DateTimeParseException e) {
+                return "Birth date must be in format YYYY-MM-DD.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет частичное обновление студента: хотя бы одно поле и корректная дата рождения.
+     *
+     * @param changes Обновляемые поля из запроса.
+     * @return Описание ошибки или null, если обновление корректно.
+     */
+    private String validateChanges(Student changes) {
+        if (changes.getFirstName() == null && changes.getLastName() == null && changes.getPatronymic() == null
+                && changes.getBirthDate() == null && changes.getGroupName() == null) {
+            return "Request body must contain at least one field to update.";
+        }
+        if (changes.getBirthDate() != null) {
+            try {
+                LocalDate.parse(changes.getBirthDate());
+            } catch (DateTimeParseException e) {
+                return "Birth date must be in format YYYY-MM-DD.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ставит операцию в очередь отложенной записи и отвечает 202 Accepted с номером операции.
+     * Заголовок Location указывает, где узнать состояние операции.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param type     Вид операции.
+     * @param student  Данные студента.
+     * @return null - ответ отправляется внутри метода.
      * @throws IOException В случае ошибки ввода-вывода.
      */
+    private String acceptWrite(HttpExchange exchange, StudentWrite.Type type, Student student) throws IOException {
+        long id = studentService.submitWrite(type, student);
+        exchange.getResponseHeaders().set("Location", OPERATIONS_PATH + id);
+        sendResponse(exchange, 202, "{\"operationId\": " + id + ", \"status\": \"" + WriteStatus.QUEUED + "\"}");
+        return null;
+    }
+
+    /**
+     * Возвращает состояние отложенной операции записи: GET /api/students/operations/{id}.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param id       Номер операции.
+     * @return null - ответ отправляется внутри метода.
+     * @throws IOException В случае ошибки ввода-вывода.
+     */
+    private String getOperationStatus(HttpExchange exchange, long id) throws IOException {
+        WriteStatus status = studentService.getWriteStatus(id);
+        if (status == null) {
+            sendResponse(exchange, 404, "{\"error\": \"Operation not found\"}");
+        } else {
+            sendJson(exchange, 200, status);
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Парсит объект студента из тела запроса, читая JSON прямо из потока.
+     *
+     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @return Объект Student.
+     * @throws IOException Если тело пустое, некорректно или произошла ошибка ввода-вывода.
+     */
     private Student parseStudentFromRequest(HttpExchange exchange) throws IOException {
-        InputStream is = exchange.getRequestBody();
-        String requestBody = new String(is.readAllBytes());
-        return new Gson().fromJson(requestBody, Student.class);
+        Student student = codec.readStudent(exchange.getRequestBody());
+        if (student == null) {
+            throw new IOException("Request body must contain a student.");
+        }
+        return student;
     }
 
     /**
      * Удаляет студента по уникальному номеру.
      *
-     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
-     * @return Сообщение об успешном удалении студента в формате JSON.
+     * @param exchange     Объект HttpExchange, представляющий HTTP-запрос.
+     * @param uniqueNumber Уникальный номер студента из пути.
+     * @return Сообщение об успешном удалении студента в формате JSON или null, если операция поставлена в очередь.
      * @throws SQLException В случае ошибки базы данных.
+     * @throws IOException  В случае ошибки ввода-вывода.
      */
-    private String deleteStudent(HttpExchange exchange) throws SQLException {
-        String uniqueNumber = extractUniqueNumberFromPath(exchange);
-        if (uniqueNumber != null) {
-            studentService.deleteStudent(uniqueNumber);
+    private String deleteStudent(HttpExchange exchange, String uniqueNumber) throws SQLException, IOException {
+        int expectedVersion = expectedVersionOf(exchange);
+        if (expectedVersion == UNMATCHABLE_VERSION) {
+            sendResponse(exchange, 412, VERSION_CONFLICT);
+            return null;
+        }
+        if (expectedVersion != StudentDAO.ANY_VERSION) {
+            studentService.deleteStudent(uniqueNumber, expectedVersion); // Условное удаление - сразу, не в очередь
             return "{\"message\": \"Student deleted successfully\"}";
-        } else {
-            return "{\"error\": \"Unique number is required\"}";
         }
+        if (studentService.getWriteBehind() != null) {
+            Student student = new Student();
+            student.setUniqueNumber(uniqueNumber);
+            return acceptWrite(exchange, StudentWrite.Type.DELETE, student);
+        }
+        studentService.deleteStudent(uniqueNumber);
+        return "{\"message\": \"Student deleted successfully\"}";
     }
 
     /**
      * Обновляет информацию о студенте.
      *
-     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
+     * @param exchange     Объект HttpExchange, представляющий HTTP-запрос.
+     * @param uniqueNumber Уникальный номер студента из пути.
      * @return Сообщение об успешном обновлении студента в формате JSON.
      * @throws IOException  В случае ошибки ввода-вывода.
      * @throws SQLException В случае ошибки базы данных.
      */
-    private String updateStudent(HttpExchange exchange) throws IOException, SQLException {
-        String uniqueNumber = extractUniqueNumberFromPath(exchange);
-        if (uniqueNumber == null || uniqueNumber.isEmpty()) {
-            throw new IOException("Unique number is missing in the request URL.");
-        }
-
+    private String updateStudent(HttpExchange exchange, String uniqueNumber) throws IOException, SQLException {
+        int expectedVersion = expectedVersionOf(exchange);
         Student studentData = parseStudentFromRequest(exchange);
         studentData.setUniqueNumber(uniqueNumber);
-        studentService.updateStudent(studentData);
+        studentData.setVersion(0); // Версию задает только If-Match
+        String problem = validateChanges(studentData);
+        if (problem != null) {
+            throw new IOException(problem);
+        }
+        if (expectedVersion == UNMATCHABLE_VERSION) {
+            sendResponse(exchange, 412, VERSION_CONFLICT);
+            return null;
+        }
+        if (expectedVersion == StudentDAO.ANY_VERSION && studentService.getWriteBehind() != null) {
+            return acceptWrite(exchange, StudentWrite.Type.UPDATE, studentData);
+        }
+        // Условное обновление выполняется сразу: результат сравнения версий нужен в ответе
+        studentService.updateStudent(studentData, expectedVersion);
+        if (studentData.getVersion() > 0) {
+            TableVersions versions = studentService.getVersions();
+            exchange.getResponseHeaders().set("ETag", versions.rowEtag(studentData.getVersion(), versions.row(uniqueNumber)));
+        }
         return "{\"message\": \"Student updated successfully\"}";
     }
 
     /**
-     * Извлекает уникальный номер студента из пути запроса.
+     * Разбирает заголовок If-Match запроса на изменение или удаление студента.
+     * Совпасть может только сильный тег строки, который выдает GET /api/students/{uniqueNumber}
+     * ("3-1718000000000-42", см. {@link TableVersions#rowEtag}), или тег из одной версии ("3").
+     * Сравнивается только версия строки в базе - первая часть тега.
      *
      * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
-     * @return Уникальный номер студента.
+     * @return Ожидаемая версия строки; {@link StudentDAO#ANY_VERSION}, если заголовка нет или он равен "*";
+     * {@link #UNMATCHABLE_VERSION}, если тег слабый или не является версией и совпасть не может.
+     * @throws IOException Если в заголовке несколько тегов.
      */
-    private String extractUniqueNumberFromPath(HttpExchange exchange) {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-        return pathParts[pathParts.length - 1];
+    private static int expectedVersionOf(HttpExchange exchange) throws IOException {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return StudentDAO.ANY_VERSION;
+        }
+        String tag = ifMatch.trim();
+        if (tag.indexOf(',') >= 0) {
+            throw new IOException("If-Match must contain a single entity tag.");
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return UNMATCHABLE_VERSION; // Слабые теги (W/"...") для If-Match не подходят
+        }
+        String opaque = tag.substring(1, tag.length() - 1);
+        int dash = opaque.indexOf('-');
+        try {
+            int version = Integer.parseInt(dash >= 0 ? opaque.substring(0, dash) : opaque);
+            return version > 0 ? version : UNMATCHABLE_VERSION;
+        } catch (NumberFormatException e) {
+            return UNMATCHABLE_VERSION;
+        }
     }
 
     /**
      * Получает информацию о студенте по уникальному номеру.
+     * ETag - версия строки в базе (ее принимает If-Match при изменении и удалении) вместе с версией строки
+     * в памяти, поэтому студент, удаленный и добавленный заново, не совпадет с тегом прежнего.
+     * Если ETag совпадает с тегом клиента, возвращает 304 без тела; студент при этом обычно берется из кэша.
      *
-     * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
-     * @return Информация о студенте в формате JSON.
+     * @param exchange     Объект HttpExchange, представляющий HTTP-запрос.
+     * @param uniqueNumber Уникальный номер студента из пути.
+     * @return null - ответ отправляется внутри метода.
      * @throws IOException  В случае ошибки ввода-вывода.
      * @throws SQLException В случае ошибки базы данных.
      */
-    private String getStudentByUniqueNumber(HttpExchange exchange) throws IOException, SQLException {
-        String uniqueNumber = extractUniqueNumberFromPath(exchange);
+    private String getStudentByUniqueNumber(HttpExchange exchange, String uniqueNumber) throws IOException, SQLException {
+        TableVersions versions = studentService.getVersions();
+        TableVersions.Stamp stamp = versions.row(uniqueNumber); // Берется до чтения: см. TableVersions
         Student student = studentService.getStudentsByUniqueNumber(uniqueNumber);
 
         if (student != null) {
-            return new Gson().toJson(student);
+            String etag = student.getVersion() > 0 ? versions.rowEtag(student.getVersion(), stamp) : versions.etag("r", stamp);
+            if (respondIfNotModified(exchange, stamp, etag)) {
+                return null; // Клиентская копия актуальна
+            }
+            setValidators(exchange, stamp, etag);
+            sendJson(exchange, 200, student);
         } else {
-            exchange.sendResponseHeaders(404, -1);
-            return "{\"error\": \"Student not found\"}";
+            sendResponse(exchange, 404, "{\"error\": \"Student not found\"}");
         }
+        return null;
     }
 
     /**
@@ -224,15 +1254,10 @@ public class StudentHandler implements HttpHandler {
      *
      * @param exchange Объект HttpExchange, представляющий HTTP-запрос.
      * @return Уникальный номер в формате JSON.
-     * @throws IOException  В случае ошибки ввода-вывода.
      * @throws SQLException В случае ошибки базы данных.
      */
-    private String generateUniqueNumber(HttpExchange exchange) throws IOException, SQLException {
-        String uniqueNumber;
-        do {
-            uniqueNumber = String.valueOf((int) (Math.random() * 1_000_000));
-        } while (studentService.isUniqueNumberExists(uniqueNumber));
-
+    private String generateUniqueNumber(HttpExchange exchange) throws SQLException {
+        String uniqueNumber = studentService.generateUniqueNumber();
         return "{\"uniqueNumber\": \"" + uniqueNumber + "\"}";
     }
 }
@@ -0,0 +1,164 @@
+package Handler;
+
+import config.AppConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Последний сериализованный полный список студентов вместе со сжатыми копиями.
+ * <p>
+ * Снимок привязан к версии таблицы: любая запись через StudentDAO увеличивает версию,
+ * и снимок перестает использоваться. Пока версия не изменилась, повторные GET /api/students/
+ * отдаются из памяти без запроса к базе, сериализации и сжатия (gzip и deflate сжимаются
+ * по одному разу, при первом запросе с такой кодировкой).
+ * <p>
+ * Снимок собирается попутно с потоковой отправкой списка первому клиенту. Списки больше
+ * listCache.maxBytes байт не сохраняются и всегда передаются потоком из базы.
+ */
+public class StudentListCache {
+    static final int MAX_BYTES = AppConfig.getInt("listCache.maxBytes", 8 * 1024 * 1024);
+
+    private volatile Snapshot snapshot;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Снимок списка для одной версии таблицы.
+     */
+    static final class Snapshot {
+        private final long version;
+        private final byte[] identity;
+        private byte[] gzip;
+        private byte[] deflate;
+
+        private Snapshot(long version, byte[] identity) {
+            this.version = version;
+            this.identity = identity;
+        }
+
+        /**
+         * Возвращает тело в нужной кодировке; сжатая копия создается один раз.
+         *
+         * @param encoding gzip, deflate или null для несжатого тела
+         * @return тело ответа
+         */
+        synchronized byte[] body(String encoding) {
+            if (encoding == null) {
+                return identity;
+            }
+            if (ResponseCompression.GZIP.equals(encoding)) {
+                if (gzip == null) {
+                    gzip = ResponseCompression.compress(identity, encoding);
+                }
+                return gzip;
+            }
+            if (deflate == null) {
+                deflate = ResponseCompression.compress(identity, encoding);
+            }
+            return deflate;
+        }
+
+        int length() {
+            return identity.length;
+        }
+    }
+
+    /**
+     * @param version текущая версия таблицы
+     * @return снимок этой версии или null
+     */
+    Snapshot get(long version) {
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Начинает сбор снимка: возвращенный поток пишет данные в out и одновременно копирует их в память.
+     * Закрытие потока сохраняет снимок, если он поместился в лимит и его версия не устарела.
+     *
+     * @param out     поток ответа (возможно, уже сжимающий)
+     * @param version версия таблицы, прочитанная до запроса к базе
+     * @return поток для записи JSON
+     */
+    OutputStream capture(OutputStream out, long version) {
+        return new CapturingStream(out, version);
+    }
+
+    private void store(long version, byte[] identity) {
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (current == null || current.version < version) {
+                snapshot = new Snapshot(version, identity);
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return размер сохраненного несжатого списка в байтах
+     */
+    public long getSizeBytes() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.length();
+    }
+
+    private class CapturingStream extends FilterOutputStream {
+        private final long version;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(8 * 1024); // null - лимит превышен
+
+        CapturingStream(OutputStream out, long version) {
+            super(out);
+            this.version = version;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() {
+            if (copy.size() > MAX_BYTES) {
+                copy = null; // Слишком большой список не кэшируем
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close(); // Исключение при отправке клиенту - снимок может быть неполным, не сохраняем
+            if (copy != null) {
+                byte[] identity = copy.toByteArray();
+                copy = null;
+                store(version, identity);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Настройки приложения из внешних источников, без пересборки.
+ * <p>
+ * Значение ключа (например, db.pool.maxSize) ищется по порядку:
+ * - системное свойство: -Ddb.pool.maxSize=20
+ * - переменная окружения: имя в верхнем регистре с '_' вместо '.', например DB_POOL_MAXSIZE=20
+ * - файл настроек (формат properties): config.file, по умолчанию application.properties в рабочем каталоге
+ * - значение по умолчанию в коде
+ * <p>
+ * Файл можно менять на работающем сервере: после {@link #startWatching()} изменения файла перечитываются,
+ * а подписчики {@link #addReloadListener(Consumer)} получают имена изменившихся ключей и применяют те
+ * настройки, которые можно менять без перезапуска. Ключи, заданные системным свойством или переменной
+ * окружения, важнее файла, поэтому их изменение в файле ни на что не влияет.
+ */
+public final class AppConfig {
+    private static final Logger logger = Logger.getLogger(AppConfig.class.getName());
+    private static final String DEFAULT_FILE = "application.properties";
+    private static final long RELOAD_DELAY_MS = 200; // Редактор может записывать файл в несколько приемов
+
+    private static volatile Properties fileProperties = readOrEmpty(getFile());
+    private static final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+    private static Thread watcher;
+
+    private AppConfig() {
+    }
+
+    /**
+     * @return путь к файлу настроек (config.file из системного свойства или окружения, иначе application.properties)
+     */
+    public static Path getFile() {
+        String file = System.getProperty("config.file");
+        if (file == null) {
+            file = System.getenv(envName("config.file"));
+        }
+        return Path.of(file != null ? file : DEFAULT_FILE);
+    }
+
+    /**
+     * @param key          имя настройки
+     * @param defaultValue значение, если настройка нигде не задана
+     * @return значение настройки
+     */
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(envName(key));
+        }
+        if (value == null) {
+            value = fileProperties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * @return целое значение настройки; некорректное значение заменяется значением по умолчанию с предупреждением
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid integer for " + key + ": '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return целое значение настройки; некорректное значение заменяется значением по умолчанию с предупреждением
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid integer for " + key + ": '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return true, если настройка равна "true" (без учета регистра), иначе значение по умолчанию, если она не задана
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Подписывает на изменения файла настроек.
+     *
+     * @param listener получает имена ключей, значение которых в файле изменилось
+     */
+    public static void addReloadListener(Consumer<Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Перечитывает файл настроек и сообщает подписчикам об изменившихся ключах.
+     *
+     * @return имена ключей, добавленных, измененных или удаленных в файле
+     */
+    public static synchronized Set<String> reload() {
+        Properties previous = fileProperties;
+        Properties current = read(getFile());
+        if (current == null) {
+            return Set.of(); // Файл не прочитан (например, записан не полностью): остаются прежние значения
+        }
+        Set<String> changed = new HashSet<>();
+        for (String key : current.stringPropertyNames()) {
+            if (!current.getProperty(key).equals(previous.getProperty(key))) {
+                changed.add(key);
+            }
+        }
+        for (String key : previous.stringPropertyNames()) {
+            if (!current.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        fileProperties = current;
+        if (!changed.isEmpty()) {
+            logger.info("Settings reloaded from " + getFile() + ", changed: " + changed);
+            for (Consumer<Set<String>> listener : listeners) {
+                try {
+                    listener.accept(changed);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Failed to apply reloaded settings", e);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Запускает фоновое отслеживание файла настроек (WatchService на его каталог).
+     * Повторные вызовы ничего не делают.
+     */
+    public static synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        Path file = getFile().toAbsolutePath();
+        Path directory = file.getParent();
+        WatchService service;
+        try {
+            service = directory.getFileSystem().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Settings file is not watched: " + e.getMessage());
+            return;
+        }
+        watcher = new Thread(() -> watch(service, file.getFileName()), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static void watch(WatchService service, Path fileName) {
+        try (service) {
+            while (true) {
+                WatchKey key = service.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    relevant |= fileName.equals(event.context());
+                }
+                if (relevant) {
+                    Thread.sleep(RELOAD_DELAY_MS);
+                    reload();
+                }
+                if (!key.reset()) {
+                    logger.warning("Settings directory is no longer watched");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException | IOException e) {
+            logger.log(Level.WARNING, "Settings watcher stopped: " + e.getMessage());
+        }
+    }
+
+    private static Properties readOrEmpty(Path file) {
+        Properties properties = read(file);
+        return properties != null ? properties : new Properties();
+    }
+
+    /**
+     * @return настройки из файла (пустые, если файла нет) или null, если файл не удалось прочитать
+     */
+    private static Properties read(Path file) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            // Файл необязателен: остаются системные свойства, окружение и значения по умолчанию
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Failed to read settings file " + file + ": " + e.getMessage());
+            return null;
+        }
+        return properties;
+    }
+
+    static String envName(String key) {
+        return key.replace('.', '_').toUpperCase(Locale.ROOT);
+    }
+}
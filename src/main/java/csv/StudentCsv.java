@@ -0,0 +1,245 @@
+package csv;
+
+import model.Student;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Формат CSV для выгрузки и загрузки студентов (RFC 4180).
+ * <p>
+ * Первая строка - заголовок с именами столбцов (как поля JSON: uniqueNumber, lastName, firstName,
+ * patronymic, birthDate, groupName). При загрузке порядок столбцов берется из заголовка,
+ * неизвестные столбцы пропускаются, пустое значение означает отсутствие поля.
+ * Значения с запятой, кавычкой или переводом строки заключаются в кавычки, кавычка удваивается.
+ */
+public final class StudentCsv {
+
+    /** Столбцы выгрузки по порядку */
+    public static final List<String> COLUMNS = List.of(
+            "uniqueNumber", "lastName", "firstName", "patronymic", "birthDate", "groupName");
+
+    private StudentCsv() {}
+
+    /**
+     * Записывает строку заголовка.
+     *
+     * @param out поток символов
+     * @throws IOException в случае ошибки записи
+     */
+    public static void writeHeader(Writer out) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write("\r\n");
+    }
+
+    /**
+     * Записывает студента одной строкой в порядке {@link #COLUMNS}.
+     *
+     * @param out     поток символов
+     * @param student студент
+     * @throws IOException в случае ошибки записи
+     */
+    public static void writeStudent(Writer out, Student student) throws IOException {
+        writeField(out, student.getUniqueNumber());
+        out.write(',');
+        writeField(out, student.getLastName());
+        out.write(',');
+        writeField(out, student.getFirstName());
+        out.write(',');
+        writeField(out, student.getPatronymic());
+        out.write(',');
+        writeField(out, student.getBirthDate());
+        out.write(',');
+        writeField(out, student.getGroupName());
+        out.write("\r\n");
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    /**
+     * Создает потоковое чтение студентов: строки разбираются по одной по мере поступления данных.
+     *
+     * @param in поток символов (лучше буферизованный)
+     * @return чтение, первая строка которого - заголовок
+     * @throws IOException если заголовка нет или в нем нет столбца uniqueNumber
+     */
+    public static StudentCsvReader newReader(Reader in) throws IOException {
+        return new StudentCsvReader(in);
+    }
+
+    /**
+     * Потоковое чтение студентов из CSV.
+     */
+    public static final class StudentCsvReader {
+        private final Reader in;
+        private final String[] columns; // Имя поля студента для каждого столбца (null - столбец пропускается)
+        private final List<String> fields = new ArrayList<>(COLUMNS.size());
+        private final StringBuilder field = new StringBuilder();
+        private int line = 1; // Номер текущей строки файла, для сообщений об ошибках
+        private int next = -2; // Прочитанный заранее символ (-2 - нет)
+        private boolean rowReady; // В fields прочитана строка, которую еще не вернул next()
+
+        private StudentCsvReader(Reader in) throws IOException {
+            this.in = in;
+            if (peek() == '\uFEFF') {
+                read(); // Метка порядка байтов, которую добавляют табличные редакторы
+            }
+            if (!readRow()) {
+                throw new IOException("CSV header is missing.");
+            }
+            columns = new String[fields.size()];
+            boolean hasUniqueNumber = false;
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i) == null ? "" : fields.get(i).trim();
+                for (String column : COLUMNS) {
+                    if (column.toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                        columns[i] = column;
+                    }
+                }
+                hasUniqueNumber |= "uniqueNumber".equals(columns[i]);
+            }
+            if (!hasUniqueNumber) {
+                throw new IOException("CSV header must contain column 'uniqueNumber'.");
+            }
+        }
+
+        /**
+         * Проверяет, есть ли еще студенты. Пустые строки пропускаются.
+         *
+         * @return true, если следующая строка с данными прочитана
+         * @throws IOException если строка разобрана не полностью (незакрытая кавычка) или ошибка чтения
+         */
+        public boolean hasNext() throws IOException {
+            while (!rowReady) {
+                if (!readRow()) {
+                    return false;
+                }
+                rowReady = fields.size() > 1 || fields.get(0) != null;
+            }
+            return true;
+        }
+
+        /**
+         * Читает следующего студента.
+         *
+         * @return студент с полями из столбцов заголовка
+         * @throws IOException если строка разобрана не полностью или ошибка чтения
+         * @throws NoSuchElementException если данные закончились
+         */
+        public Student next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            rowReady = false;
+            Student student = new Student();
+            for (int i = 0; i < fields.size() && i < columns.length; i++) {
+                String value = fields.get(i);
+                if (columns[i] == null || value == null) {
+                    continue;
+                }
+                switch (columns[i]) {
+                    case "uniqueNumber" -> student.setUniqueNumber(value);
+                    case "lastName" -> student.setLastName(value);
+                    case "firstName" -> student.setFirstName(value);
+                    case "patronymic" -> student.setPatronymic(value);
+                    case "birthDate" -> student.setBirthDate(value);
+                    case "groupName" -> student.setGroupName(value);
+                    default -> { }
+                }
+            }
+            return student;
+        }
+
+        /**
+         * Читает одну запись в {@link #fields}; пустое значение без кавычек становится null.
+         *
+         * @return false, если данные закончились
+         */
+        private boolean readRow() throws IOException {
+            fields.clear();
+            if (peek() < 0) {
+                return false;
+            }
+            while (true) {
+                field.setLength(0);
+                boolean quoted = false;
+                int c = read();
+                if (c == '"') {
+                    quoted = true;
+                    int startLine = line;
+                    while (true) {
+                        c = read();
+                        if (c < 0) {
+                            throw new IOException("Unterminated quoted CSV value starting at line " + startLine + ".");
+                        }
+                        if (c == '"') {
+                            if (peek() != '"') {
+                                break;
+                            }
+                            read(); // Удвоенная кавычка
+                        } else if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                    c = read();
+                }
+                while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                    field.append((char) c); // Символы после закрывающей кавычки сохраняются как есть
+                    c = read();
+                }
+                fields.add(field.length() == 0 && !quoted ? null : field.toString());
+                if (c == ',') {
+                    continue;
+                }
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (c >= 0) {
+                    line++;
+                }
+                return true;
+            }
+        }
+
+        private int peek() throws IOException {
+            if (next == -2) {
+                next = in.read();
+            }
+            return next;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            next = -2;
+            return c;
+        }
+    }
+}
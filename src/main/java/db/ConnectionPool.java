@@ -0,0 +1,709 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ограниченный потокобезопасный пул соединений с базой данных.
+ * <p>
+ * Выдает соединения-обертки: вызов {@link Connection#close()} на них не закрывает физическое соединение,
+ * а возвращает его в пул. Поэтому код DAO продолжает использовать try-with-resources как раньше.
+ * <p>
+ * Возможности:
+ * - ограничение числа соединений (min/max) и ожидание свободного соединения с таймаутом
+ * - проверка соединения при выдаче
+ * - закрытие лишних простаивающих соединений
+ * - обнаружение утечек (соединение удерживается дольше порога): при выдаче запоминаются только время
+ *   и поток-заемщик, стек этого потока снимается лишь при срабатывании порога
+ * - кэш подготовленных операторов у каждого соединения (LRU, размер из настроек)
+ * - метрики: активные, простаивающие, время ожидания, таймауты, попадания в кэш операторов
+ * <p>
+ * Кэшируются операторы prepareStatement(sql) и prepareStatement(sql, autoGeneratedKeys): close() на них
+ * очищает параметры и возвращает оператор в кэш соединения, а не закрывает его. Повторный prepare того же
+ * SQL на этом соединении не разбирает запрос заново ни в драйвере, ни (при серверной подготовке) в базе.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+    private static final int MAX_CACHED_SQL_LENGTH = 2048; // Длинные запросы (большие списки IN) не кэшируются
+
+    private final PoolSettings settings;
+    private final ResizableSemaphore permits; // Одно разрешение на каждое выданное соединение
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // Простаивающие соединения (LIFO), под блокировкой idle
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet(); // Выданные соединения
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Метрики
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * Создает пул с указанными настройками. Минимальное число соединений открывается в фоне,
+     * поэтому недоступность базы данных при старте не мешает созданию пула.
+     *
+     * @param settings настройки пула
+     */
+    public ConnectionPool(PoolSettings settings) {
+        if (settings.getMaxSize() <= 0 || settings.getMinSize() < 0 || settings.getMinSize() > settings.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + settings.getMinSize() + ", max=" + settings.getMaxSize());
+        }
+        this.settings = settings;
+        this.permits = new ResizableSemaphore(settings.getMaxSize());
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0,
+                settings.getHousekeepingPeriodMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Берет соединение из пула. Соединение нужно вернуть вызовом close().
+     *
+     * @return соединение из пула
+     * @throws SQLTimeoutException если свободное соединение не появилось за время ожидания
+     * @throws SQLException если пул закрыт или не удалось открыть новое соединение
+     */
+    public Connection getConnection() throws SQLException {
+        return getConnection(null);
+    }
+
+    /**
+     * Берет соединение из пула и вызывает onRelease, когда заемщик его закроет (после возврата в пул).
+     * Так вызывающий узнает о завершении работы с соединением, например о моменте после коммита записи.
+     *
+     * @param onRelease действие после закрытия соединения или null
+     * @return соединение из пула
+     * @throws SQLTimeoutException если свободное соединение не появилось за время ожидания
+     * @throws SQLException если пул закрыт или не удалось открыть новое соединение
+     */
+    public Connection getConnection(Runnable onRelease) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + settings.getBorrowTimeoutMillis()
+                        + " ms waiting for a database connection (active=" + getActiveCount() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(openPhysical());
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrower = Thread.currentThread();
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrowCount.increment();
+            return pooled.newHandle(onRelease);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Достает из пула простаивающее соединение и проверяет его. Неисправные соединения закрываются.
+     *
+     * @return исправное соединение или null, если простаивающих нет
+     */
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (isValid(candidate.physical)) {
+                return candidate;
+            }
+            destroy(candidate);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(settings.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = DriverManager.getConnection(settings.getUrl(), settings.getUser(), settings.getPassword());
+        createdCount.increment();
+        return connection;
+    }
+
+    /**
+     * Возвращает соединение в пул после закрытия обертки.
+     * Незакоммиченная транзакция откатывается, режим autocommit восстанавливается.
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.borrower = null;
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.resetStatements();
+                pooled.lastUsedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    // После уменьшения пула (resize) лишние соединения закрываются при возврате
+                    reusable = getActiveCount() + idle.size() < settings.getMaxSize();
+                    if (reusable) {
+                        idle.offerFirst(pooled);
+                    }
+                }
+            }
+            if (!reusable) {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Discarding broken connection: ", e);
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyedCount.increment();
+        try {
+            pooled.physical.close(); // Закрывает и кэшированные операторы
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing connection: ", e);
+        }
+        pooled.statements.clear();
+    }
+
+    /**
+     * Фоновая очистка: закрывает лишние простаивающие соединения, поддерживает минимальный размер
+     * и сообщает о соединениях, удерживаемых дольше порога утечки.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        try {
+            evictIdle();
+            reportLeaks();
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Connection pool housekeeping failed: ", e);
+        }
+    }
+
+    private void evictIdle() {
+        long deadline = System.currentTimeMillis() - settings.getIdleTimeoutMillis();
+        List<PooledConnection> victims = new ArrayList<>();
+        synchronized (idle) {
+            // Самые старые соединения лежат в конце очереди
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && getTotalCount() > settings.getMinSize()) {
+                PooledConnection pooled = it.next();
+                if (pooled.lastUsedAt > deadline) {
+                    break;
+                }
+                it.remove();
+                victims.add(pooled);
+            }
+        }
+        destroyAll(victims); // Закрытие идет по сети, поэтому вне блокировки idle
+    }
+
+    private void destroyAll(List<PooledConnection> victims) {
+        for (PooledConnection pooled : victims) {
+            destroy(pooled);
+        }
+    }
+
+    private void reportLeaks() {
+        long threshold = settings.getLeakThresholdMillis();
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                pooled.leakReported = true;
+                leakCount.increment();
+                Thread borrower = pooled.borrower;
+                Exception site = null;
+                if (borrower != null) {
+                    site = new Exception("Borrower thread " + borrower.getName() + " is now here");
+                    site.setStackTrace(borrower.getStackTrace()); // Стек снимается только для подозрительных соединений
+                }
+                logger.log(Level.WARNING, "Possible connection leak: connection held for "
+                        + (now - pooled.borrowedAt) + " ms", site);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && getTotalCount() < settings.getMinSize()) {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                PooledConnection pooled = new PooledConnection(openPhysical());
+                pooled.lastUsedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.offerLast(pooled);
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Unable to pre-open database connection: " + e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Закрывает пул и все простаивающие соединения. Выданные соединения закрываются при возврате.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> victims;
+        synchronized (idle) {
+            victims = new ArrayList<>(idle);
+            idle.clear();
+        }
+        destroyAll(victims);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** @return число выданных соединений */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /** @return число простаивающих соединений */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /** @return общее число открытых соединений */
+    public int getTotalCount() {
+        return getActiveCount() + getIdleCount();
+    }
+
+    /** @return примерное число потоков, ожидающих соединение */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxSize() {
+        return settings.getMaxSize();
+    }
+
+    /**
+     * @return настройки пула; таймауты и порог утечки можно менять на работающем пуле
+     */
+    public PoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Меняет размеры работающего пула. При уменьшении максимума лишние простаивающие соединения
+     * закрываются сразу, а новые соединения не выдаются, пока выданных больше нового лимита.
+     *
+     * @param minSize минимальное число соединений
+     * @param maxSize максимальное число соединений
+     * @throws IllegalArgumentException если размеры некорректны
+     */
+    public synchronized void resize(int minSize, int maxSize) {
+        if (maxSize <= 0 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        int delta = maxSize - settings.getMaxSize();
+        settings.setMinSize(minSize);
+        settings.setMaxSize(maxSize);
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+            List<PooledConnection> victims = new ArrayList<>();
+            synchronized (idle) {
+                while (getTotalCount() > maxSize && !idle.isEmpty()) {
+                    victims.add(idle.pollLast());
+                }
+            }
+            destroyAll(victims);
+        }
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.sum();
+    }
+
+    /** @return суммарное время ожидания соединений в наносекундах */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    /** @return среднее время ожидания соединения в миллисекундах */
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        return borrows == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    /** @return максимальное время ожидания соединения в миллисекундах */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /** @return число prepareStatement, обслуженных кэшем операторов */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /** @return число prepareStatement, для которых оператор пришлось готовить заново */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{active=" + getActiveCount() + ", idle=" + getIdleCount()
+                + ", waiting=" + getWaitingCount() + ", timeouts=" + getTimeoutCount()
+                + ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) + "}";
+    }
+
+    /**
+     * Ключ кэша операторов: текст запроса и режим возврата сгенерированных ключей.
+     */
+    private record StatementKey(String sql, int autoGeneratedKeys) {}
+
+    /**
+     * Физическое соединение и его состояние в пуле.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        // Подготовленные операторы в порядке использования (LRU). Соединение принадлежит одному
+        // потоку за раз (выданное - заемщику, простаивающее - пулу), поэтому синхронизация не нужна.
+        private final LinkedHashMap<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        private volatile long borrowedAt;
+        private volatile long lastUsedAt;
+        private volatile Thread borrower; // Поток-заемщик, для сообщения об утечке
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Создает обертку над физическим соединением для одной выдачи.
+         * После close() обертка становится недействительной, даже если соединение снова выдано.
+         */
+        private Connection newHandle(Runnable onRelease) {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(onRelease));
+        }
+
+        /**
+         * Выдает оператор из кэша или готовит новый и кладет его в кэш.
+         * Если такой же оператор уже открыт в этой выдаче, готовится отдельный некэшируемый оператор.
+         */
+        private PreparedStatement prepare(Handle handle, Connection proxy, String sql, int autoGeneratedKeys)
+                throws SQLException {
+            int capacity = settings.getStatementCacheSize();
+            if (capacity <= 0 || sql.length() > MAX_CACHED_SQL_LENGTH) {
+                return prepareUncached(sql, autoGeneratedKeys);
+            }
+            StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.inUse) {
+                return prepareUncached(sql, autoGeneratedKeys);
+            }
+            if (cached == null) {
+                statementCacheMisses.increment();
+                cached = new CachedStatement(key, prepareUncached(sql, autoGeneratedKeys));
+                statements.put(key, cached);
+                evictStatements(capacity);
+            } else {
+                statementCacheHits.increment();
+            }
+            cached.inUse = true;
+            return cached.newHandle(handle, proxy);
+        }
+
+        private PreparedStatement prepareUncached(String sql, int autoGeneratedKeys) throws SQLException {
+            return autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        /**
+         * Закрывает давно не использованные операторы сверх емкости кэша. Открытые операторы не трогает.
+         */
+        private void evictStatements(int capacity) {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > capacity && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (!eldest.inUse) {
+                    it.remove();
+                    eldest.closeQuietly();
+                }
+            }
+        }
+
+        /**
+         * Возвращает в кэш операторы, которые заемщик не закрыл до возврата соединения.
+         */
+        private void resetStatements() {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (it.hasNext()) {
+                CachedStatement cached = it.next();
+                if (cached.inUse && !cached.reset()) {
+                    it.remove();
+                }
+            }
+        }
+
+        /**
+         * Обертка над физическим соединением для одной выдачи.
+         */
+        private final class Handle implements InvocationHandler {
+            private final Runnable onRelease; // null - без действия
+            private volatile boolean released;
+
+            private Handle(Runnable onRelease) {
+                this.onRelease = onRelease;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!released) {
+                            released = true;
+                            try {
+                                release(PooledConnection.this);
+                            } finally {
+                                if (onRelease != null) {
+                                    onRelease.run();
+                                }
+                            }
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return released || physical.isClosed();
+                    }
+                    case "toString" -> {
+                        return "Pooled" + physical;
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    default -> {
+                        if (released) {
+                            throw new SQLException("Connection has been returned to the pool.");
+                        }
+                        if (isCacheablePrepare(method)) {
+                            int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                            return prepare(this, (Connection) proxy, (String) args[0], autoGeneratedKeys);
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                }
+            }
+
+            private static boolean isCacheablePrepare(Method method) {
+                // prepareStatement(String) и prepareStatement(String, int autoGeneratedKeys)
+                return method.getName().equals("prepareStatement")
+                        && (method.getParameterCount() == 1
+                        || method.getParameterCount() == 2 && method.getParameterTypes()[1] == int.class);
+            }
+        }
+
+        /**
+         * Подготовленный оператор в кэше соединения.
+         */
+        private final class CachedStatement {
+            private final StatementKey key;
+            private final PreparedStatement statement;
+            private boolean inUse; // Выдан заемщику и еще не закрыт
+
+            private CachedStatement(StatementKey key, PreparedStatement statement) {
+                this.key = key;
+                this.statement = statement;
+            }
+
+            /**
+             * Создает обертку, у которой close() возвращает оператор в кэш.
+             * Обертка недействительна после своего close() и после возврата соединения в пул.
+             */
+            private PreparedStatement newHandle(Handle connection, Connection connectionProxy) {
+                InvocationHandler handler = new InvocationHandler() {
+                    private boolean closed;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        switch (method.getName()) {
+                            case "close" -> {
+                                if (!closed) {
+                                    closed = true;
+                                    if (!connection.released && !reset()) {
+                                        statements.remove(key);
+                                    }
+                                }
+                                return null;
+                            }
+                            case "isClosed" -> {
+                                return closed || connection.released || statement.isClosed();
+                            }
+                            case "getConnection" -> {
+                                return connectionProxy;
+                            }
+                            case "toString" -> {
+                                return "Cached" + statement;
+                            }
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            default -> {
+                                if (closed || connection.released) {
+                                    throw new SQLException("Statement has been closed.");
+                                }
+                                try {
+                                    return method.invoke(statement, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            }
+                        }
+                    }
+                };
+                return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, handler);
+            }
+
+            /**
+             * Очищает параметры и пачку, чтобы следующий заемщик получил оператор в исходном состоянии.
+             *
+             * @return false, если оператор неисправен и закрыт
+             */
+            private boolean reset() {
+                try {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    statement.clearWarnings();
+                    inUse = false;
+                    return true;
+                } catch (SQLException e) {
+                    closeQuietly();
+                    return false;
+                }
+            }
+
+            private void closeQuietly() {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    logger.log(Level.FINE, "Error closing statement: ", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Семафор, число разрешений которого можно уменьшить (для {@link #resize(int, int)}).
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+        private ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Выбор базы данных для запроса: записи идут в основную базу, чтения - на реплики.
+ * <p>
+ * - реплика выбирается по кругу (ROUND_ROBIN) или с наименьшей задержкой проверки (LEAST_LATENCY)
+ * - реплики периодически проверяются; недоступная реплика исключается до следующей успешной проверки,
+ *   а чтение при ошибке подключения к реплике повторяется на основной базе
+ * - read-your-writes: после записи чтения того же клиента (см. {@link RequestContext}) в течение
+ *   stickyMillis идут в основную базу
+ * - чтения, результат которых попадет в общий кэш или получит ETag, после любой записи в течение
+ *   stickyMillis тоже идут в основную базу (см. {@link #pinIfRecentlyWritten()}): иначе отстающая
+ *   реплика закрепила бы в кэше устаревшие данные для всех клиентов
+ * Без реплик все соединения берутся из основного пула.
+ */
+public class DataSourceRouter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(DataSourceRouter.class.getName());
+    private static final int MAX_STICKY_CLIENTS = 10_000; // После этого истекшие записи удаляются
+    private static final double LATENCY_WEIGHT = 0.2; // Вес новой задержки в скользящем среднем
+
+    /**
+     * Способ выбора реплики для чтения.
+     */
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_LATENCY
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private volatile long stickyMillis;
+    private final ScheduledExecutorService healthChecker; // null без реплик
+    private final AtomicInteger next = new AtomicInteger(); // Счетчик для выбора по кругу
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>(); // Клиент -> до какого момента читать основную базу
+    private volatile long lastWriteMillis;
+
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder replicaFailovers = new LongAdder();
+
+    /**
+     * Создает маршрутизатор без реплик: все соединения берутся из основного пула.
+     *
+     * @param primary пул основной базы
+     */
+    public DataSourceRouter(ConnectionPool primary) {
+        this(primary, List.of(), Selection.ROUND_ROBIN, 0, 0);
+    }
+
+    /**
+     * @param primary             пул основной базы
+     * @param replicas            пулы реплик
+     * @param selection           способ выбора реплики
+     * @param healthCheckMillis   период проверки реплик (0 - без фоновой проверки)
+     * @param stickyMillis        сколько после записи читать основную базу
+     */
+    public DataSourceRouter(ConnectionPool primary, List<ConnectionPool> replicas, Selection selection,
+                            long healthCheckMillis, long stickyMillis) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        for (ConnectionPool pool : replicas) {
+            this.replicas.add(new Replica(pool));
+        }
+        this.selection = selection;
+        this.stickyMillis = stickyMillis;
+        if (!replicas.isEmpty() && healthCheckMillis > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "db-replica-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckMillis, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    /**
+     * @return пул основной базы
+     */
+    public ConnectionPool getPrimary() {
+        return primary;
+    }
+
+    /**
+     * @return пулы основной базы и всех реплик
+     */
+    public List<ConnectionPool> getPools() {
+        List<ConnectionPool> pools = new ArrayList<>(replicas.size() + 1);
+        pools.add(primary);
+        for (Replica replica : replicas) {
+            pools.add(replica.pool);
+        }
+        return pools;
+    }
+
+    /**
+     * @param stickyMillis сколько после записи читать основную базу
+     */
+    public void setStickyMillis(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    /**
+     * Берет соединение основной базы для записи и запоминает момент записи для read-your-writes.
+     * Момент записи отмечается и при выдаче соединения, и при его закрытии: запись становится видна
+     * после коммита, и долгая запись (порция загрузки, повторы отложенной записи) не должна
+     * исчерпать окно stickyMillis еще до коммита.
+     *
+     * @return соединение основной базы
+     * @throws SQLException если не удалось получить соединение
+     */
+    public Connection getWriteConnection() throws SQLException {
+        String client = RequestContext.getClientId(); // Соединение могут закрыть и в другом потоке
+        markWritten(client);
+        return primary.getConnection(() -> markWritten(client));
+    }
+
+    private void markWritten(String client) {
+        long now = System.currentTimeMillis();
+        lastWriteMillis = now;
+        if (client != null && !replicas.isEmpty()) {
+            if (stickyUntil.size() >= MAX_STICKY_CLIENTS) {
+                stickyUntil.values().removeIf(until -> until <= now);
+            }
+            stickyUntil.put(client, now + stickyMillis);
+        }
+    }
+
+    /**
+     * Берет соединение основной базы для чтения, которое должно видеть последние записи
+     * (например, проверка перед записью).
+     *
+     * @return соединение основной базы
+     * @throws SQLException если не удалось получить соединение
+     */
+    public Connection getPrimaryConnection() throws SQLException {
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Берет соединение для чтения: с реплики, если чтение не закреплено за основной базой
+     * и есть исправная реплика, иначе с основной базы.
+     *
+     * @return соединение для чтения
+     * @throws SQLException если не удалось получить соединение и с основной базы
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty() || RequestContext.isPinnedToPrimary() || isSticky(RequestContext.getClientId())) {
+            return getPrimaryConnection();
+        }
+        Replica replica = choose();
+        if (replica == null) {
+            return getPrimaryConnection();
+        }
+        try {
+            Connection connection = replica.pool.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            replica.healthy = false; // До следующей успешной проверки
+            replicaFailovers.increment();
+            logger.log(Level.WARNING, "Replica unavailable, reading from primary: " + e.getMessage());
+            return getPrimaryConnection();
+        }
+    }
+
+    /**
+     * Закрепляет чтения текущего потока за основной базой, если запись была недавно (в течение stickyMillis).
+     * Нужно для чтений, результат которых кэшируется или помечается версией таблицы.
+     *
+     * @return закрепление, которое нужно закрыть
+     */
+    public RequestContext.Pin pinIfRecentlyWritten() {
+        return RequestContext.pinToPrimaryIf(!replicas.isEmpty()
+                && System.currentTimeMillis() - lastWriteMillis < stickyMillis);
+    }
+
+    private boolean isSticky(String client) {
+        if (client == null) {
+            return false;
+        }
+        Long until = stickyUntil.get(client);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    private Replica choose() {
+        int size = replicas.size();
+        if (selection == Selection.LEAST_LATENCY) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.healthy && (best == null || replica.latencyNanos < best.latencyNanos)) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет все реплики: доступность соединения и задержку ответа.
+     * Вызывается периодически в фоне; можно вызвать и напрямую.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            boolean valid;
+            try (Connection connection = replica.pool.getConnection()) {
+                valid = connection.isValid(2);
+            } catch (SQLException e) {
+                valid = false;
+            }
+            if (valid) {
+                long latency = System.nanoTime() - start;
+                replica.latencyNanos = replica.latencyNanos == 0 ? latency
+                        : (long) (replica.latencyNanos * (1 - LATENCY_WEIGHT) + latency * LATENCY_WEIGHT);
+            }
+            if (replica.healthy != valid) {
+                logger.log(valid ? Level.INFO : Level.WARNING, "Replica " + replicas.indexOf(replica)
+                        + (valid ? " is healthy again" : " failed health check"));
+            }
+            replica.healthy = valid;
+        }
+        long now = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= now);
+    }
+
+    /** @return число реплик */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /** @return число реплик, прошедших последнюю проверку */
+    public int getHealthyReplicaCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /** @return число чтений с основной базы */
+    public long getPrimaryReadCount() {
+        return primaryReads.sum();
+    }
+
+    /** @return число чтений с реплик */
+    public long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    /** @return число чтений, перенаправленных на основную базу из-за ошибки реплики */
+    public long getReplicaFailoverCount() {
+        return replicaFailovers.sum();
+    }
+
+    /**
+     * Останавливает проверку реплик и закрывает все пулы.
+     */
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+        primary.close();
+    }
+
+    /**
+     * Пул реплики и результаты ее проверки.
+     */
+    private static final class Replica {
+        private final ConnectionPool pool;
+        private volatile boolean healthy = true; // До первой проверки реплика считается исправной
+        private volatile long latencyNanos; // Скользящее среднее задержки проверки
+
+        private Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+    }
+}
@@ -1,41 +1,124 @@
 package db;
 
+import config.AppConfig;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Класс для управления подключением к базе данных.
+ * Соединения выдаются из общего пула {@link ConnectionPool}.
+ * Параметры подключения и размеры пула задаются настройками {@link AppConfig}
+ * (db.url, db.user, db.password, db.pool.minSize, db.pool.maxSize, db.pool.borrowTimeoutMs,
+ * db.pool.idleTimeoutMs, db.pool.leakThresholdMs, db.pool.statementCacheSize).
+ * Размеры пула, таймауты и db.replicas.stickyMs применяются без перезапуска (см. {@link #reloadSettings()}).
+ * <p>
+ * Операторы готовятся на сервере (useServerPrepStmts): разбор SQL выполняется один раз на соединение,
+ * а сами операторы кэширует пул, поэтому собственный кэш драйвера (cachePrepStmts) не включен.
+ * Серверный курсор (useCursorFetch) не нужен: потоковые чтения выполняются отдельными запросами
+ * по страницам из db.fetchSize строк (см. {@link StudentDAO#forEachStudent(model.StudentQuery, RowHandler)}).
+ * <p>
+ * Реплики для чтения задаются свойством db.replicas (JDBC URL через запятую, те же пользователь и пароль
+ * и размеры пула), выбор реплики - db.replicas.selection (roundRobin или leastLatency), период проверки -
+ * db.replicas.healthCheckMs, окно read-your-writes после записи - db.replicas.stickyMs.
  */
 public class DatabaseConfig {
-    private static final String URL = "jdbc:mysql://localhost:3306/StudentDB";
+    private static final String URL = "jdbc:mysql://localhost:3306/StudentDB?rewriteBatchedStatements=true&useServerPrepStmts=true";
     private static final String USER = "root"; //Естественно не лучшее решение для хранения логина и пароля, но для тестового задания я сделал так
     private static final String PASSWORD = "root";
+    private static final long DEFAULT_STICKY_MS = 2_000;
+
+    private static DataSourceRouter router;
+
+    /**
+     * Возвращает общий пул соединений основной базы, создавая его при первом обращении.
+     *
+     * @return пул соединений
+     */
+    public static synchronized ConnectionPool getPool() {
+        return getRouter().getPrimary();
+    }
 
-    private static Connection connection;
+    /**
+     * Возвращает общий маршрутизатор основной базы и реплик, создавая его при первом обращении.
+     *
+     * @return маршрутизатор соединений
+     */
+    public static synchronized DataSourceRouter getRouter() {
+        if (router == null || router.getPrimary().isClosed()) {
+            PoolSettings settings = loadSettings(AppConfig.get("db.url", URL));
+            List<ConnectionPool> replicas = new ArrayList<>();
+            for (String url : AppConfig.get("db.replicas", "").split(",")) {
+                if (!url.isBlank()) {
+                    replicas.add(new ConnectionPool(loadSettings(url.trim())));
+                }
+            }
+            DataSourceRouter.Selection selection = "leastLatency".equals(AppConfig.get("db.replicas.selection", "roundRobin"))
+                    ? DataSourceRouter.Selection.LEAST_LATENCY : DataSourceRouter.Selection.ROUND_ROBIN;
+            router = new DataSourceRouter(new ConnectionPool(settings), replicas, selection,
+                    AppConfig.getLong("db.replicas.healthCheckMs", 5_000), AppConfig.getLong("db.replicas.stickyMs", DEFAULT_STICKY_MS));
+        }
+        return router;
+    }
 
     /**
-     * Получает соединение с базой данных.
-     * Если соединение уже установлено, возвращает его.
+     * Применяет к открытым пулам настройки, которые можно менять без перезапуска: db.pool.minSize,
+     * db.pool.maxSize, db.pool.borrowTimeoutMs, db.pool.idleTimeoutMs, db.pool.leakThresholdMs
+     * и db.replicas.stickyMs. Адрес базы, реплики и размер кэша операторов меняются только перезапуском.
+     *
+     * @throws IllegalArgumentException если новые размеры пула некорректны (пулы не меняются)
+     */
+    public static synchronized void reloadSettings() {
+        if (router == null) {
+            return;
+        }
+        PoolSettings defaults = new PoolSettings();
+        int minSize = AppConfig.getInt("db.pool.minSize", defaults.getMinSize());
+        int maxSize = AppConfig.getInt("db.pool.maxSize", defaults.getMaxSize());
+        for (ConnectionPool pool : router.getPools()) {
+            pool.resize(minSize, maxSize);
+            PoolSettings settings = pool.getSettings();
+            settings.setBorrowTimeoutMillis(AppConfig.getLong("db.pool.borrowTimeoutMs", defaults.getBorrowTimeoutMillis()));
+            settings.setIdleTimeoutMillis(AppConfig.getLong("db.pool.idleTimeoutMs", defaults.getIdleTimeoutMillis()));
+            settings.setLeakThresholdMillis(AppConfig.getLong("db.pool.leakThresholdMs", defaults.getLeakThresholdMillis()));
+        }
+        router.setStickyMillis(AppConfig.getLong("db.replicas.stickyMs", DEFAULT_STICKY_MS));
+    }
+
+    /**
+     * Получает соединение с базой данных из пула.
+     * Соединение нужно закрыть после использования - оно вернется в пул.
      *
      * @return Объект Connection для работы с БД
      * @throws SQLException если не удалось подключиться к БД
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
-        }
-        return connection;
+        return getPool().getConnection();
     }
 
     /**
-     * Закрывает соединение с базой данных, если оно открыто.
-     *
-     * @throws SQLException если возникла ошибка при закрытии соединения
+     * Закрывает пулы соединений с основной базой и репликами, если они открыты.
      */
-    public static void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+    public static synchronized void closeConnection() {
+        if (router != null) {
+            router.close();
+            router = null;
         }
     }
+
+    private static PoolSettings loadSettings(String url) {
+        PoolSettings settings = new PoolSettings(
+                url,
+                AppConfig.get("db.user", USER),
+                AppConfig.get("db.password", PASSWORD));
+        settings.setMinSize(AppConfig.getInt("db.pool.minSize", settings.getMinSize()));
+        settings.setMaxSize(AppConfig.getInt("db.pool.maxSize", settings.getMaxSize()));
+        settings.setBorrowTimeoutMillis(AppConfig.getLong("db.pool.borrowTimeoutMs", settings.getBorrowTimeoutMillis()));
+        settings.setIdleTimeoutMillis(AppConfig.getLong("db.pool.idleTimeoutMs", settings.getIdleTimeoutMillis()));
+        settings.setLeakThresholdMillis(AppConfig.getLong("db.pool.leakThresholdMs", settings.getLeakThresholdMillis()));
+        settings.setStatementCacheSize(AppConfig.getInt("db.pool.statementCacheSize", settings.getStatementCacheSize()));
+        return settings;
+    }
 }
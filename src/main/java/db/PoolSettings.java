@@ -0,0 +1,125 @@
+package db;
+
+/**
+ * Настройки пула соединений с базой данных.
+ * Значения по умолчанию подходят для локального запуска, их можно переопределить через сеттеры.
+ * Размеры пула, таймауты и порог утечки пул читает при каждом использовании, поэтому их можно менять
+ * на работающем пуле (размеры - через {@link ConnectionPool#resize(int, int)}).
+ */
+public class PoolSettings {
+
+    private String url; // JDBC URL базы данных
+    private String user; // Имя пользователя БД
+    private String password; // Пароль пользователя БД
+    private volatile int minSize = 2; // Минимальное число соединений, которое пул держит открытыми
+    private volatile int maxSize = 10; // Максимальное число соединений (выданных и простаивающих)
+    private volatile long borrowTimeoutMillis = 5_000; // Сколько ждать свободное соединение, прежде чем сдаться
+    private volatile long idleTimeoutMillis = 600_000; // Через сколько простоя лишнее соединение закрывается
+    private volatile long leakThresholdMillis = 60_000; // Через сколько удержания соединение считается утечкой (0 - отключено)
+    private int validationTimeoutSeconds = 2; // Таймаут проверки соединения при выдаче
+    private long housekeepingPeriodMillis = 30_000; // Период фоновой очистки пула
+    private int statementCacheSize = 64; // Подготовленных операторов в кэше каждого соединения (0 - кэш отключен)
+
+    public PoolSettings() {}
+
+    /**
+     * Создает настройки для указанной базы данных со значениями пула по умолчанию.
+     *
+     * @param url JDBC URL базы данных.
+     * @param user Имя пользователя.
+     * @param password Пароль.
+     */
+    public PoolSettings(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getHousekeepingPeriodMillis() {
+        return housekeepingPeriodMillis;
+    }
+
+    public void setHousekeepingPeriodMillis(long housekeepingPeriodMillis) {
+        this.housekeepingPeriodMillis = housekeepingPeriodMillis;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
@@ -0,0 +1,80 @@
+package db;
+
+/**
+ * Сведения о текущем запросе, нужные для выбора базы данных при чтении.
+ * Хранятся в потоке, который выполняет запрос: обработчик HTTP вызывает {@link #begin(String)} в начале
+ * и {@link #end()} в конце запроса.
+ * <p>
+ * - идентификатор клиента: после записи чтения этого клиента идут в основную базу (read-your-writes)
+ * - закрепление за основной базой: чтения внутри {@link #pinToPrimary()} не уходят на реплики
+ */
+public final class RequestContext {
+    private static final ThreadLocal<String> clientId = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+
+    private RequestContext() {
+    }
+
+    /**
+     * Закрепление чтений за основной базой; close() восстанавливает прежнее состояние.
+     */
+    public interface Pin extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Pin NOT_PINNED = () -> {};
+
+    /**
+     * Начинает запрос клиента.
+     *
+     * @param client идентификатор клиента (например, заголовок X-Client-Id или адрес), может быть null
+     */
+    public static void begin(String client) {
+        clientId.set(client);
+    }
+
+    /**
+     * Завершает запрос и очищает контекст потока.
+     */
+    public static void end() {
+        clientId.remove();
+        pinned.remove();
+    }
+
+    /**
+     * @return идентификатор клиента текущего запроса или null вне запроса
+     */
+    public static String getClientId() {
+        return clientId.get();
+    }
+
+    /**
+     * Закрепляет чтения текущего потока за основной базой до закрытия возвращенного объекта.
+     * Используется так: {@code try (RequestContext.Pin pin = RequestContext.pinToPrimary()) { ... }}
+     *
+     * @return закрепление, которое нужно закрыть
+     */
+    public static Pin pinToPrimary() {
+        if (isPinnedToPrimary()) {
+            return NOT_PINNED; // Уже закреплено внешним вызовом
+        }
+        pinned.set(Boolean.TRUE);
+        return pinned::remove;
+    }
+
+    /**
+     * @param pin закреплять ли чтения
+     * @return закрепление (при pin == false ничего не меняет)
+     */
+    static Pin pinToPrimaryIf(boolean pin) {
+        return pin ? pinToPrimary() : NOT_PINNED;
+    }
+
+    /**
+     * @return true, если чтения текущего потока закреплены за основной базой
+     */
+    public static boolean isPinnedToPrimary() {
+        return pinned.get() != null;
+    }
+}
@@ -0,0 +1,20 @@
+package db;
+
+import java.io.IOException;
+
+/**
+ * Обработчик строк, получаемых из базы данных по одной при потоковом чтении.
+ *
+ * @param <T> тип строки
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+
+    /**
+     * Обрабатывает очередную строку.
+     *
+     * @param row строка результата
+     * @throws IOException если не удалось обработать строку (например, записать ее в ответ)
+     */
+    void handle(T row) throws IOException;
+}
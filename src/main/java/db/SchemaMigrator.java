@@ -0,0 +1,168 @@
+package db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Применяет к базе данных SQL-миграции из ресурсов db/migration.
+ * <p>
+ * Каждая миграция применяется один раз; номера примененных миграций хранятся в таблице schema_version.
+ * Новые миграции нужно добавлять в конец списка MIGRATIONS. Одновременно запущенные экземпляры
+ * применяют миграции по очереди под именованной блокировкой базы (см. {@link #lock(Connection)}).
+ */
+public class SchemaMigrator {
+    private static final Logger logger = Logger.getLogger(SchemaMigrator.class.getName());
+
+    private static final String[] MIGRATIONS = {
+            "V1__create_students.sql",
+            "V2__unique_number_sequence.sql",
+            "V3__student_indexes.sql",
+            "V4__students_unique_number.sql",
+            "V5__students_version.sql",
+    };
+
+    private static final String LOCK_NAME = "StudentManagerApp.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final ConnectionPool pool;
+
+    public SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Применяет все еще не примененные миграции по порядку.
+     *
+     * @return число примененных миграций
+     * @throws SQLException если миграцию не удалось применить
+     */
+    public int migrate() throws SQLException {
+        int applied = 0;
+        try (Connection connection = pool.getConnection()) {
+            boolean locked = lock(connection);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                            "version INT PRIMARY KEY, " +
+                            "description VARCHAR(200) NOT NULL, " +
+                            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                }
+                int current = currentVersion(connection); // Читается под блокировкой: учитывает работу другого экземпляра
+                for (String migration : MIGRATIONS) {
+                    int version = versionOf(migration);
+                    if (version > current) {
+                        apply(connection, migration, version);
+                        applied++;
+                    }
+                }
+            } finally {
+                if (locked) {
+                    unlock(connection);
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Берет именованную блокировку MySQL (GET_LOCK): второй экземпляр ждет, пока первый применит
+     * миграции, и затем видит их в schema_version. Блокировка принадлежит сеансу, поэтому, в отличие
+     * от блокировки строки, не снимается неявной фиксацией после DDL. В других базах (H2 в тестах)
+     * блокировка не берется.
+     *
+     * @return true, если блокировка взята и ее нужно снять
+     * @throws SQLException если блокировку не удалось получить за LOCK_TIMEOUT_SECONDS
+     */
+    private boolean lock(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        if (!"MySQL".equalsIgnoreCase(product) && !"MariaDB".equalsIgnoreCase(product)) {
+            return false;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the schema migration lock.");
+                }
+            }
+        }
+        return true;
+    }
+
+    private void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+
+    private int currentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void apply(Connection connection, String migration, int version) throws SQLException {
+        logger.info("Applying migration " + migration);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : readStatements(migration)) {
+                statement.execute(sql);
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            statement.setInt(1, version);
+            statement.setString(2, migration);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Читает SQL-операторы миграции. Операторы разделяются точкой с запятой в конце строки,
+     * строки-комментарии (--) пропускаются.
+     */
+    private List<String> readStatements(String migration) throws SQLException {
+        String script;
+        try (InputStream is = SchemaMigrator.class.getResourceAsStream("/db/migration/" + migration)) {
+            if (is == null) {
+                throw new SQLException("Migration not found: " + migration);
+            }
+            script = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Unable to read migration " + migration, e);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                statements.add(current.substring(0, current.lastIndexOf(";")));
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString());
+        }
+        return statements;
+    }
+
+    private static int versionOf(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+}
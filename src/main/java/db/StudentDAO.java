@@ -1,15 +1,98 @@
 package db;
 
+import config.AppConfig;
+import metrics.Histogram;
+import metrics.Metrics;
 import model.Student;
+import model.StudentQuery;
+import model.StudentWrite;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
 
 /**
  * Класс для выполнения операций с базой данных для студентов.
+ * Каждый метод берет соединение из пула и возвращает его по завершении (через try-with-resources).
+ * Записи выполняются в основной базе, чтения - на репликах, если они настроены (см. {@link DataSourceRouter}).
  */
 public class StudentDAO {
+    public static final int ANY_VERSION = 0; // Изменение без проверки версии строки
+    private static final String INSERT_SQL =
+            "INSERT INTO students (first_name, last_name, patronymic, birth_date, group_name, unique_number) " +
+            "VALUES (?,?,?,?,?,?)";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062; // Код ошибки MySQL ER_DUP_ENTRY
+    private static final String NO_DATA = "02000"; // SQLState "нет данных": студент не найден
+    private static final String VERSION_MISMATCH = "45412"; // Собственный SQLState: версия строки не совпала
+    private static final int INITIAL_VERSION = 1; // Версия новой строки (DEFAULT столбца version)
+    private static final String SEQUENCE_NAME = "students"; // Имя последовательности уникальных номеров
+    private static final int BATCH_ATTEMPTS = 2; // Повтор пакета, если номер заняли параллельно
+    private static final String[] UPDATE_COLUMNS = {"first_name", "last_name", "patronymic", "birth_date", "group_name"};
+    // Готовые UPDATE для каждого набора изменяемых полей: бит i маски соответствует UPDATE_COLUMNS[i].
+    // Одинаковый текст запроса для одинакового набора полей позволяет пулу переиспользовать оператор.
+    private static final String[] UPDATE_SQL = buildUpdateShapes(false);
+    private static final String[] UPDATE_IF_VERSION_SQL = buildUpdateShapes(true); // С условием на версию
+
+    // Гистограммы длительности операций для /metrics
+    private static final Histogram IS_UNIQUE_NUMBER_EXISTS_TIMER = Metrics.dbOperation("isUniqueNumberExists");
+    private static final Histogram ADD_STUDENT_TIMER = Metrics.dbOperation("addStudent");
+    private static final Histogram ADD_STUDENTS_TIMER = Metrics.dbOperation("addStudents");
+    private static final Histogram FIND_EXISTING_UNIQUE_NUMBERS_TIMER = Metrics.dbOperation("findExistingUniqueNumbers");
+    private static final Histogram RESERVE_UNIQUE_NUMBER_BLOCK_TIMER = Metrics.dbOperation("reserveUniqueNumberBlock");
+    private static final Histogram DELETE_STUDENT_TIMER = Metrics.dbOperation("deleteStudent");
+    private static final Histogram GET_ALL_STUDENTS_TIMER = Metrics.dbOperation("getAllStudents");
+    private static final Histogram GET_STUDENTS_PAGE_TIMER = Metrics.dbOperation("getStudentsPage");
+    private static final Histogram FOR_EACH_STUDENT_TIMER = Metrics.dbOperation("forEachStudent");
+    private static final Histogram UPDATE_STUDENT_TIMER = Metrics.dbOperation("updateStudent");
+    private static final Histogram GET_STUDENT_BY_UNIQUE_TIMER = Metrics.dbOperation("getStudentByUnique");
+    private static final Histogram APPLY_WRITES_TIMER = Metrics.dbOperation("applyWrites");
+
+    private final DataSourceRouter router; // Записи - в основную базу, чтения - на реплики
+    private final TableVersions versions = new TableVersions(); // Версии таблицы и строк для ETag
+    private final int fetchSize = AppConfig.getInt("db.fetchSize", 500); // Размер порции строк при потоковом чтении
+
+    public StudentDAO() {
+        this(DatabaseConfig.getRouter());
+    }
+
+    /**
+     * Создает DAO, работающий с одной базой через указанный пул соединений.
+     *
+     * @param pool пул соединений
+     */
+    public StudentDAO(ConnectionPool pool) {
+        this(new DataSourceRouter(pool));
+    }
+
+    /**
+     * Создает DAO, который пишет в основную базу и читает с реплик через маршрутизатор.
+     *
+     * @param router маршрутизатор соединений
+     */
+    public StudentDAO(DataSourceRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * @return маршрутизатор соединений основной базы и реплик
+     */
+    public DataSourceRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * @return счетчики версий, которые DAO увеличивает после каждой записи
+     */
+    public TableVersions getVersions() {
+        return versions;
+    }
 
     /**
      * Проверяет, существует ли уникальный номер в базе данных.
@@ -19,148 +102,869 @@ public class StudentDAO {
      * @throws SQLException если не удалось выполнить запрос
      */
     public boolean isUniqueNumberExists(String uniqueNumber) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM students WHERE unique_number = ?";
-        try (Connection connection = DatabaseConfig.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uniqueNumber);
-            ResultSet rs = statement.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0; // Если число найденных записей больше 0, значит номер не уникален
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT COUNT(*) FROM students WHERE unique_number = ?";
+            try (Connection connection = router.getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, uniqueNumber);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt(1) > 0; // Если число найденных записей больше 0, значит номер не уникален
+                    }
+                }
             }
+            return false;
+        } finally {
+            IS_UNIQUE_NUMBER_EXISTS_TIMER.recordSince(start);
         }
-        return false;
     }
 
     /**
-     * Добавляет нового студента в базу данных.
+     * Добавляет нового студента в базу данных одним INSERT.
+     * Занятый номер не проверяется заранее: его отклоняет уникальный индекс uq_students_unique_number,
+     * поэтому проверка не требует второго обращения к базе и не зависит от параллельных вставок.
      *
      * @param student объект Student, который нужно добавить
+     * @throws SQLIntegrityConstraintViolationException если уникальный номер уже занят (см. {@link #isDuplicateKey})
      * @throws SQLException если не удалось добавить студента
      */
     public void addStudent(Student student) throws SQLException {
-        if (isUniqueNumberExists(student.getUniqueNumber())) {
-            throw new SQLException("Unique number already exists.");
-        }
-        String sql = "INSERT INTO students (first_name, last_name, patronymic, birth_date, group_name, unique_number) " +
-                "VALUES (?,?,?,?,?,?)";
-        try (Connection connect = DatabaseConfig.getConnection();
-             PreparedStatement statement = connect.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            statement.setString(1, student.getFirstName());
-            statement.setString(2, student.getLastName());
-            statement.setString(3, student.getPatronymic());
-            statement.setString(4, student.getBirthDate());
-            statement.setString(5, student.getGroupName());
-            statement.setString(6, student.getUniqueNumber());
-
-            int affectedRows = statement.executeUpdate();
-            // Получаем сгенерированные ключи
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        student.setId(generatedKeys.getInt(1)); // Устанавливаем сгенерированный ID в объекте Student
-                    } else {
-                        throw new SQLException("Creating student failed, no ID obtained.");
+        long start = System.nanoTime();
+        try {
+            try (Connection connect = router.getWriteConnection();
+                 PreparedStatement statement = connect.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindInsert(statement, student);
+
+                int affectedRows;
+                try {
+                    affectedRows = statement.executeUpdate();
+                } catch (SQLException e) {
+                    if (isDuplicateKey(e)) {
+                        throw new SQLIntegrityConstraintViolationException("Unique number already exists.",
+                                "23000", MYSQL_DUPLICATE_ENTRY, e);
+                    }
+                    throw e;
+                }
+                // Получаем сгенерированные ключи
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            student.setId(generatedKeys.getInt(1)); // Устанавливаем сгенерированный ID в объекте Student
+                            student.setVersion(INITIAL_VERSION);
+                        } else {
+                            throw new SQLException("Creating student failed, no ID obtained.");
+                        }
+                    }
+                }
+            }
+            versions.bump(student.getUniqueNumber());
+        } finally {
+            ADD_STUDENT_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Добавляет пакет студентов одной транзакцией с помощью JDBC batch.
+     * <p>
+     * Занятые номера определяются одним запросом на весь пакет; студенты с такими номерами
+     * (и повторы номера внутри пакета) пропускаются. Остальные вставляются одним executeBatch.
+     * Если номер успели занять параллельно, транзакция откатывается и пакет повторяется.
+     *
+     * @param students студенты для добавления
+     * @return массив той же длины: true - студент добавлен, false - уникальный номер уже занят
+     * @throws SQLException если не удалось добавить пакет
+     */
+    public boolean[] addStudents(List<Student> students) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return insertBatch(students);
+                } catch (SQLException e) {
+                    if (attempt >= BATCH_ATTEMPTS || !isDuplicateKey(e)) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            ADD_STUDENTS_TIMER.recordSince(start);
+        }
+    }
+
+    private boolean[] insertBatch(List<Student> students) throws SQLException {
+        boolean[] inserted = new boolean[students.size()];
+        if (students.isEmpty()) {
+            return inserted;
+        }
+        try (Connection connection = router.getWriteConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<String> uniqueNumbers = new ArrayList<>(students.size());
+                for (Student student : students) {
+                    uniqueNumbers.add(student.getUniqueNumber());
+                }
+                Set<String> taken = findExistingUniqueNumbers(connection, uniqueNumbers);
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                    for (int i = 0; i < students.size(); i++) {
+                        Student student = students.get(i);
+                        if (taken.add(student.getUniqueNumber())) {
+                            bindInsert(statement, student);
+                            statement.addBatch();
+                            inserted[i] = true;
+                            student.setVersion(INITIAL_VERSION);
+                        }
+                    }
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                changed.add(students.get(i).getUniqueNumber());
+            }
+        }
+        versions.bumpAll(changed);
+        return inserted;
+    }
+
+    /**
+     * Возвращает уникальные номера из списка, которые уже есть в базе данных.
+     *
+     * @param uniqueNumbers проверяемые номера
+     * @return занятые номера
+     * @throws SQLException если не удалось выполнить запрос
+     */
+    public Set<String> findExistingUniqueNumbers(List<String> uniqueNumbers) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            try (Connection connection = router.getPrimaryConnection()) {
+                return findExistingUniqueNumbers(connection, uniqueNumbers);
+            }
+        } finally {
+            FIND_EXISTING_UNIQUE_NUMBERS_TIMER.recordSince(start);
+        }
+    }
+
+    private Set<String> findExistingUniqueNumbers(Connection connection, List<String> uniqueNumbers) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        if (uniqueNumbers.isEmpty()) {
+            return existing;
+        }
+        StringBuilder sql = new StringBuilder("SELECT unique_number FROM students WHERE unique_number IN (");
+        for (int i = 0; i < uniqueNumbers.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < uniqueNumbers.size(); i++) {
+                statement.setString(i + 1, uniqueNumbers.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Резервирует блок уникальных номеров в последовательности unique_number_sequence.
+     * Строка последовательности блокируется на время транзакции, поэтому разные экземпляры сервера
+     * никогда не получают пересекающиеся блоки. После maxNumber последовательность начинается с 1:
+     * занятые номера в таком блоке исключает вызывающий код.
+     *
+     * @param blockSize размер блока
+     * @param maxNumber наибольший допустимый номер
+     * @return первый номер зарезервированного блока [start, start + blockSize), не больше maxNumber
+     * @throws SQLException если не удалось зарезервировать блок
+     */
+    public long reserveUniqueNumberBlock(int blockSize, long maxNumber) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            try (Connection connection = router.getWriteConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    long blockStart;
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT next_value FROM unique_number_sequence WHERE name = ? FOR UPDATE")) {
+                        statement.setString(1, SEQUENCE_NAME);
+                        try (ResultSet rs = statement.executeQuery()) {
+                            if (!rs.next()) {
+                                throw new SQLException("Unique number sequence is not initialized.");
+                            }
+                            blockStart = rs.getLong(1);
+                        }
+                    }
+                    if (blockStart > maxNumber) {
+                        blockStart = 1; // Номера закончились: дальше выдаются освободившиеся с начала
+                    }
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "UPDATE unique_number_sequence SET next_value = ? WHERE name = ?")) {
+                        statement.setLong(1, blockStart + blockSize);
+                        statement.setString(2, SEQUENCE_NAME);
+                        statement.executeUpdate();
                     }
+                    connection.commit();
+                    return blockStart;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
                 }
             }
+        } finally {
+            RESERVE_UNIQUE_NUMBER_BLOCK_TIMER.recordSince(start);
         }
     }
 
+    private void bindInsert(PreparedStatement statement, Student student) throws SQLException {
+        statement.setString(1, student.getFirstName());
+        statement.setString(2, student.getLastName());
+        statement.setString(3, student.getPatronymic());
+        statement.setString(4, student.getBirthDate());
+        statement.setString(5, student.getGroupName());
+        statement.setString(6, student.getUniqueNumber());
+    }
+
+    /**
+     * Проверяет, вызвана ли ошибка нарушением уникальности ключа.
+     * MySQL сообщает об этом кодом 1062 (SQLState 23000), стандартный SQLState - 23505.
+     *
+     * @param e ошибка базы данных
+     * @return true, если это конфликт уникального ключа
+     */
+    public static boolean isDuplicateKey(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if ("23505".equals(current.getSQLState())
+                    || ("23000".equals(current.getSQLState()) && current.getErrorCode() == MYSQL_DUPLICATE_ENTRY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, означает ли ошибка, что студента с указанным номером нет.
+     *
+     * @param e ошибка базы данных
+     * @return true, если изменяемый или удаляемый студент не найден
+     */
+    public static boolean isNotFound(SQLException e) {
+        return NO_DATA.equals(e.getSQLState());
+    }
+
+    /**
+     * Проверяет, означает ли ошибка, что версия строки не совпала с ожидаемой (строку уже изменили).
+     *
+     * @param e ошибка базы данных
+     * @return true, если условное изменение или удаление отклонено из-за версии
+     */
+    public static boolean isVersionMismatch(SQLException e) {
+        return VERSION_MISMATCH.equals(e.getSQLState());
+    }
+
     /**
      * Удаляет студента по уникальному номеру.
      *
      * @param uniqueNumber уникальный номер студента
-     * @throws SQLException если не удалось удалить студента
+     * @throws SQLException если не удалось удалить студента или его нет (см. {@link #isNotFound})
      */
     public void deleteStudent(String uniqueNumber) throws SQLException {
-        String sql = "DELETE FROM students WHERE unique_number = ?";
-        try (Connection connection = DatabaseConfig.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uniqueNumber);
-            int rowsAffected = statement.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("No student found with unique number: " + uniqueNumber);
+        deleteStudent(uniqueNumber, ANY_VERSION);
+    }
+
+    /**
+     * Удаляет студента, если его версия совпадает с ожидаемой (одним DELETE с условием на версию).
+     *
+     * @param uniqueNumber    уникальный номер студента
+     * @param expectedVersion ожидаемая версия строки или {@link #ANY_VERSION}
+     * @throws SQLException если не удалось удалить студента, его нет (см. {@link #isNotFound})
+     *                      или версия не совпала (см. {@link #isVersionMismatch})
+     */
+    public void deleteStudent(String uniqueNumber, int expectedVersion) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            boolean conditional = expectedVersion != ANY_VERSION;
+            String sql = conditional ? "DELETE FROM students WHERE unique_number = ? AND version = ?"
+                    : "DELETE FROM students WHERE unique_number = ?";
+            try (Connection connection = router.getWriteConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, uniqueNumber);
+                if (conditional) {
+                    statement.setInt(2, expectedVersion);
+                }
+                int rowsAffected = statement.executeUpdate();
+                if (rowsAffected == 0) {
+                    throw conditional ? conditionalFailure(connection, uniqueNumber)
+                            : new SQLException("No student found with unique number: " + uniqueNumber, NO_DATA);
+                }
             }
+            versions.remove(uniqueNumber);
+        } finally {
+            DELETE_STUDENT_TIMER.recordSince(start);
         }
     }
 
     /**
      * Возвращает список всех студентов из базы данных.
+     * Для больших таблиц лучше использовать {@link #forEachStudent(RowHandler)} или {@link #getStudentsPage(int, int)}.
      *
      * @return список студентов
      * @throws SQLException если не удалось получить список
      */
     public List<Student> getAllStudents() throws SQLException {
-        List<Student> students = new ArrayList<>();
-        String sql = "SELECT * FROM students";
-        try (Connection connection = DatabaseConfig.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet rs = statement.executeQuery(sql)) {
-            while (rs.next()) {
-                Student student = new Student();
-                student.setId(rs.getInt("id"));
-                student.setFirstName(rs.getString("first_name"));
-                student.setLastName(rs.getString("last_name"));
-                student.setPatronymic(rs.getString("patronymic"));
-                student.setBirthDate(rs.getDate("birth_date").toString());
-                student.setGroupName(rs.getString("group_name"));
-                student.setUniqueNumber(rs.getString("unique_number"));
-                students.add(student);
+        long start = System.nanoTime();
+        try {
+            List<Student> students = new ArrayList<>();
+            String sql = "SELECT * FROM students";
+            try (Connection connection = router.getReadConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(sql)) {
+                while (rs.next()) {
+                    students.add(mapStudent(rs));
+                }
             }
+            return students;
+        } finally {
+            GET_ALL_STUDENTS_TIMER.recordSince(start);
         }
-        return students;
     }
 
     /**
-     * Обновляет информацию о студенте.
+     * Возвращает страницу студентов с id больше указанного (keyset-пагинация).
+     * В отличие от OFFSET, стоимость запроса не растет с номером страницы.
      *
-     * @param student объект Student с обновленной информацией
-     * @throws SQLException если не удалось обновить информацию или если уникальный номер не указан
+     * @param afterId id последнего студента предыдущей страницы (0 - с начала)
+     * @param limit максимальное число студентов на странице
+     * @return студенты, упорядоченные по id
+     * @throws SQLException если не удалось получить страницу
      */
-    public void updateStudent(Student student) throws SQLException {
-        if (student.getUniqueNumber() == null) {
-            throw new SQLException("Unique number cannot be null.");
+    public List<Student> getStudentsPage(int afterId, int limit) throws SQLException {
+        return getStudentsPage(new StudentQuery(), afterId, limit);
+    }
+
+    /**
+     * Возвращает до limit студентов, подходящих под условия отбора, в заданном порядке.
+     * Продолжение после afterId (keyset-пагинация) возможно только при сортировке по возрастанию id.
+     *
+     * @param query условия отбора и сортировка
+     * @param afterId id последнего студента предыдущей страницы (0 - с начала)
+     * @param limit максимальное число студентов на странице
+     * @return студенты в заданном порядке
+     * @throws SQLException если не удалось получить страницу или afterId указан при сортировке не по id
+     */
+    public List<Student> getStudentsPage(StudentQuery query, int afterId, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (afterId > 0 && !query.isIdOrder()) {
+                throw new SQLException("Keyset pagination requires ascending id order.");
+            }
+            List<Student> students = new ArrayList<>(limit);
+            List<Object> parameters = new ArrayList<>();
+            String sql = buildSelectSql(query, afterId, limit, parameters);
+            try (Connection connection = router.getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                bindParameters(statement, parameters);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        students.add(mapStudent(rs));
+                    }
+                }
+            }
+            return students;
+        } finally {
+            GET_STUDENTS_PAGE_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Последовательно передает всех студентов обработчику, не загружая таблицу в память.
+     * Студенты читаются страницами (см. {@link #forEachStudent(StudentQuery, RowHandler)}),
+     * поэтому расход памяти не зависит от размера таблицы.
+     *
+     * @param handler обработчик, вызываемый для каждого студента в порядке id
+     * @throws SQLException если не удалось выполнить запрос
+     * @throws IOException если обработчик не смог обработать строку
+     */
+    public void forEachStudent(RowHandler<Student> handler) throws SQLException, IOException {
+        forEachStudent(new StudentQuery(), handler);
+    }
+
+    /**
+     * Последовательно передает обработчику студентов, подходящих под условия отбора, в заданном порядке.
+     * Отбор и сортировка выполняются в базе данных (по индексам из миграции V3).
+     * <p>
+     * Студенты читаются страницами по db.fetchSize строк; следующая страница продолжает предыдущую
+     * по ключу (значение поля сортировки, id). Соединение возвращается в пул до того, как строки
+     * страницы передаются обработчику, поэтому медленный клиент потокового ответа не удерживает
+     * соединение и не исчерпывает пул. Страницы - отдельные запросы, а не один снимок: студент,
+     * у которого во время обхода изменилось поле сортировки, может встретиться дважды или пропасть
+     * (при сортировке по id - нет).
+     *
+     * @param query условия отбора и сортировка
+     * @param handler обработчик, вызываемый для каждого подходящего студента
+     * @throws SQLException если не удалось выполнить запрос
+     * @throws IOException если обработчик не смог обработать строку
+     */
+    public void forEachStudent(StudentQuery query, RowHandler<Student> handler) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try {
+            Student last = null;
+            List<Student> page;
+            do {
+                page = readPage(query, last, fetchSize); // Соединение уже возвращено в пул
+                for (Student student : page) {
+                    handler.handle(student);
+                }
+                if (!page.isEmpty()) {
+                    last = page.get(page.size() - 1);
+                }
+            } while (page.size() == fetchSize);
+        } finally {
+            FOR_EACH_STUDENT_TIMER.recordSince(start);
         }
+    }
 
-        StringBuilder sql = new StringBuilder("UPDATE students SET ");
+    private List<Student> readPage(StudentQuery query, Student last, int limit) throws SQLException {
         List<Object> parameters = new ArrayList<>();
+        String sql = buildSelectSql(query, 0, last, limit, parameters);
+        List<Student> page = new ArrayList<>(limit);
+        try (Connection connection = router.getReadConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            bindParameters(statement, parameters);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    page.add(mapStudent(rs));
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Строит параметризованный SELECT по условиям отбора. Значения условий передаются
+     * только через параметры, имена столбцов сортировки берутся из закрытого списка.
+     *
+     * @param query условия отбора и сортировка
+     * @param afterId продолжить после этого id (0 - без условия)
+     * @param limit максимальное число строк (0 - без ограничения)
+     * @param parameters список, в который добавляются значения параметров запроса по порядку
+     * @return текст SQL-запроса
+     */
+    static String buildSelectSql(StudentQuery query, int afterId, int limit, List<Object> parameters) {
+        return buildSelectSql(query, afterId, null, limit, parameters);
+    }
+
+    /**
+     * @param last последний студент предыдущей страницы при обходе страницами (null - с начала)
+     */
+    private static String buildSelectSql(StudentQuery query, int afterId, Student last, int limit,
+                                         List<Object> parameters) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM students");
+        List<String> conditions = new ArrayList<>();
+
+        if (afterId > 0) {
+            conditions.add("id > ?");
+            parameters.add(afterId);
+        }
+        if (last != null) {
+            conditions.add(keysetCondition(query, last, parameters));
+        }
+        if (query.getGroupName() != null) {
+            conditions.add("group_name = ?");
+            parameters.add(query.getGroupName());
+        }
+        if (query.getNamePrefix() != null) {
+            // Два префиксных LIKE по индексам фамилии и имени (в MySQL - index merge)
+            conditions.add("(last_name LIKE ? ESCAPE '!' OR first_name LIKE ? ESCAPE '!')");
+            String pattern = escapeLike(query.getNamePrefix()) + "%";
+            parameters.add(pattern);
+            parameters.add(pattern);
+        }
+        if (query.getBirthFrom() != null) {
+            conditions.add("birth_date >= ?");
+            parameters.add(Date.valueOf(query.getBirthFrom()));
+        }
+        if (query.getBirthTo() != null) {
+            conditions.add("birth_date <= ?");
+            parameters.add(Date.valueOf(query.getBirthTo()));
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+
+        String direction = query.isDescending() ? " DESC" : "";
+        sql.append(" ORDER BY ").append(columnOf(query.getSortField())).append(direction);
+        if (query.getSortField() != StudentQuery.SortField.ID) {
+            sql.append(", id").append(direction); // Однозначный порядок при равных значениях
+        }
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+            parameters.add(limit);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Условие "строка идет после last" в порядке ORDER BY поле, id. NULL в MySQL и H2 считается
+     * меньше любого значения: такие строки идут первыми по возрастанию и последними по убыванию.
+     */
+    private static String keysetCondition(StudentQuery query, Student last, List<Object> parameters) {
+        boolean descending = query.isDescending();
+        String after = descending ? " < ?" : " > ?";
+        if (query.getSortField() == StudentQuery.SortField.ID) {
+            parameters.add(last.getId());
+            return "id" + after;
+        }
+        String column = columnOf(query.getSortField());
+        Object value = sortValueOf(query.getSortField(), last);
+        if (value == null) {
+            parameters.add(last.getId());
+            return descending ? "(" + column + " IS NULL AND id < ?)"
+                    : "((" + column + " IS NULL AND id > ?) OR " + column + " IS NOT NULL)";
+        }
+        parameters.add(value);
+        parameters.add(value);
+        parameters.add(last.getId());
+        return "(" + column + after + " OR (" + column + " = ? AND id" + after + ")"
+                + (descending ? " OR " + column + " IS NULL)" : ")");
+    }
+
+    private static Object sortValueOf(StudentQuery.SortField field, Student student) {
+        return switch (field) {
+            case ID -> student.getId();
+            case FIRST_NAME -> student.getFirstName();
+            case LAST_NAME -> student.getLastName();
+            case BIRTH_DATE -> student.getBirthDate() != null ? Date.valueOf(student.getBirthDate()) : null;
+            case GROUP_NAME -> student.getGroupName();
+            case UNIQUE_NUMBER -> student.getUniqueNumber();
+        };
+    }
 
-        if (student.getFirstName() != null) {
-            sql.append("first_name = ?, ");
-            parameters.add(student.getFirstName());
+    private static String columnOf(StudentQuery.SortField field) {
+        return switch (field) {
+            case ID -> "id";
+            case FIRST_NAME -> "first_name";
+            case LAST_NAME -> "last_name";
+            case BIRTH_DATE -> "birth_date";
+            case GROUP_NAME -> "group_name";
+            case UNIQUE_NUMBER -> "unique_number";
+        };
+    }
+
+    /**
+     * Экранирует символы шаблона LIKE (%, _ и сам символ экранирования !).
+     */
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '!') {
+                escaped.append('!');
+            }
+            escaped.append(c);
         }
-        if (student.getLastName() != null) {
-            sql.append("last_name = ?, ");
-            parameters.add(student.getLastName());
+        return escaped.toString();
+    }
+
+    private static void bindParameters(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
         }
-        if (student.getPatronymic() != null) {
-            sql.append("patronymic = ?, ");
-            parameters.add(student.getPatronymic());
+    }
+
+    /**
+     * Создает объект студента из текущей строки результата запроса.
+     *
+     * @param rs результат запроса, установленный на нужную строку
+     * @return объект студента
+     * @throws SQLException если не удалось прочитать строку
+     */
+    private Student mapStudent(ResultSet rs) throws SQLException {
+        Student student = new Student();
+        student.setId(rs.getInt("id"));
+        student.setFirstName(rs.getString("first_name"));
+        student.setLastName(rs.getString("last_name"));
+        student.setPatronymic(rs.getString("patronymic"));
+        LocalDate birthDate = rs.getObject("birth_date", LocalDate.class); // Без пересчета через часовой пояс JVM
+        student.setBirthDate(birthDate != null ? birthDate.toString() : null);
+        student.setGroupName(rs.getString("group_name"));
+        student.setUniqueNumber(rs.getString("unique_number"));
+        student.setVersion(rs.getInt("version"));
+        return student;
+    }
+
+    /**
+     * Обновляет информацию о студенте.
+     *
+     * @param student объект Student с обновленной информацией
+     * @throws SQLException если не удалось обновить информацию, уникальный номер не указан
+     *                      или студента нет (см. {@link #isNotFound})
+     */
+    public void updateStudent(Student student) throws SQLException {
+        updateStudent(student, ANY_VERSION);
+    }
+
+    /**
+     * Обновляет информацию о студенте, если его версия совпадает с ожидаемой.
+     * Проверка и изменение выполняются одним UPDATE ... WHERE unique_number = ? AND version = ?,
+     * без блокировок: из двух параллельных изменений одной версии выполнится только одно.
+     * Каждое изменение увеличивает версию строки на единицу. Без проверки версии новая версия
+     * читается в той же транзакции: строка заблокирована этим UPDATE до фиксации, поэтому
+     * прочитанная версия - именно та, что получилась в результате изменения.
+     *
+     * @param student         объект Student с обновленной информацией
+     * @param expectedVersion ожидаемая версия строки или {@link #ANY_VERSION}
+     * @return новая версия строки
+     * @throws SQLException если не удалось обновить информацию, уникальный номер не указан,
+     *                      студента нет (см. {@link #isNotFound}) или версия не совпала (см. {@link #isVersionMismatch})
+     */
+    public int updateStudent(Student student, int expectedVersion) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (student.getUniqueNumber() == null) {
+                throw new SQLException("Unique number cannot be null.");
+            }
+
+            List<Object> parameters = new ArrayList<>(UPDATE_COLUMNS.length + 2);
+            String sql = buildUpdateSql(student, expectedVersion, parameters);
+            if (sql == null) {
+                throw new SQLException("No fields to update for student: " + student.getUniqueNumber());
+            }
+
+            int newVersion;
+            try (Connection connection = router.getWriteConnection()) {
+                boolean conditional = expectedVersion != ANY_VERSION;
+                if (!conditional) {
+                    connection.setAutoCommit(false); // UPDATE и чтение новой версии - одной транзакцией
+                }
+                try {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        for (int i = 0; i < parameters.size(); i++) {
+                            statement.setObject(i + 1, parameters.get(i));
+                        }
+                        if (statement.executeUpdate() == 0) {
+                            throw conditional ? conditionalFailure(connection, student.getUniqueNumber())
+                                    : new SQLException("No student found with unique number: " + student.getUniqueNumber(), NO_DATA);
+                        }
+                    }
+                    newVersion = conditional ? expectedVersion + 1 : currentVersion(connection, student.getUniqueNumber());
+                    if (!conditional) {
+                        connection.commit();
+                    }
+                } catch (SQLException e) {
+                    if (!conditional) {
+                        connection.rollback();
+                    }
+                    throw e;
+                }
+            }
+            versions.bump(student.getUniqueNumber());
+            return newVersion;
+        } finally {
+            UPDATE_STUDENT_TIMER.recordSince(start);
         }
-        if (student.getBirthDate() != null) {
-            sql.append("birth_date = ?, ");
-            parameters.add(student.getBirthDate());
+    }
+
+    private static int currentVersion(Connection connection, String uniqueNumber) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT version FROM students WHERE unique_number = ?")) {
+            statement.setString(1, uniqueNumber);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No student found with unique number: " + uniqueNumber, NO_DATA);
+                }
+                return rs.getInt(1);
+            }
         }
-        if (student.getGroupName() != null) {
-            sql.append("group_name = ?, ");
-            parameters.add(student.getGroupName());
+    }
+
+    /**
+     * Выясняет, почему условное изменение не затронуло ни одной строки: студента нет или версия другая.
+     *
+     * @return ошибка для {@link #isNotFound} или {@link #isVersionMismatch}
+     */
+    private static SQLException conditionalFailure(Connection connection, String uniqueNumber) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT version FROM students WHERE unique_number = ?")) {
+            statement.setString(1, uniqueNumber);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return new SQLException("Student " + uniqueNumber + " was modified, current version is "
+                            + rs.getInt(1), VERSION_MISMATCH);
+                }
+            }
         }
+        return new SQLException("No student found with unique number: " + uniqueNumber, NO_DATA);
+    }
+
+    /**
+     * Выбирает UPDATE только для заполненных (не null) полей студента.
+     *
+     * @param student объект Student с обновленной информацией
+     * @param parameters список, в который добавляются значения параметров запроса по порядку
+     * @return текст SQL-запроса или null, если обновлять нечего
+     */
+    static String buildUpdateSql(Student student, List<Object> parameters) {
+        return buildUpdateSql(student, ANY_VERSION, parameters);
+    }
 
-        // Убираем последнюю запятую
-        sql.setLength(sql.length() - 2);
-        sql.append(" WHERE unique_number = ?");
+    /**
+     * Выбирает UPDATE только для заполненных (не null) полей студента, с условием на версию строки,
+     * если она задана.
+     *
+     * @param student         объект Student с обновленной информацией
+     * @param expectedVersion ожидаемая версия строки или {@link #ANY_VERSION}
+     * @param parameters      список, в который добавляются значения параметров запроса по порядку
+     * @return текст SQL-запроса или null, если обновлять нечего
+     */
+    static String buildUpdateSql(Student student, int expectedVersion, List<Object> parameters) {
+        String[] values = {student.getFirstName(), student.getLastName(), student.getPatronymic(),
+                student.getBirthDate(), student.getGroupName()};
+        int mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                mask |= 1 << i;
+                parameters.add(values[i]);
+            }
+        }
+        if (mask == 0) {
+            parameters.clear();
+            return null;
+        }
         parameters.add(student.getUniqueNumber());
+        if (expectedVersion == ANY_VERSION) {
+            return UPDATE_SQL[mask];
+        }
+        parameters.add(expectedVersion);
+        return UPDATE_IF_VERSION_SQL[mask];
+    }
 
-        try (Connection connection = DatabaseConfig.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+    private static String[] buildUpdateShapes(boolean conditional) {
+        String[] shapes = new String[1 << UPDATE_COLUMNS.length];
+        String where = conditional ? " WHERE unique_number = ? AND version = ?" : " WHERE unique_number = ?";
+        for (int mask = 1; mask < shapes.length; mask++) {
+            StringJoiner columns = new StringJoiner(", ", "UPDATE students SET ", ", version = version + 1" + where);
+            for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+                if ((mask & 1 << i) != 0) {
+                    columns.add(UPDATE_COLUMNS[i] + " = ?");
+                }
+            }
+            shapes[mask] = columns.toString();
+        }
+        return shapes;
+    }
 
-            for (int i = 0; i < parameters.size(); i++) {
-                statement.setObject(i + 1, parameters.get(i));
+    /**
+     * Выполняет пачку отложенных операций записи одной транзакцией (режим write-behind).
+     * <p>
+     * Конфликт уникального номера и отсутствие студента не прерывают пачку: MySQL откатывает
+     * только неудавшийся оператор, и операция получает результат CONFLICT или NOT_FOUND.
+     * Любая другая ошибка откатывает всю транзакцию, и пачку можно повторить целиком.
+     * Подготовленные операторы переиспользуются внутри пачки.
+     *
+     * @param writes операции в порядке выполнения
+     * @return результаты операций в том же порядке
+     * @throws SQLException если транзакцию не удалось выполнить
+     */
+    public StudentWrite.Outcome[] applyWrites(List<StudentWrite> writes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            StudentWrite.Outcome[] outcomes = new StudentWrite.Outcome[writes.size()];
+            if (writes.isEmpty()) {
+                return outcomes;
             }
+            try (Connection connection = router.getWriteConnection()) {
+                connection.setAutoCommit(false);
+                Map<String, PreparedStatement> statements = new HashMap<>();
+                try {
+                    for (int i = 0; i < writes.size(); i++) {
+                        outcomes[i] = applyWrite(connection, statements, writes.get(i));
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    for (PreparedStatement statement : statements.values()) {
+                        statement.close();
+                    }
+                }
+            }
+            List<String> changed = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == StudentWrite.Outcome.APPLIED) {
+                    (writes.get(i).getType() == StudentWrite.Type.DELETE ? removed : changed)
+                            .add(writes.get(i).getUniqueNumber());
+                }
+            }
+            versions.bumpAll(changed, removed);
+            return outcomes;
+        } finally {
+            APPLY_WRITES_TIMER.recordSince(start);
+        }
+    }
 
-            int rowsAffected = statement.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("No student found with unique number: " + student.getUniqueNumber());
+    private StudentWrite.Outcome applyWrite(Connection connection, Map<String, PreparedStatement> statements,
+                                            StudentWrite write) throws SQLException {
+        Student student = write.getStudent();
+        switch (write.getType()) {
+            case ADD -> {
+                PreparedStatement statement = statements.get(INSERT_SQL);
+                if (statement == null) {
+                    statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+                    statements.put(INSERT_SQL, statement);
+                }
+                bindInsert(statement, student);
+                try {
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    if (isDuplicateKey(e)) {
+                        return StudentWrite.Outcome.CONFLICT;
+                    }
+                    throw e;
+                }
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        student.setId(generatedKeys.getInt(1));
+                    }
+                }
+                student.setVersion(INITIAL_VERSION);
+                return StudentWrite.Outcome.APPLIED;
+            }
+            case UPDATE -> {
+                List<Object> parameters = new ArrayList<>(UPDATE_COLUMNS.length + 1);
+                String sql = buildUpdateSql(student, parameters);
+                if (sql == null) {
+                    return StudentWrite.Outcome.APPLIED; // Менять нечего
+                }
+                PreparedStatement statement = statements.get(sql);
+                if (statement == null) {
+                    statement = connection.prepareStatement(sql);
+                    statements.put(sql, statement);
+                }
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                return statement.executeUpdate() > 0 ? StudentWrite.Outcome.APPLIED : StudentWrite.Outcome.NOT_FOUND;
+            }
+            default -> {
+                String sql = "DELETE FROM students WHERE unique_number = ?";
+                PreparedStatement statement = statements.get(sql);
+                if (statement == null) {
+                    statement = connection.prepareStatement(sql);
+                    statements.put(sql, statement);
+                }
+                statement.setString(1, student.getUniqueNumber());
+                return statement.executeUpdate() > 0 ? StudentWrite.Outcome.APPLIED : StudentWrite.Outcome.NOT_FOUND;
             }
         }
     }
@@ -173,26 +977,23 @@ public class StudentDAO {
      * @throws SQLException если произошла ошибка при обращении к базе данных.
      */
     public Student getStudentByUnique(String uniqueNumber) throws SQLException {
-        String sql = "SELECT * FROM students WHERE unique_number = ?";
-        try (Connection connection = DatabaseConfig.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT * FROM students WHERE unique_number = ?";
+            try (Connection connection = router.getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
 
-            statement.setString(1, uniqueNumber);
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    // Создаем объект студента из результатов запроса
-                    return new Student(
-                            resultSet.getString("unique_number"),
-                            resultSet.getString("first_name"),
-                            resultSet.getString("last_name"),
-                            resultSet.getString("patronymic"),
-                            resultSet.getString("birth_date"),
-                            resultSet.getString("group_name")
-                    );
+                statement.setString(1, uniqueNumber);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return mapStudent(resultSet);
+                    }
                 }
             }
+            return null; // Если студент не найден
+        } finally {
+            GET_STUDENT_BY_UNIQUE_TIMER.recordSince(start);
         }
-        return null; // Если студент не найден
     }
 }
 
@@ -0,0 +1,156 @@
+package db;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики версий таблицы студентов и отдельных строк для условных HTTP-запросов (ETag, Last-Modified).
+ * <p>
+ * Версии хранятся в памяти и увеличиваются {@link StudentDAO} после каждой записи, поэтому
+ * проверка актуальности не требует обращения к базе данных. Отдельная запись хранится только
+ * для строк, измененных с запуска приложения; при удалении строки запись удаляется, поэтому память
+ * зависит от числа существующих строк, а не от всех, что когда-либо менялись. Строка без записи
+ * имеет общую базовую версию: 0 с запуска, а после удалений - версию последнего удаления, чтобы версия
+ * удаленной и заново добавленной строки не вернулась к тегу, выданному раньше.
+ * Эпоха (время запуска) входит в ETag, чтобы теги, выданные до перезапуска, не совпали с новыми.
+ * Записи в обход приложения счетчики не видят.
+ * <p>
+ * Версия увеличивается уже после фиксации изменения, а читатель берет версию до запроса к базе,
+ * поэтому старые данные никогда не получают новый тег (в худшем случае новые данные получают
+ * старый тег, и клиент просто перезапросит их).
+ */
+public class TableVersions {
+
+    /**
+     * Версия и время последнего изменения.
+     *
+     * @param version      номер версии
+     * @param modifiedMillis время изменения, мс с начала эпохи
+     */
+    public record Stamp(long version, long modifiedMillis) {}
+
+    private final long epoch = System.currentTimeMillis(); // Время запуска, отличает теги разных запусков
+    private final AtomicLong tableVersion = new AtomicLong();
+    private volatile Stamp tableStamp = new Stamp(0, epoch);
+    private final ConcurrentHashMap<String, Stamp> rows = new ConcurrentHashMap<>(); // Строки, менявшиеся с запуска
+    private volatile Stamp rowFloor = new Stamp(0, epoch); // Версия строк без записи в rows
+
+    /**
+     * @return текущая версия всей таблицы
+     */
+    public Stamp table() {
+        return tableStamp;
+    }
+
+    /**
+     * @param uniqueNumber уникальный номер студента
+     * @return текущая версия строки
+     */
+    public Stamp row(String uniqueNumber) {
+        Stamp stamp = uniqueNumber == null ? null : rows.get(uniqueNumber);
+        return stamp != null ? stamp : rowFloor;
+    }
+
+    /**
+     * Отмечает изменение одной строки (и таблицы целиком).
+     *
+     * @param uniqueNumber уникальный номер измененной строки
+     */
+    public void bump(String uniqueNumber) {
+        Stamp stamp = bumpTable();
+        if (uniqueNumber != null) {
+            rows.merge(uniqueNumber, stamp, TableVersions::newer);
+        }
+    }
+
+    /**
+     * Отмечает изменение нескольких строк одной версией таблицы.
+     *
+     * @param uniqueNumbers уникальные номера измененных строк
+     */
+    public void bumpAll(Collection<String> uniqueNumbers) {
+        bumpAll(uniqueNumbers, List.of());
+    }
+
+    /**
+     * Отмечает удаление строки (и изменение таблицы) и забывает версию строки.
+     *
+     * @param uniqueNumber уникальный номер удаленной строки
+     */
+    public void remove(String uniqueNumber) {
+        bumpAll(List.of(), uniqueNumber != null ? List.of(uniqueNumber) : List.of());
+    }
+
+    /**
+     * Отмечает изменение и удаление нескольких строк одной версией таблицы.
+     *
+     * @param changed уникальные номера измененных строк
+     * @param removed уникальные номера удаленных строк
+     */
+    public void bumpAll(Collection<String> changed, Collection<String> removed) {
+        Stamp stamp = bumpTable();
+        for (String uniqueNumber : changed) {
+            if (uniqueNumber != null) {
+                rows.merge(uniqueNumber, stamp, TableVersions::newer);
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            rowFloor = newer(rowFloor, stamp); // Сначала базовая версия, чтобы строка не увидела старую
+        }
+        for (String uniqueNumber : removed) {
+            if (uniqueNumber != null) {
+                // Запись, поставленная параллельным добавлением с более новой версией, остается
+                rows.computeIfPresent(uniqueNumber, (key, current) -> current.version() > stamp.version() ? current : null);
+            }
+        }
+    }
+
+    private static Stamp newer(Stamp a, Stamp b) {
+        return a.version() >= b.version() ? a : b;
+    }
+
+    /**
+     * @return число строк, для которых хранится отдельная версия
+     */
+    public int rowCount() {
+        return rows.size();
+    }
+
+    private Stamp bumpTable() {
+        Stamp stamp = new Stamp(tableVersion.incrementAndGet(), System.currentTimeMillis());
+        synchronized (this) {
+            tableStamp = newer(tableStamp, stamp); // Параллельная запись могла уже поставить более новую версию
+        }
+        return stamp;
+    }
+
+    /**
+     * Строит слабый ETag для версии, например {@code W/"t-1718000000000-42"}.
+     * Тег слабый, так как одна версия может отдаваться в разных кодировках (сжатой и нет).
+     *
+     * @param prefix префикс вида ресурса (t - таблица, r - строка)
+     * @param stamp  версия
+     * @return значение заголовка ETag
+     */
+    public String etag(String prefix, Stamp stamp) {
+        return "W/\"" + prefix + '-' + epoch + '-' + stamp.version() + '"';
+    }
+
+    /**
+     * Строит сильный ETag строки с версией в базе, например {@code "3-1718000000000-42"}.
+     * Версия в базе после удаления и повторного добавления студента снова начинается с 1,
+     * поэтому в тег входит и версия строки в памяти: другая строка с тем же номером получит другой тег.
+     *
+     * @param rowVersion версия строки в базе (столбец students.version)
+     * @param stamp      версия строки в памяти ({@link #row(String)})
+     * @return значение заголовка ETag
+     */
+    public String rowEtag(int rowVersion, Stamp stamp) {
+        return "\"" + rowVersion + '-' + epoch + '-' + stamp.version() + '"';
+    }
+}
@@ -0,0 +1,150 @@
+package json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Переиспользуемый буфер для записи JSON: Writer, который сразу кодирует символы в UTF-8
+ * во внутренний массив байтов, без промежуточных String и byte[].
+ * <p>
+ * Буфер работает в двух режимах:
+ * - накопление: весь ответ собирается в буфере, затем известна длина для Content-Length
+ * - поток: при заполнении буфер сбрасывается в подключенный OutputStream
+ * <p>
+ * Экземпляры берутся из пула {@link StudentCodec} и возвращаются вызовом {@link #close()}.
+ */
+public final class JsonBuffer extends Writer {
+    private final StudentCodec owner;
+    private byte[] bytes;
+    private int size;
+    private int pendingHighSurrogate = -1; // Старшая половина суррогатной пары, ожидающая младшую
+    private OutputStream sink; // Куда сбрасывать данные в потоковом режиме
+    private int flushThreshold;
+
+    JsonBuffer(StudentCodec owner, int initialCapacity) {
+        this.owner = owner;
+        this.bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * Переключает буфер в потоковый режим: при накоплении flushThreshold байтов они записываются в sink.
+     */
+    void attach(OutputStream sink, int flushThreshold) {
+        this.sink = sink;
+        this.flushThreshold = flushThreshold;
+    }
+
+    void reset() {
+        size = 0;
+        pendingHighSurrogate = -1;
+        sink = null;
+    }
+
+    int capacity() {
+        return bytes.length;
+    }
+
+    /** @return число байтов в буфере */
+    public int length() {
+        return size;
+    }
+
+    /**
+     * Записывает содержимое буфера в поток.
+     *
+     * @param out поток, например тело HTTP-ответа
+     * @throws IOException в случае ошибки ввода-вывода
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+        flushIfFull();
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            encode(chars[i]);
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void write(String str, int offset, int length) throws IOException {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            encode(str.charAt(i));
+        }
+        flushIfFull();
+    }
+
+    private void encode(char c) {
+        ensureCapacity(4);
+        if (pendingHighSurrogate >= 0) {
+            int high = pendingHighSurrogate;
+            pendingHighSurrogate = -1;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint((char) high, c);
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            bytes[size++] = '?'; // Одиночная суррогатная половина, как у стандартного кодировщика
+            ensureCapacity(3);
+        }
+        if (c < 0x80) {
+            bytes[size++] = (byte) c;
+        } else if (c < 0x800) {
+            bytes[size++] = (byte) (0xC0 | (c >> 6));
+            bytes[size++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            bytes[size++] = '?';
+        } else {
+            bytes[size++] = (byte) (0xE0 | (c >> 12));
+            bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[size++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    private void flushIfFull() throws IOException {
+        if (sink != null && size >= flushThreshold) {
+            sink.write(bytes, 0, size);
+            size = 0;
+        }
+    }
+
+    /**
+     * В потоковом режиме записывает остаток буфера в поток и сбрасывает поток.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (sink != null) {
+            sink.write(bytes, 0, size);
+            size = 0;
+            sink.flush();
+        }
+    }
+
+    /**
+     * Возвращает буфер в пул. После вызова буфер использовать нельзя.
+     */
+    @Override
+    public void close() {
+        owner.release(this);
+    }
+}
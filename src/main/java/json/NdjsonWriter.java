@@ -0,0 +1,49 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import model.Student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Потоковая запись студентов в формате NDJSON: один JSON-объект на строку.
+ * Строки кодируются в буфер из пула {@link StudentCodec} и сбрасываются в поток порциями,
+ * поэтому память не зависит от числа строк.
+ */
+public final class NdjsonWriter implements Closeable {
+    private final JsonBuffer buffer;
+    private final OutputStream out;
+    private final StudentTypeAdapter adapter;
+
+    NdjsonWriter(JsonBuffer buffer, OutputStream out, StudentTypeAdapter adapter) {
+        this.buffer = buffer;
+        this.out = out;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Записывает студента отдельной строкой.
+     *
+     * @param student студент
+     * @throws IOException в случае ошибки записи в поток
+     */
+    public void write(Student student) throws IOException {
+        adapter.write(new JsonWriter(buffer), student);
+        buffer.write('\n');
+    }
+
+    /**
+     * Сбрасывает остаток данных в поток, закрывает поток и возвращает буфер в пул.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            buffer.flush();
+            out.close();
+        } finally {
+            buffer.close();
+        }
+    }
+}
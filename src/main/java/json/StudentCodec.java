@@ -0,0 +1,181 @@
+package json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.Student;
+import model.StudentRecord;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Общий потокобезопасный JSON-кодек для API студентов.
+ * <p>
+ * - Gson создается один раз (адаптеры не строятся заново на каждый запрос),
+ *   для Student используется {@link StudentTypeAdapter} без рефлексии, для компактного
+ *   {@link StudentRecord} - {@link StudentRecordTypeAdapter} с тем же форматом
+ * - запросы разбираются потоком прямо из InputStream, без чтения тела в String
+ * - ответы кодируются в UTF-8 сразу в переиспользуемые буферы {@link JsonBuffer} из пула
+ */
+public class StudentCodec {
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024; // Большие буферы не держим в пуле
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final int STREAM_FLUSH_THRESHOLD = 16 * 1024;
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private final Gson gson;
+    private final StudentTypeAdapter studentAdapter = new StudentTypeAdapter();
+    private final StudentRecordTypeAdapter recordAdapter = new StudentRecordTypeAdapter(studentAdapter);
+    private final ConcurrentLinkedQueue<JsonBuffer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public StudentCodec() {
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(Student.class, studentAdapter)
+                .registerTypeAdapter(StudentRecord.class, recordAdapter)
+                .create();
+    }
+
+    /**
+     * @return общий экземпляр Gson с адаптером студента
+     */
+    public Gson gson() {
+        return gson;
+    }
+
+    /**
+     * Читает студента из тела запроса.
+     *
+     * @param body тело запроса
+     * @return студент или null, если тело пустое или содержит null
+     * @throws IOException если тело не является корректным JSON-объектом студента
+     */
+    public Student readStudent(InputStream body) throws IOException {
+        JsonReader reader = newReader(body);
+        try {
+            reader.peek();
+        } catch (EOFException e) {
+            return null; // Пустое тело
+        }
+        try {
+            return studentAdapter.read(reader);
+        } catch (EOFException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed student JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Читает очередного студента из потока (для пакетной загрузки).
+     *
+     * @param reader открытый JsonReader
+     * @return студент или null для JSON null
+     * @throws IOException если значение не является корректным объектом студента
+     */
+    public Student readStudent(JsonReader reader) throws IOException {
+        try {
+            return studentAdapter.read(reader);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed student JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Создает JsonReader, читающий UTF-8 прямо из потока.
+     */
+    public JsonReader newReader(InputStream body) {
+        return new JsonReader(new Utf8Reader(body, READ_BUFFER_SIZE));
+    }
+
+    /**
+     * Записывает студента в открытый JsonWriter.
+     */
+    public void writeStudent(JsonWriter writer, Student student) throws IOException {
+        studentAdapter.write(writer, student);
+    }
+
+    /**
+     * Записывает компактную запись студента в открытый JsonWriter (в формате Student).
+     */
+    public void writeRecord(JsonWriter writer, StudentRecord record) throws IOException {
+        recordAdapter.write(writer, record);
+    }
+
+    /**
+     * Кодирует значение в JSON в буфер из пула. Буфер нужно закрыть после записи в ответ.
+     *
+     * @param value значение (Student, список студентов или другой объект)
+     * @return буфер с JSON в UTF-8
+     */
+    public JsonBuffer encode(Object value) {
+        JsonBuffer buffer = acquire();
+        try {
+            JsonWriter writer = new JsonWriter(buffer);
+            gson.toJson(value, value == null ? Object.class : value.getClass(), writer);
+            return buffer;
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Открывает JsonWriter, пишущий прямо в поток через буфер из пула (для потоковых ответов).
+     * Закрытие JsonWriter сбрасывает остаток данных в поток, закрывает поток и возвращает буфер в пул.
+     *
+     * @param out поток, например тело HTTP-ответа
+     * @return JsonWriter для записи
+     */
+    public JsonWriter streamTo(OutputStream out) {
+        JsonBuffer buffer = acquire();
+        buffer.attach(out, STREAM_FLUSH_THRESHOLD);
+        return new JsonWriter(buffer) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    buffer.flush();
+                    out.close();
+                } finally {
+                    buffer.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Открывает запись студентов в формате NDJSON прямо в поток через буфер из пула.
+     * Закрытие сбрасывает остаток данных, закрывает поток и возвращает буфер в пул.
+     *
+     * @param out поток, например тело HTTP-ответа
+     * @return запись NDJSON
+     */
+    public NdjsonWriter streamLinesTo(OutputStream out) {
+        JsonBuffer buffer = acquire();
+        buffer.attach(out, STREAM_FLUSH_THRESHOLD);
+        return new NdjsonWriter(buffer, out, studentAdapter);
+    }
+
+    private JsonBuffer acquire() {
+        JsonBuffer buffer = pool.poll();
+        if (buffer == null) {
+            return new JsonBuffer(this, INITIAL_BUFFER_SIZE);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    void release(JsonBuffer buffer) {
+        buffer.reset();
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE && pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            pool.offer(buffer);
+        } else if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.StudentRecord;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+
+/**
+ * Сериализация {@link StudentRecord} в тот же JSON, что и для Student: те же имена и порядок полей,
+ * дата рождения строкой YYYY-MM-DD, уникальный номер строкой, null-поля пропускаются.
+ * Клиенты не видят разницы между двумя представлениями.
+ */
+public class StudentRecordTypeAdapter extends TypeAdapter<StudentRecord> {
+    private final StudentTypeAdapter studentAdapter;
+
+    public StudentRecordTypeAdapter(StudentTypeAdapter studentAdapter) {
+        this.studentAdapter = studentAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, StudentRecord record) throws IOException {
+        if (record == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(record.getId());
+        writeString(out, "firstName", record.getFirstName());
+        writeString(out, "lastName", record.getLastName());
+        writeString(out, "patronymic", record.getPatronymic());
+        writeString(out, "birthDate", record.getBirthDateText());
+        writeString(out, "groupName", record.getGroupName());
+        writeString(out, "uniqueNumber", record.getUniqueNumber());
+        StudentTypeAdapter.writeVersion(out, record.getVersion());
+        out.endObject();
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    /**
+     * Читает объект в формате Student.
+     *
+     * @throws IOException если объект некорректен, в том числе если дата рождения не в формате YYYY-MM-DD
+     */
+    @Override
+    public StudentRecord read(JsonReader in) throws IOException {
+        try {
+            return StudentRecord.of(studentAdapter.read(in));
+        } catch (DateTimeException e) {
+            throw new IOException("Birth date must be in format YYYY-MM-DD.", e);
+        }
+    }
+}
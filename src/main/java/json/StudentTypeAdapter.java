@@ -0,0 +1,94 @@
+package json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.Student;
+
+import java.io.IOException;
+
+/**
+ * Сериализация Student без рефлексии. Формат совпадает с тем, что Gson выдает для класса Student
+ * по умолчанию: те же имена и порядок полей, null-поля пропускаются. Неизвестная версия (0) тоже пропускается.
+ */
+public class StudentTypeAdapter extends TypeAdapter<Student> {
+
+    @Override
+    public void write(JsonWriter out, Student student) throws IOException {
+        if (student == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(student.getId());
+        writeString(out, "firstName", student.getFirstName());
+        writeString(out, "lastName", student.getLastName());
+        writeString(out, "patronymic", student.getPatronymic());
+        writeString(out, "birthDate", student.getBirthDate());
+        writeString(out, "groupName", student.getGroupName());
+        writeString(out, "uniqueNumber", student.getUniqueNumber());
+        writeVersion(out, student.getVersion());
+        out.endObject();
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    static void writeVersion(JsonWriter out, int version) throws IOException {
+        if (version > 0) {
+            out.name("version").value(version);
+        }
+    }
+
+    @Override
+    public Student read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Student student = new Student();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> student.setId(readInt(in));
+                case "firstName" -> student.setFirstName(readString(in));
+                case "lastName" -> student.setLastName(readString(in));
+                case "patronymic" -> student.setPatronymic(readString(in));
+                case "birthDate" -> student.setBirthDate(readString(in));
+                case "groupName" -> student.setGroupName(readString(in));
+                case "uniqueNumber" -> student.setUniqueNumber(readString(in));
+                case "version" -> student.setVersion(readInt(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return student;
+    }
+
+    /**
+     * Читает строку так же, как Gson для полей String: числа и логические значения принимаются как текст.
+     */
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    private static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+}
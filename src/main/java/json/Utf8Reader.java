@@ -0,0 +1,126 @@
+package json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Легкий декодер UTF-8 поверх InputStream.
+ * <p>
+ * В отличие от InputStreamReader не создает CharsetDecoder с буфером на 8 КБ на каждый запрос:
+ * тела запросов API маленькие, и такой буфер был основной аллокацией при разборе.
+ * Некорректные последовательности заменяются символом U+FFFD.
+ */
+class Utf8Reader extends Reader {
+    private static final char REPLACEMENT = '�';
+
+    private final InputStream in;
+    private final byte[] bytes;
+    private int position;
+    private int limit;
+    private int pendingLowSurrogate = -1; // Вторая половина суррогатной пары, не поместившаяся в прошлый read
+
+    Utf8Reader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.bytes = new byte[bufferSize];
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        if (pendingLowSurrogate >= 0) {
+            chars[offset + count++] = (char) pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+        }
+        while (count < length) {
+            int b = nextByte(count == 0);
+            if (b < 0) {
+                break;
+            }
+            if (b < 0x80) {
+                chars[offset + count++] = (char) b;
+                continue;
+            }
+            int codePoint = decode(b);
+            if (codePoint < 0x10000) {
+                chars[offset + count++] = (char) codePoint;
+            } else {
+                chars[offset + count++] = Character.highSurrogate(codePoint);
+                char low = Character.lowSurrogate(codePoint);
+                if (count < length) {
+                    chars[offset + count++] = low;
+                } else {
+                    pendingLowSurrogate = low;
+                }
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Декодирует многобайтовую последовательность, начинающуюся с байта lead.
+     */
+    private int decode(int lead) throws IOException {
+        int extra;
+        int codePoint;
+        int min;
+        if ((lead & 0xE0) == 0xC0) {
+            extra = 1;
+            codePoint = lead & 0x1F;
+            min = 0x80;
+        } else if ((lead & 0xF0) == 0xE0) {
+            extra = 2;
+            codePoint = lead & 0x0F;
+            min = 0x800;
+        } else if ((lead & 0xF8) == 0xF0) {
+            extra = 3;
+            codePoint = lead & 0x07;
+            min = 0x10000;
+        } else {
+            return REPLACEMENT;
+        }
+        for (int i = 0; i < extra; i++) {
+            int b = nextByte(true);
+            if (b < 0) {
+                return REPLACEMENT;
+            }
+            if ((b & 0xC0) != 0x80) {
+                position--; // Байт принадлежит следующему символу
+                return REPLACEMENT;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Возвращает очередной байт или -1 в конце потока. Если block == false и буфер пуст,
+     * поток не читается, чтобы read не блокировался, когда часть символов уже прочитана.
+     */
+    private int nextByte(boolean block) throws IOException {
+        if (position == limit) {
+            if (!block && in.available() <= 0) {
+                return -1;
+            }
+            int n = in.read(bytes, 0, bytes.length);
+            if (n <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = n;
+        }
+        return bytes[position++] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,36 @@
+package main;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Фильтр контроля допуска: отвечает 503 Service Unavailable на запросы,
+ * которые {@link RequestExecutor} не принял в работу из-за переполнения очереди.
+ */
+public class AdmissionFilter extends Filter {
+    private static final byte[] BODY = "{\"error\": \"Server is overloaded, try again later\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!RequestExecutor.isShedding()) {
+            chain.doFilter(exchange);
+            return;
+        }
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(503, BODY.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(BODY);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Rejects requests over the pending limit with 503";
+    }
+}
@@ -0,0 +1,94 @@
+package main;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Признак перегрузки для сброса тяжелых запросов (ответ 503 до обращения к базе).
+ * <p>
+ * Раз в период {@link #sample()} сравнивает с порогами:
+ * - среднее ожидание соединения пула за прошедший период (maxPoolWaitMillis)
+ * - число потоков, ждущих соединение прямо сейчас (maxPoolWaiting)
+ * - число принятых, но еще не выполненных запросов (maxPending)
+ * Если превышен хотя бы один порог, до следующей проверки {@link #isOverloaded()} возвращает true.
+ * Порог 0 не проверяется. Проверка запроса - чтение одного volatile-поля.
+ */
+public class LoadShedder {
+    private final LongSupplier totalWaitNanos; // Суммарное ожидание соединений пула
+    private final LongSupplier borrowCount; // Число выданных соединений
+    private final IntSupplier poolWaiting;
+    private final IntSupplier pending;
+
+    private volatile long maxPoolWaitMillis;
+    private volatile int maxPoolWaiting;
+    private volatile int maxPending;
+
+    private long lastWaitNanos;
+    private long lastBorrows;
+    private volatile boolean overloaded;
+    private volatile String reason = "";
+
+    /**
+     * @param totalWaitNanos суммарное время ожидания соединений пула, нс
+     * @param borrowCount    число выданных пулом соединений
+     * @param poolWaiting    число потоков, ждущих соединение
+     * @param pending        число принятых и еще не выполненных HTTP-запросов
+     */
+    public LoadShedder(LongSupplier totalWaitNanos, LongSupplier borrowCount, IntSupplier poolWaiting, IntSupplier pending) {
+        this.totalWaitNanos = totalWaitNanos;
+        this.borrowCount = borrowCount;
+        this.poolWaiting = poolWaiting;
+        this.pending = pending;
+        this.lastWaitNanos = totalWaitNanos.getAsLong();
+        this.lastBorrows = borrowCount.getAsLong();
+    }
+
+    /**
+     * Задает пороги перегрузки; 0 - порог не проверяется.
+     *
+     * @param maxPoolWaitMillis среднее ожидание соединения за период, мс
+     * @param maxPoolWaiting    потоков, ждущих соединение
+     * @param maxPending        принятых и еще не выполненных запросов
+     */
+    public void setThresholds(long maxPoolWaitMillis, int maxPoolWaiting, int maxPending) {
+        this.maxPoolWaitMillis = maxPoolWaitMillis;
+        this.maxPoolWaiting = maxPoolWaiting;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Снимает показатели за прошедший период и обновляет признак перегрузки.
+     * Вызывается из одного потока (планировщика).
+     */
+    public synchronized void sample() {
+        long waitNanos = totalWaitNanos.getAsLong();
+        long borrows = borrowCount.getAsLong();
+        long periodBorrows = borrows - lastBorrows;
+        double averageWaitMillis = periodBorrows > 0 ? (waitNanos - lastWaitNanos) / 1e6 / periodBorrows : 0;
+        lastWaitNanos = waitNanos;
+        lastBorrows = borrows;
+
+        int waiting = poolWaiting.getAsInt();
+        int queued = pending.getAsInt();
+        String cause = null;
+        if (maxPoolWaitMillis > 0 && averageWaitMillis >= maxPoolWaitMillis) {
+            cause = "average pool wait " + Math.round(averageWaitMillis) + " ms";
+        } else if (maxPoolWaiting > 0 && waiting >= maxPoolWaiting) {
+            cause = waiting + " threads waiting for a connection";
+        } else if (maxPending > 0 && queued >= maxPending) {
+            cause = queued + " pending requests";
+        }
+        overloaded = cause != null;
+        reason = cause != null ? cause : "";
+    }
+
+    /** @return true, если при последней проверке был превышен один из порогов */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /** @return какой порог превышен при последней проверке (пусто, если перегрузки нет) */
+    public String getReason() {
+        return reason;
+    }
+}
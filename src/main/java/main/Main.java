@@ -1,18 +1,214 @@
 package main;
 
+import Handler.AuthFilter;
+import Handler.CorsFilter;
+import Handler.MetricsFilter;
+import Handler.MetricsHandler;
+import Handler.RequestDecompressionFilter;
+import Handler.StudentEventsHandler;
 import Handler.StudentHandler;
+import Handler.StudentListCache;
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
+import config.AppConfig;
+import db.ConnectionPool;
+import db.DataSourceRouter;
+import db.DatabaseConfig;
+import db.SchemaMigrator;
+import metrics.Metrics;
+import service.StudentCache;
+import service.StudentEventBroadcaster;
+import service.StudentSearchIndex;
+import service.StudentService;
+import service.WriteBehindQueue;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class Main {
+    private static final long DEFAULT_HEARTBEAT_MS = 15_000;
+    // Настройки, которые применяются без перезапуска при изменении файла настроек
+    private static final Set<String> RELOADABLE = Set.of(
+            "server.maxPending",
+            "db.pool.minSize", "db.pool.maxSize", "db.pool.borrowTimeoutMs", "db.pool.idleTimeoutMs",
+            "db.pool.leakThresholdMs", "db.replicas.stickyMs",
+            "cache.maxSize", "cache.ttlMs", "cache.negativeTtlMs",
+            "writeBehind.batchSize", "writeBehind.offerTimeoutMs",
+            "events.heartbeatMs", "auth.token", "auth.protectReads",
+            "rateLimit.ratePerSecond", "rateLimit.burst", "rateLimit.heavy.ratePerSecond", "rateLimit.heavy.burst",
+            "shed.poolWaitMs", "shed.poolWaiting", "shed.pending");
+
     public static void main(String[] args) throws IOException {
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
-        server.createContext("/api/students", new StudentHandler());
-        server.setExecutor(null);
+        int port = AppConfig.getInt("server.port", 8080);
+        int backlog = AppConfig.getInt("server.backlog", 128); // Очередь входящих соединений ОС
+        int drainSeconds = AppConfig.getInt("server.drainSeconds", 10);
+
+        migrateSchema();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), backlog);
+        RequestExecutor executor = RequestExecutor.fromConfig();
+
+        StudentService studentService = new StudentService();
+        if (AppConfig.getBoolean("writeBehind.enabled", false)) {
+            int recovered = studentService.startWriteBehind(); // До приема запросов: сначала операции из журнала
+            System.out.println("Отложенная запись включена, восстановлено операций из журнала: " + recovered);
+        }
+        StudentHandler studentHandler = new StudentHandler(studentService);
+        ConnectionPool primary = DatabaseConfig.getRouter().getPrimary();
+        RateLimitFilter rateLimitFilter = RateLimitFilter.fromConfig(studentHandler::routeOf, new LoadShedder(
+                primary::getTotalWaitNanos, primary::getBorrowCount, primary::getWaitingCount, executor::getPendingCount));
+        registerMetrics(DatabaseConfig.getRouter(), executor, studentService, studentHandler.getListCache(), rateLimitFilter);
+
+        // Цепочка фильтров: допуск (самый дешевый отказ), метрики, CORS, лимиты клиента и сброс нагрузки,
+        // доступ, распаковка тела
+        AuthFilter authFilter = new AuthFilter();
+        HttpContext context = server.createContext("/api/students", studentHandler);
+        context.getFilters().addAll(List.of(new AdmissionFilter(), new MetricsFilter(studentHandler::routeOf),
+                new CorsFilter("GET, POST, PUT, DELETE, OPTIONS",
+                        "Authorization, Content-Type, Content-Encoding, If-Match, If-None-Match, If-Modified-Since, X-Client-Id",
+                        "ETag, Last-Modified, X-Next-After, Location, Retry-After"),
+                rateLimitFilter, authFilter, new RequestDecompressionFilter()));
+        StudentEventsHandler eventsHandler = new StudentEventsHandler(studentService.getEvents(),
+                AppConfig.getLong("events.heartbeatMs", DEFAULT_HEARTBEAT_MS));
+        HttpContext events = server.createContext("/api/students/events", eventsHandler);
+        events.getFilters().addAll(List.of(new AdmissionFilter(), new MetricsFilter(eventsHandler::routeOf),
+                new CorsFilter("GET, OPTIONS", "Authorization, Last-Event-ID", null), authFilter));
+        server.createContext("/metrics", new MetricsHandler());
+        server.setExecutor(executor);
         server.start();
-        System.out.println("Сервер запущен на порту 8080");
+        loadSearchIndex(studentService);
+        AppConfig.addReloadListener(changed -> applySettings(changed, executor, studentService, eventsHandler, authFilter,
+                rateLimitFilter));
+        AppConfig.startWatching();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(server, executor, studentService, drainSeconds), "shutdown"));
+        System.out.println("Сервер запущен на порту " + port + " (" + executor.getMode() + ")");
+    }
+
+    /**
+     * Применяет миграции схемы базы данных. Если база недоступна, сервер все равно запускается,
+     * как и раньше, а запросы к базе будут возвращать ошибку до ее появления.
+     */
+    private static void migrateSchema() {
+        try {
+            int applied = new SchemaMigrator(DatabaseConfig.getPool()).migrate();
+            System.out.println("Применено миграций схемы: " + applied);
+        } catch (SQLException e) {
+            System.err.println("Не удалось применить миграции схемы: " + e.getMessage());
+        }
     }
-}
 
+    /**
+     * Заполняет поисковый индекс в фоне, чтобы не задерживать запуск сервера на больших таблицах.
+     * До завершения загрузки поиск возвращает только уже загруженных студентов.
+     */
+    private static void loadSearchIndex(StudentService studentService) {
+        Thread loader = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                studentService.loadSearchIndex();
+                System.out.println("Поисковый индекс загружен: " + studentService.getSearchIndex().size()
+                        + " студентов за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+            } catch (SQLException | IOException e) {
+                System.err.println("Не удалось загрузить поисковый индекс: " + e.getMessage());
+            }
+        }, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Применяет настройки после изменения файла настроек. Остальные изменившиеся настройки
+     * (порт, потоки, адрес базы, емкости буферов) вступят в силу после перезапуска.
+     */
+    private static void applySettings(Set<String> changed, RequestExecutor executor, StudentService studentService,
+                                      StudentEventsHandler eventsHandler, AuthFilter authFilter,
+                                      RateLimitFilter rateLimitFilter) {
+        executor.setMaxPending(AppConfig.getInt("server.maxPending", RequestExecutor.DEFAULT_MAX_PENDING));
+        DatabaseConfig.reloadSettings();
+        studentService.reloadSettings();
+        eventsHandler.setHeartbeatMillis(AppConfig.getLong("events.heartbeatMs", DEFAULT_HEARTBEAT_MS));
+        authFilter.reloadSettings();
+        rateLimitFilter.reloadSettings();
+        Set<String> restartRequired = new TreeSet<>(changed);
+        restartRequired.removeAll(RELOADABLE);
+        if (!restartRequired.isEmpty()) {
+            System.out.println("Изменения настроек вступят в силу после перезапуска: " + restartRequired);
+        }
+    }
+
+    /**
+     * Регистрирует метрики пула соединений, исполнителя запросов, лимитов клиентов и кэшей студентов для /metrics.
+     */
+    private static void registerMetrics(DataSourceRouter router, RequestExecutor executor, StudentService studentService,
+                                        StudentListCache listCache, RateLimitFilter rateLimitFilter) {
+        StudentCache cache = studentService.getCache();
+        StudentSearchIndex searchIndex = studentService.getSearchIndex();
+        StudentEventBroadcaster events = studentService.getEvents();
+        ConnectionPool pool = router.getPrimary();
+        Metrics.registerGauge("db_pool_active_connections", "Connections currently borrowed from the pool", false, pool::getActiveCount);
+        Metrics.registerGauge("db_pool_idle_connections", "Idle connections in the pool", false, pool::getIdleCount);
+        Metrics.registerGauge("db_pool_waiting_threads", "Threads waiting for a connection", false, pool::getWaitingCount);
+        Metrics.registerGauge("db_pool_timeouts_total", "Connection borrow timeouts", true, pool::getTimeoutCount);
+        Metrics.registerGauge("db_pool_leaks_total", "Connections held longer than the leak threshold", true, pool::getLeakCount);
+        Metrics.registerGauge("db_pool_wait_seconds_total", "Total time spent waiting for connections", true,
+                () -> pool.getTotalWaitNanos() / 1e9);
+        Metrics.registerGauge("db_pool_statement_cache_hits_total", "Prepared statements reused from the per-connection cache", true,
+                pool::getStatementCacheHits);
+        Metrics.registerGauge("db_pool_statement_cache_misses_total", "Prepared statements prepared anew", true,
+                pool::getStatementCacheMisses);
+        if (router.getReplicaCount() > 0) {
+            Metrics.registerGauge("db_replicas_healthy", "Read replicas that passed the last health check", false, router::getHealthyReplicaCount);
+            Metrics.registerGauge("db_replica_reads_total", "Connections borrowed from read replicas", true, router::getReplicaReadCount);
+            Metrics.registerGauge("db_primary_reads_total", "Reads served by the primary (sticky, pinned or no healthy replica)", true, router::getPrimaryReadCount);
+            Metrics.registerGauge("db_replica_failovers_total", "Reads moved to the primary after a replica connection failed", true, router::getReplicaFailoverCount);
+        }
+        Metrics.registerGauge("http_pending_requests", "Accepted requests not yet completed", false, executor::getPendingCount);
+        Metrics.registerGauge("http_rejected_total", "Requests rejected with 503 by admission control", true, executor::getRejectedCount);
+        Metrics.registerGauge("http_dropped_total", "Connections closed without a response because the 503 queue was full", true, executor::getDroppedCount);
+        Metrics.registerGauge("http_rate_limited_total", "Requests rejected with 429 by per-client rate limits", true, rateLimitFilter::getLimitedCount);
+        Metrics.registerGauge("http_shed_total", "Heavy requests rejected with 503 while overloaded", true, rateLimitFilter::getShedCount);
+        Metrics.registerGauge("http_overloaded", "1 while pool wait or queue depth is over the shedding thresholds", false,
+                () -> rateLimitFilter.getShedder().isOverloaded() ? 1 : 0);
+        Metrics.registerGauge("rate_limit_clients", "Clients with partially drained rate limit buckets", false, rateLimitFilter::getClientCount);
+        Metrics.registerGauge("student_cache_hits_total", "Student cache hits", true, cache::getHitCount);
+        Metrics.registerGauge("student_cache_misses_total", "Student cache misses", true, cache::getMissCount);
+        Metrics.registerGauge("student_cache_evictions_total", "Student cache evictions", true, cache::getEvictionCount);
+        Metrics.registerGauge("student_cache_size", "Entries in the student cache", false, cache::size);
+        Metrics.registerGauge("student_list_cache_hits_total", "Full list responses served from the serialized snapshot", true, listCache::getHitCount);
+        Metrics.registerGauge("student_list_cache_misses_total", "Full list responses streamed from the database", true, listCache::getMissCount);
+        Metrics.registerGauge("student_search_index_documents", "Students in the in-memory search index", false, searchIndex::size);
+        Metrics.registerGauge("student_search_index_ready", "1 when the search index has been fully loaded", false,
+                () -> searchIndex.isReady() ? 1 : 0);
+        Metrics.registerGauge("student_list_cache_bytes", "Size of the cached uncompressed student list", false, listCache::getSizeBytes);
+        Metrics.registerGauge("student_events_subscribers", "Open /api/students/events streams", false, events::getSubscriberCount);
+        Metrics.registerGauge("student_events_published_total", "Student change events published", true, events::getPublishedCount);
+        Metrics.registerGauge("student_events_dropped_total", "Event streams closed because the subscriber fell behind", true, events::getDroppedCount);
+        WriteBehindQueue writeBehind = studentService.getWriteBehind();
+        if (writeBehind != null) {
+            Metrics.registerGauge("write_behind_queue_depth", "Accepted writes waiting for the database", false, writeBehind::getQueueDepth);
+            Metrics.registerGauge("write_behind_queue_capacity", "Capacity of the write-behind buffer", false, writeBehind::getCapacity);
+            Metrics.registerGauge("write_behind_applied_total", "Writes applied to the database", true, writeBehind::getAppliedCount);
+            Metrics.registerGauge("write_behind_failed_total", "Writes rejected by the database (conflict, not found)", true, writeBehind::getFailedCount);
+            Metrics.registerGauge("write_behind_rejected_total", "Writes rejected with 503 because the buffer was full", true, writeBehind::getRejectedCount);
+            Metrics.registerGauge("write_behind_batches_total", "Write-behind transactions committed", true, writeBehind::getBatchCount);
+        }
+    }
+
+    /**
+     * Плавная остановка: потоки событий закрываются, сервер перестает принимать соединения, дожидается завершения
+     * начатых запросов и записи принятых отложенных операций, после чего закрывается пул соединений с базой данных.
+     */
+    private static void shutdown(HttpServer server, RequestExecutor executor, StudentService studentService, int drainSeconds) {
+        System.out.println("Остановка сервера...");
+        studentService.getEvents().close(); // Иначе открытые потоки событий задержали бы остановку
+        server.stop(drainSeconds);
+        executor.shutdown(drainSeconds);
+        studentService.stopWriteBehind(drainSeconds);
+        DatabaseConfig.closeConnection();
+    }
+}
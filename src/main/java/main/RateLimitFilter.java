@@ -0,0 +1,193 @@
+package main;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import config.AppConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Фильтр ограничения частоты запросов и сброса нагрузки.
+ * <p>
+ * - у каждого клиента (адрес или значение заголовка rateLimit.keyHeader) свое ведро жетонов
+ *   в каждом бюджете: тяжелые маршруты (rateLimit.heavyRoutes: полный список, выдача номеров, выгрузка,
+ *   загрузка) расходуют бюджет rateLimit.heavy.*, остальные - общий rateLimit.*. Без жетона - 429
+ * - при перегрузке (см. {@link LoadShedder}: ожидание соединения пула, ждущие потоки, очередь запросов)
+ *   тяжелые маршруты получают 503, не дойдя до базы; легкие (студент из кэша, изменения) продолжают работать.
+ *   Общий предел одновременных запросов по-прежнему проверяет {@link AdmissionFilter}
+ * В обоих случаях ответ содержит Retry-After. Очистка простаивающих ведер и проверка перегрузки
+ * выполняются фоновым потоком.
+ */
+public class RateLimitFilter extends Filter {
+    private static final Logger logger = Logger.getLogger(RateLimitFilter.class.getName());
+    private static final byte[] LIMITED_BODY = "{\"error\": \"Too many requests, try again later\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SHED_BODY = "{\"error\": \"Server is overloaded, try again later\"}".getBytes(StandardCharsets.UTF_8);
+    private static final String DEFAULT_HEAVY_ROUTES = "GET /api/students/, GET /api/students/generateUniqueNumber, "
+            + "GET /api/students/export, POST /api/students/import, POST /api/students/batch";
+
+    private final Function<HttpExchange, String> routeOf;
+    private final RateLimiter defaultBudget;
+    private final RateLimiter heavyBudget;
+    private final Map<String, Map<String, RateLimiter>> budgets = new HashMap<>(); // Метод -> маршрут -> бюджет
+    private final LoadShedder shedder;
+    private final String keyHeader; // Заголовок с ключом клиента или null - по адресу
+    private final boolean enabled;
+    private final LongAdder shed = new LongAdder();
+    private ScheduledExecutorService housekeeper;
+
+    /**
+     * @param routeOf       шаблон маршрута запроса (как в метриках)
+     * @param defaultBudget бюджет обычных маршрутов
+     * @param heavyBudget   бюджет тяжелых маршрутов
+     * @param heavyRoutes   тяжелые маршруты: "МЕТОД шаблон" через запятую
+     * @param shedder       признак перегрузки
+     * @param keyHeader     заголовок с ключом клиента (например, X-Api-Key) или пусто, чтобы различать клиентов по адресу
+     * @param enabled       false - фильтр пропускает все запросы
+     */
+    private RateLimitFilter(Function<HttpExchange, String> routeOf, RateLimiter defaultBudget, RateLimiter heavyBudget,
+                            String heavyRoutes, LoadShedder shedder, String keyHeader, boolean enabled) {
+        this.routeOf = routeOf;
+        this.defaultBudget = defaultBudget;
+        this.heavyBudget = heavyBudget;
+        this.shedder = shedder;
+        this.keyHeader = keyHeader == null || keyHeader.isBlank() ? null : keyHeader.trim();
+        this.enabled = enabled;
+        for (String entry : heavyRoutes.split(",")) {
+            String[] parts = entry.trim().split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Heavy route must be 'METHOD /path': " + entry);
+            }
+            budgets.computeIfAbsent(parts[0], method -> new HashMap<>()).put(parts[1], heavyBudget);
+        }
+    }
+
+    /**
+     * Создает фильтр по настройкам rateLimit.* и shed.* и запускает фоновую проверку перегрузки
+     * и очистку простаивающих ведер.
+     *
+     * @param routeOf  шаблон маршрута запроса
+     * @param shedder  признак перегрузки, построенный по пулу соединений и исполнителю запросов
+     * @return фильтр
+     */
+    public static RateLimitFilter fromConfig(Function<HttpExchange, String> routeOf, LoadShedder shedder) {
+        RateLimitFilter filter = new RateLimitFilter(routeOf,
+                new RateLimiter("default", 0, 0), new RateLimiter("heavy", 0, 0),
+                AppConfig.get("rateLimit.heavyRoutes", DEFAULT_HEAVY_ROUTES), shedder,
+                AppConfig.get("rateLimit.keyHeader", ""), AppConfig.getBoolean("rateLimit.enabled", true));
+        filter.reloadSettings();
+        long sampleMillis = AppConfig.getLong("shed.sampleMs", 100);
+        long evictMillis = AppConfig.getLong("rateLimit.idleEvictMs", 10_000);
+        filter.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        filter.housekeeper.scheduleWithFixedDelay(filter::sampleLoad, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+        filter.housekeeper.scheduleWithFixedDelay(filter::evictIdle, evictMillis, evictMillis, TimeUnit.MILLISECONDS);
+        return filter;
+    }
+
+    /**
+     * Применяет измененные лимиты (rateLimit.ratePerSecond, rateLimit.burst, rateLimit.heavy.*) и пороги shed.*.
+     */
+    public void reloadSettings() {
+        defaultBudget.setLimits(AppConfig.getInt("rateLimit.ratePerSecond", 100), AppConfig.getInt("rateLimit.burst", 200));
+        heavyBudget.setLimits(AppConfig.getInt("rateLimit.heavy.ratePerSecond", 5), AppConfig.getInt("rateLimit.heavy.burst", 20));
+        shedder.setThresholds(AppConfig.getLong("shed.poolWaitMs", 200), AppConfig.getInt("shed.poolWaiting", 0),
+                AppConfig.getInt("shed.pending", 0));
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!enabled) {
+            chain.doFilter(exchange);
+            return;
+        }
+        RateLimiter budget = budgetOf(exchange);
+        if (budget == heavyBudget && shedder.isOverloaded()) {
+            shed.increment();
+            reject(exchange, 503, 1, SHED_BODY);
+            return;
+        }
+        long waitNanos = budget.tryAcquire(clientKeyOf(exchange));
+        if (waitNanos > 0) {
+            reject(exchange, 429, (waitNanos + 999_999_999) / 1_000_000_000, LIMITED_BODY);
+            return;
+        }
+        chain.doFilter(exchange);
+    }
+
+    private RateLimiter budgetOf(HttpExchange exchange) {
+        Map<String, RateLimiter> byRoute = budgets.get(exchange.getRequestMethod());
+        RateLimiter budget = byRoute == null ? null : byRoute.get(routeOf.apply(exchange));
+        return budget != null ? budget : defaultBudget;
+    }
+
+    private String clientKeyOf(HttpExchange exchange) {
+        if (keyHeader != null) {
+            String key = exchange.getRequestHeaders().getFirst(keyHeader);
+            if (key != null && !key.isBlank()) {
+                return key;
+            }
+        }
+        return exchange.getRemoteAddress() != null ? exchange.getRemoteAddress().getAddress().getHostAddress() : "";
+    }
+
+    private static void reject(HttpExchange exchange, int responseCode, long retryAfterSeconds, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().set("Retry-After", Long.toString(Math.max(1, retryAfterSeconds)));
+        exchange.sendResponseHeaders(responseCode, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private void sampleLoad() {
+        boolean wasOverloaded = shedder.isOverloaded();
+        shedder.sample();
+        if (shedder.isOverloaded() != wasOverloaded) {
+            logger.info(shedder.isOverloaded() ? "Shedding heavy requests: " + shedder.getReason()
+                    : "Load is back to normal, heavy requests are accepted");
+        }
+    }
+
+    private void evictIdle() {
+        defaultBudget.evictIdle();
+        heavyBudget.evictIdle();
+    }
+
+    /** @return число запросов, отклоненных с 429 */
+    public long getLimitedCount() {
+        return defaultBudget.getLimitedCount() + heavyBudget.getLimitedCount();
+    }
+
+    /** @return число тяжелых запросов, сброшенных с 503 из-за перегрузки */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /** @return число клиентов с неполными ведрами */
+    public int getClientCount() {
+        return defaultBudget.getClientCount() + heavyBudget.getClientCount();
+    }
+
+    /** @return признак перегрузки */
+    public LoadShedder getShedder() {
+        return shedder;
+    }
+
+    @Override
+    public String description() {
+        return "Per-client token bucket rate limiting and load shedding";
+    }
+}
@@ -0,0 +1,127 @@
+package main;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничение частоты запросов каждого клиента по алгоритму "ведро с жетонами" (token bucket).
+ * <p>
+ * - ведро вмещает burst жетонов и пополняется со скоростью ratePerSecond; каждый запрос забирает один жетон
+ * - состояние ведра - одно число: момент, когда ведро снова станет полным (как в GCRA).
+ *   Оно меняется одним compareAndSet, поэтому запросы не берут блокировок; ведра клиентов хранятся
+ *   в ConcurrentHashMap, которая блокирует только свою корзину и только при появлении нового клиента
+ * - наполнившееся ведро не отличается от нового, поэтому такие записи удаляются {@link #evictIdle()}:
+ *   память зависит от числа клиентов, активных за последний период очистки, а не от всех, кто обращался
+ * Если запись удалена в момент запроса этого клиента, запрос может не уменьшить новое ведро,
+ * то есть клиент редко получает один лишний жетон.
+ */
+public class RateLimiter {
+    private final String name;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>(); // Клиент -> момент наполнения ведра
+    private volatile long intervalNanos; // Время пополнения одного жетона (0 - без ограничения)
+    private volatile long capacityNanos; // Время пополнения полного ведра: burst * intervalNanos
+    private volatile double ratePerSecond;
+    private final LongAdder limited = new LongAdder();
+
+    /**
+     * @param name          название бюджета (для журнала и метрик)
+     * @param ratePerSecond жетонов в секунду; 0 - без ограничения
+     * @param burst         емкость ведра: сколько запросов подряд допускается после паузы
+     */
+    public RateLimiter(String name, double ratePerSecond, int burst) {
+        this.name = name;
+        setLimits(ratePerSecond, burst);
+    }
+
+    /**
+     * Меняет скорость и емкость (для уже известных клиентов - с их текущим состоянием ведра).
+     *
+     * @param ratePerSecond жетонов в секунду; 0 - без ограничения
+     * @param burst         емкость ведра
+     * @throws IllegalArgumentException если значения отрицательные или емкость меньше 1 при ограничении
+     */
+    public void setLimits(double ratePerSecond, int burst) {
+        if (ratePerSecond < 0 || ratePerSecond > 0 && burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit '" + name + "': ratePerSecond=" + ratePerSecond
+                    + ", burst=" + burst);
+        }
+        long interval = ratePerSecond == 0 ? 0 : Math.max(1, Math.round(1_000_000_000 / ratePerSecond));
+        this.intervalNanos = interval;
+        this.capacityNanos = interval * burst;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    /**
+     * Забирает жетон клиента.
+     *
+     * @param client ключ клиента (адрес или ключ API)
+     * @return 0, если запрос разрешен, иначе через сколько наносекунд появится жетон
+     */
+    public long tryAcquire(String client) {
+        return tryAcquire(client, System.nanoTime());
+    }
+
+    /**
+     * Забирает жетон клиента на указанный момент.
+     *
+     * @param client ключ клиента
+     * @param now    текущий момент в System.nanoTime()
+     * @return 0, если запрос разрешен, иначе через сколько наносекунд появится жетон
+     */
+    public long tryAcquire(String client, long now) {
+        long interval = intervalNanos;
+        if (interval == 0) {
+            return 0;
+        }
+        long capacity = capacityNanos;
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(client, key -> new AtomicLong(now)); // Новый клиент - полное ведро
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = (full - now > 0 ? full : now) + interval;
+            long overflow = next - now - capacity;
+            if (overflow > 0) {
+                limited.increment();
+                return overflow; // Жетонов нет: столько ждать, пока освободится место для еще одного
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Удаляет ведра, которые уже наполнились: такие клиенты давно не обращались.
+     *
+     * @return число удаленных записей
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return Math.max(0, before - buckets.size());
+    }
+
+    /** @return название бюджета */
+    public String getName() {
+        return name;
+    }
+
+    /** @return скорость пополнения, жетонов в секунду (0 - без ограничения) */
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /** @return число клиентов, ведра которых еще не наполнились */
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    /** @return число отклоненных запросов */
+    public long getLimitedCount() {
+        return limited.sum();
+    }
+}
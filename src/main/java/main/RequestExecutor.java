@@ -0,0 +1,192 @@
+package main;
+
+import config.AppConfig;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Исполнитель запросов для HttpServer.
+ * <p>
+ * Поддерживает две модели выполнения:
+ * - PLATFORM - ограниченный пул платформенных потоков
+ * - VIRTUAL - отдельный виртуальный поток на каждый запрос
+ * <p>
+ * Число принятых, но еще не завершенных запросов ограничено. Запросы сверх лимита не попадают
+ * в рабочую очередь, а выполняются несколькими потоками отказа: {@link AdmissionFilter}
+ * сразу отвечает на них кодом 503, не доходя до обработчика и базы данных.
+ * Очередь отказов тоже ограничена: если и она заполнена (медленные клиенты заняли потоки отказа),
+ * {@link #execute} бросает RejectedExecutionException и HttpServer закрывает соединение без ответа.
+ */
+public class RequestExecutor implements Executor {
+
+    /**
+     * Модель выполнения запросов.
+     */
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    static final int DEFAULT_MAX_PENDING = 512;
+    private static final int SHED_THREADS = 2;
+    private static final int SHED_QUEUE_SIZE = 64;
+    private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+
+    private final Mode mode;
+    private volatile int maxPending; // Сколько запросов может одновременно ждать и выполняться
+    private final ExecutorService workers;
+    private final ExecutorService shedder; // Потоки, которые отвечают 503 на запросы сверх лимита
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Создает исполнитель.
+     *
+     * @param mode модель выполнения
+     * @param threads число платформенных потоков (для режима PLATFORM)
+     * @param maxPending лимит одновременно принятых запросов
+     */
+    public RequestExecutor(Mode mode, int threads, int maxPending) {
+        this.mode = mode;
+        this.maxPending = maxPending;
+        this.workers = switch (mode) {
+            case PLATFORM -> Executors.newFixedThreadPool(threads, namedThreads("http-worker-", false));
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vworker-", 0).factory());
+        };
+        this.shedder = new ThreadPoolExecutor(SHED_THREADS, SHED_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SHED_QUEUE_SIZE), namedThreads("http-shedder-", true),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Создает исполнитель по настройкам server.executor (virtual|platform),
+     * server.threads и server.maxPending.
+     *
+     * @return настроенный исполнитель
+     */
+    public static RequestExecutor fromConfig() {
+        Mode mode = Mode.valueOf(AppConfig.get("server.executor", "virtual").toUpperCase());
+        int threads = AppConfig.getInt("server.threads", Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        int maxPending = AppConfig.getInt("server.maxPending", DEFAULT_MAX_PENDING);
+        return new RequestExecutor(mode, threads, maxPending);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejected.increment();
+            try {
+                shedder.execute(() -> {
+                    SHEDDING.set(Boolean.TRUE);
+                    try {
+                        task.run();
+                    } finally {
+                        SHEDDING.remove();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                dropped.increment(); // HttpServer закроет соединение: ответ 503 тоже стоит потока
+                throw e;
+            }
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Проверяет, выполняется ли текущий запрос в режиме отказа (превышен лимит очереди).
+     *
+     * @return true, если на запрос нужно ответить 503
+     */
+    public static boolean isShedding() {
+        return SHEDDING.get() != null;
+    }
+
+    /**
+     * Останавливает исполнитель, дожидаясь завершения уже принятых запросов.
+     *
+     * @param timeoutSeconds сколько ждать завершения
+     * @return true, если все запросы завершились вовремя
+     */
+    public boolean shutdown(long timeoutSeconds) {
+        workers.shutdown();
+        shedder.shutdown();
+        try {
+            boolean drained = workers.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+            if (!drained) {
+                workers.shutdownNow();
+            }
+            return drained;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+            return false;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** @return число принятых и еще не завершенных запросов */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * Меняет лимит одновременно принятых запросов на работающем сервере.
+     *
+     * @param maxPending новый лимит
+     */
+    public void setMaxPending(int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("Invalid server.maxPending: " + maxPending);
+        }
+        this.maxPending = maxPending;
+    }
+
+    /** @return число запросов, отклоненных из-за превышения лимита */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** @return число соединений, закрытых без ответа, потому что заполнена и очередь отказов */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private static ThreadFactory namedThreads(String prefix, boolean daemon) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.getAndIncrement());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+}
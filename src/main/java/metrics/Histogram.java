@@ -0,0 +1,131 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Неблокирующая гистограмма длительностей в наносекундах с лог-линейными корзинами (в стиле HDR).
+ * <p>
+ * Каждый интервал [2^k, 2^(k+1)) делится на 16 равных корзин, поэтому относительная погрешность
+ * не превышает 1/16 (~6%) во всем диапазоне long. Запись - одно атомарное увеличение счетчика,
+ * без блокировок и выделения памяти.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 16 корзин на каждую степень двойки
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Записывает длительность.
+     *
+     * @param nanos длительность в наносекундах
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Записывает время, прошедшее с момента start.
+     *
+     * @param startNanos момент начала в System.nanoTime()
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /** @return сумма всех записанных длительностей в наносекундах */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /** @return максимальная записанная длительность в наносекундах */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Возвращает оценку перцентиля (верхнюю границу корзины, в которую он попадает).
+     *
+     * @param percentile перцентиль от 0 до 100
+     * @return значение в наносекундах или 0, если записей нет
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Возвращает накопленные счетчики для заданных верхних границ (как в гистограмме Prometheus).
+     *
+     * @param boundsNanos возрастающие верхние границы в наносекундах
+     * @return для каждой границы - число записей со значением не больше нее
+     */
+    public long[] cumulativeCounts(long[] boundsNanos) {
+        long[] result = new long[boundsNanos.length];
+        int bound = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && bound < boundsNanos.length; i++) {
+            long upper = upperBoundOf(i);
+            while (bound < boundsNanos.length && upper > boundsNanos[bound]) {
+                result[bound++] = seen;
+            }
+            seen += counts.get(i);
+        }
+        while (bound < boundsNanos.length) {
+            result[bound++] = seen;
+        }
+        return result;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
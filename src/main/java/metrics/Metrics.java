@@ -0,0 +1,126 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Реестр метрик приложения и их вывод в текстовом формате Prometheus.
+ * <p>
+ * - длительность HTTP-запросов по методу и маршруту (гистограмма)
+ * - число HTTP-ответов по методу, маршруту и коду
+ * - длительность операций StudentDAO (гистограмма)
+ * - произвольные значения (gauge), например состояние пула соединений и кэша
+ * <p>
+ * Запись метрик не использует блокировок; вывод собирается при каждом запросе /metrics.
+ */
+public final class Metrics {
+    // Границы корзин гистограмм Prometheus в секундах
+    private static final double[] BUCKETS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final long[] BUCKETS_NANOS = new long[BUCKETS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+            BUCKETS_NANOS[i] = (long) (BUCKETS_SECONDS[i] * 1_000_000_000L);
+        }
+    }
+
+    private static final Map<String, Histogram> httpDurations = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> httpResponses = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> dbDurations = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Записывает завершенный HTTP-запрос.
+     *
+     * @param method HTTP-метод
+     * @param route шаблон маршрута (например /api/students/{uniqueNumber})
+     * @param status код ответа
+     * @param startNanos момент начала обработки в System.nanoTime()
+     */
+    public static void recordHttp(String method, String route, int status, long startNanos) {
+        String labels = "method=\"" + method + "\",route=\"" + route + "\"";
+        httpDurations.computeIfAbsent(labels, k -> new Histogram()).recordSince(startNanos);
+        httpResponses.computeIfAbsent(labels + ",code=\"" + status + "\"", k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Возвращает гистограмму длительности операции с базой данных.
+     * Ссылку стоит получить один раз и хранить в статическом поле.
+     *
+     * @param operation имя операции
+     * @return гистограмма операции
+     */
+    public static Histogram dbOperation(String operation) {
+        return dbDurations.computeIfAbsent("operation=\"" + operation + "\"", k -> new Histogram());
+    }
+
+    /**
+     * Регистрирует значение, вычисляемое при каждом выводе метрик.
+     *
+     * @param name имя метрики Prometheus
+     * @param help описание
+     * @param counter true - монотонный счетчик, false - текущее значение
+     * @param value источник значения
+     */
+    public static void registerGauge(String name, String help, boolean counter, Supplier<? extends Number> value) {
+        gauges.put(name, new Gauge(help, counter, value));
+    }
+
+    /**
+     * Выводит все метрики в текстовом формате Prometheus (версия 0.0.4).
+     *
+     * @return текст метрик
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(8192);
+        writeHistograms(out, "http_request_duration_seconds", "HTTP request latency", httpDurations);
+        out.append("# HELP http_requests_total HTTP responses by method, route and status code\n");
+        out.append("# TYPE http_requests_total counter\n");
+        httpResponses.forEach((labels, counter) ->
+                out.append("http_requests_total{").append(labels).append("} ").append(counter.sum()).append('\n'));
+        writeHistograms(out, "db_operation_duration_seconds", "StudentDAO operation latency", dbDurations);
+
+        new ConcurrentSkipListMap<>(gauges).forEach((name, gauge) -> {
+            out.append("# HELP ").append(name).append(' ').append(gauge.help).append('\n');
+            out.append("# TYPE ").append(name).append(gauge.counter ? " counter\n" : " gauge\n");
+            out.append(name).append(' ').append(format(gauge.value.get().doubleValue())).append('\n');
+        });
+        return out.toString();
+    }
+
+    private static void writeHistograms(StringBuilder out, String name, String help, Map<String, Histogram> histograms) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        histograms.forEach((labels, histogram) -> {
+            long count = histogram.getCount();
+            long[] cumulative = histogram.cumulativeCounts(BUCKETS_NANOS);
+            for (int i = 0; i < cumulative.length; i++) {
+                out.append(name).append("_bucket{").append(labels).append(",le=\"")
+                        .append(format(BUCKETS_SECONDS[i])).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append(name).append("_sum{").append(labels).append("} ")
+                    .append(format(histogram.getSum() / 1e9)).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+        });
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private record Gauge(String help, boolean counter, Supplier<? extends Number> value) {
+    }
+}
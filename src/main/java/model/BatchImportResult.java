@@ -0,0 +1,120 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результат пакетного добавления студентов: общие счетчики и статус каждой строки.
+ */
+public class BatchImportResult {
+
+    public static final String CREATED = "created"; // Студент добавлен
+    public static final String CONFLICT = "conflict"; // Уникальный номер уже занят
+    public static final String INVALID = "invalid"; // Строка не прошла проверку
+
+    private int total; // Сколько строк обработано
+    private int created; // Сколько студентов добавлено
+    private int conflicts; // Сколько строк пропущено из-за занятого номера
+    private int invalid; // Сколько строк не прошли проверку
+    private String error; // Ошибка, прервавшая обработку (если была)
+    private final List<RowResult> results = new ArrayList<>(); // Статус каждой строки
+    private final transient boolean problemsOnly; // Хранить только строки conflict и invalid
+    private final transient int maxResults; // Сколько строк хранить не больше
+
+    public BatchImportResult() {
+        this(false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Создает результат с ограниченным списком строк (для больших загрузок, где статус
+     * каждой строки занял бы память пропорционально числу строк). Счетчики ведутся по всем строкам.
+     *
+     * @param problemsOnly хранить только строки со статусом CONFLICT и INVALID
+     * @param maxResults   сколько строк хранить не больше
+     */
+    public BatchImportResult(boolean problemsOnly, int maxResults) {
+        this.problemsOnly = problemsOnly;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Добавляет результат обработки строки и обновляет счетчики.
+     *
+     * @param index номер строки во входных данных (с нуля)
+     * @param uniqueNumber уникальный номер студента из строки
+     * @param status статус строки: CREATED, CONFLICT или INVALID
+     * @param message пояснение (для ошибочных строк), может быть null
+     */
+    public void addRow(int index, String uniqueNumber, String status, String message) {
+        total++;
+        switch (status) {
+            case CREATED -> created++;
+            case CONFLICT -> conflicts++;
+            default -> invalid++;
+        }
+        if ((!problemsOnly || !CREATED.equals(status)) && results.size() < maxResults) {
+            results.add(new RowResult(index, uniqueNumber, status, message));
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<RowResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Результат обработки одной строки.
+     */
+    public static class RowResult {
+        private final int index;
+        private final String uniqueNumber;
+        private final String status;
+        private final String message;
+
+        public RowResult(int index, String uniqueNumber, String status, String message) {
+            this.index = index;
+            this.uniqueNumber = uniqueNumber;
+            this.status = status;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getUniqueNumber() {
+            return uniqueNumber;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+import java.util.Map;
+
+/**
+ * Статистика одной группы: число студентов и распределения по году рождения и возрасту.
+ * Объект неизменяемый, его можно отдавать нескольким запросам.
+ */
+public class GroupStats {
+
+    private final String group; // Название группы
+    private final int count; // Число студентов
+    private final int withoutBirthDate; // Сколько студентов без даты рождения (не входят в распределения)
+    private final Map<Integer, Integer> birthYears; // Год рождения -> число студентов, по возрастанию года
+    private final Map<Integer, Integer> ages; // Полных лет на дату расчета -> число студентов, по возрастанию
+
+    public GroupStats(String group, int count, int withoutBirthDate,
+                      Map<Integer, Integer> birthYears, Map<Integer, Integer> ages) {
+        this.group = group;
+        this.count = count;
+        this.withoutBirthDate = withoutBirthDate;
+        this.birthYears = birthYears;
+        this.ages = ages;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getWithoutBirthDate() {
+        return withoutBirthDate;
+    }
+
+    public Map<Integer, Integer> getBirthYears() {
+        return birthYears;
+    }
+
+    public Map<Integer, Integer> getAges() {
+        return ages;
+    }
+}
@@ -14,6 +14,7 @@ public class Student {
     private String birthDate; // Дата рождения студента в формате YYYY-MM-DD
     private String groupName; // Название группы студента
     private String uniqueNumber; // Уникальный номер студента
+    private int version; // Версия строки, растет с каждым изменением (0 - неизвестна)
 
     //Конструктор, геттеры и сеттеры. Есть Lombok, но тут реализация как работает под капотом.
     // Конструктор по умолчанию
@@ -71,6 +72,14 @@ public class Student {
         this.patronymic = patronymic;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public String getBirthDate() {
         return birthDate;
     }
@@ -0,0 +1,118 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Условия отбора и порядок сортировки списка студентов.
+ * Пустые (null) условия не применяются; по умолчанию студенты упорядочены по id.
+ */
+public class StudentQuery {
+
+    /**
+     * Поля, по которым разрешена сортировка.
+     */
+    public enum SortField {
+        ID("id"),
+        FIRST_NAME("firstName"),
+        LAST_NAME("lastName"),
+        BIRTH_DATE("birthDate"),
+        GROUP_NAME("groupName"),
+        UNIQUE_NUMBER("uniqueNumber");
+
+        private final String param; // Имя поля в API (как в JSON студента)
+
+        SortField(String param) {
+            this.param = param;
+        }
+
+        public String getParam() {
+            return param;
+        }
+
+        /**
+         * Находит поле по имени из API.
+         *
+         * @param param имя поля, например lastName
+         * @return поле сортировки или null, если такого поля нет
+         */
+        public static SortField fromParam(String param) {
+            for (SortField field : values()) {
+                if (field.param.equals(param)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private String groupName; // Точное название группы
+    private String namePrefix; // Начало фамилии или имени
+    private LocalDate birthFrom; // Дата рождения не раньше (включительно)
+    private LocalDate birthTo; // Дата рождения не позже (включительно)
+    private SortField sortField = SortField.ID; // Поле сортировки
+    private boolean descending; // Сортировка по убыванию
+
+    public StudentQuery() {}
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public LocalDate getBirthFrom() {
+        return birthFrom;
+    }
+
+    public void setBirthFrom(LocalDate birthFrom) {
+        this.birthFrom = birthFrom;
+    }
+
+    public LocalDate getBirthTo() {
+        return birthTo;
+    }
+
+    public void setBirthTo(LocalDate birthTo) {
+        this.birthTo = birthTo;
+    }
+
+    public SortField getSortField() {
+        return sortField;
+    }
+
+    public void setSortField(SortField sortField) {
+        this.sortField = sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    /**
+     * @return true, если условий отбора нет и порядок по умолчанию (весь список по возрастанию id)
+     */
+    public boolean isUnfiltered() {
+        return groupName == null && namePrefix == null && birthFrom == null && birthTo == null && isIdOrder();
+    }
+
+    /**
+     * @return true, если список упорядочен по возрастанию id, то есть допускает keyset-пагинацию по id
+     */
+    public boolean isIdOrder() {
+        return sortField == SortField.ID && !descending;
+    }
+}
@@ -0,0 +1,169 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Неизменяемое компактное представление студента для больших наборов в памяти (поисковый индекс, кэш).
+ * <p>
+ * По сравнению с {@link Student}:
+ * - дата рождения хранится числом дней от 1970-01-01 вместо строки
+ * - числовой уникальный номер (как его выдает сервер) хранится как int, строка остается только
+ *   для номеров другого вида, заданных клиентом
+ * - название группы интернируется: тысячи студентов одной группы ссылаются на одну строку
+ * Объект можно разделять между потоками без копирования.
+ */
+public final class StudentRecord {
+
+    public static final int NO_BIRTH_DATE = Integer.MIN_VALUE; // Дата рождения не указана
+    private static final int MAX_NUMERIC_LENGTH = 9; // Любое число из 9 цифр помещается в int
+
+    private final int id;
+    private final int uniqueNumber; // Числовой уникальный номер (-1, если номер не числовой)
+    private final String uniqueNumberText; // Номер в исходном виде, только если он не числовой (или null)
+    private final int birthDay; // Дата рождения в днях от 1970-01-01 или NO_BIRTH_DATE
+    private final int version; // Версия строки (0 - неизвестна)
+    private final String firstName;
+    private final String lastName;
+    private final String patronymic;
+    private final String groupName;
+
+    private StudentRecord(int id, String uniqueNumber, int birthDay, int version, String firstName, String lastName,
+                          String patronymic, String groupName) {
+        this.id = id;
+        this.uniqueNumber = parseNumber(uniqueNumber);
+        this.uniqueNumberText = this.uniqueNumber < 0 ? uniqueNumber : null;
+        this.birthDay = birthDay;
+        this.version = version;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.patronymic = patronymic;
+        this.groupName = groupName != null ? groupName.intern() : null;
+    }
+
+    /**
+     * Создает запись из студента.
+     *
+     * @param student студент (не изменяется)
+     * @return запись или null для null
+     * @throws java.time.format.DateTimeParseException если дата рождения не в формате YYYY-MM-DD
+     */
+    public static StudentRecord of(Student student) {
+        if (student == null) {
+            return null;
+        }
+        return new StudentRecord(student.getId(), student.getUniqueNumber(), toEpochDay(student.getBirthDate()),
+                student.getVersion(), student.getFirstName(), student.getLastName(), student.getPatronymic(),
+                student.getGroupName());
+    }
+
+    /**
+     * Возвращает запись, в которой заполненные (не null) поля изменений заменяют текущие.
+     *
+     * @param changes обновленные поля студента
+     * @return новая запись
+     */
+    public StudentRecord withChanges(Student changes) {
+        return new StudentRecord(id, getUniqueNumber(),
+                changes.getBirthDate() != null ? toEpochDay(changes.getBirthDate()) : birthDay,
+                changes.getVersion(), // Версия после изменения или 0, если она неизвестна
+                changes.getFirstName() != null ? changes.getFirstName() : firstName,
+                changes.getLastName() != null ? changes.getLastName() : lastName,
+                changes.getPatronymic() != null ? changes.getPatronymic() : patronymic,
+                changes.getGroupName() != null ? changes.getGroupName() : groupName);
+    }
+
+    /**
+     * @return изменяемая копия в виде {@link Student}
+     */
+    public Student toStudent() {
+        Student student = new Student(getUniqueNumber(), firstName, lastName, patronymic, getBirthDateText(), groupName);
+        student.setId(id);
+        student.setVersion(version);
+        return student;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUniqueNumber() {
+        return uniqueNumber >= 0 ? Integer.toString(uniqueNumber) : uniqueNumberText;
+    }
+
+    /**
+     * @return числовой уникальный номер или -1, если номер не числовой
+     */
+    public int getNumericUniqueNumber() {
+        return uniqueNumber;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getPatronymic() {
+        return patronymic;
+    }
+
+    /**
+     * @return дата рождения или null, если она не указана
+     */
+    public LocalDate getBirthDate() {
+        return birthDay == NO_BIRTH_DATE ? null : LocalDate.ofEpochDay(birthDay);
+    }
+
+    /**
+     * @return дата рождения в днях от 1970-01-01 или {@link #NO_BIRTH_DATE}
+     */
+    public int getBirthEpochDay() {
+        return birthDay;
+    }
+
+    /**
+     * @return дата рождения в формате YYYY-MM-DD или null
+     */
+    public String getBirthDateText() {
+        return birthDay == NO_BIRTH_DATE ? null : LocalDate.ofEpochDay(birthDay).toString();
+    }
+
+    /**
+     * @return версия строки или 0, если она неизвестна
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    private static int toEpochDay(String birthDate) {
+        return birthDate == null ? NO_BIRTH_DATE : Math.toIntExact(LocalDate.parse(birthDate).toEpochDay());
+    }
+
+    /**
+     * Разбирает номер в каноническом десятичном виде (без знака и ведущих нулей), чтобы
+     * {@link #getUniqueNumber()} возвращал исходную строку.
+     *
+     * @return номер или -1, если строку нельзя восстановить из int
+     */
+    private static int parseNumber(String text) {
+        if (text == null || text.isEmpty() || text.length() > MAX_NUMERIC_LENGTH
+                || (text.charAt(0) == '0' && text.length() > 1)) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
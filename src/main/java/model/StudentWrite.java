@@ -0,0 +1,51 @@
+package model;
+
+/**
+ * Отложенная операция записи студента (режим write-behind): добавление, обновление или удаление.
+ */
+public class StudentWrite {
+
+    /**
+     * Вид операции.
+     */
+    public enum Type {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Результат выполнения операции в базе данных.
+     */
+    public enum Outcome {
+        APPLIED, // Строка добавлена, изменена или удалена
+        CONFLICT, // Уникальный номер уже занят (ADD)
+        NOT_FOUND // Студента с таким номером нет (UPDATE, DELETE)
+    }
+
+    private final long id; // Номер операции, выданный клиенту
+    private final Type type;
+    private final Student student; // Для DELETE заполнен только уникальный номер
+
+    public StudentWrite(long id, Type type, Student student) {
+        this.id = id;
+        this.type = type;
+        this.student = student;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public String getUniqueNumber() {
+        return student.getUniqueNumber();
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * Состояние отложенной операции записи для GET /api/students/operations/{id}.
+ */
+public class WriteStatus {
+
+    public static final String QUEUED = "queued"; // Принята и сохранена в журнале, еще не записана в базу
+    public static final String APPLIED = "applied"; // Записана в базу
+    public static final String FAILED = "failed"; // Отклонена базой (номер занят или студент не найден)
+
+    private final long id;
+    private final String type; // add, update или delete
+    private final String uniqueNumber;
+    private final String status;
+    private final String message; // Причина ошибки, может быть null
+
+    public WriteStatus(long id, String type, String uniqueNumber, String status, String message) {
+        this.id = id;
+        this.type = type;
+        this.uniqueNumber = uniqueNumber;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getUniqueNumber() {
+        return uniqueNumber;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,166 @@
+package service;
+
+import model.Student;
+import model.StudentRecord;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш студентов по уникальному номеру (read-through).
+ * <p>
+ * - При превышении размера вытесняется запись, к которой дольше всего не обращались (LRU).
+ * - Отсутствующие студенты тоже кэшируются (на более короткий срок), чтобы повторные 404 не шли в базу.
+ * - Запись, загруженная во время инвалидации, в кэш не попадает, поэтому устаревшие данные
+ *   не возвращаются после изменения студента.
+ * <p>
+ * Кэш хранит студентов в компактном неизменяемом виде ({@link StudentRecord}) и возвращает их копии,
+ * поэтому изменение полученного студента не влияет на кэш.
+ */
+public class StudentCache {
+
+    /**
+     * Загрузчик студента из источника данных при промахе кэша.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Student load(String uniqueNumber) throws SQLException;
+    }
+
+    private int maxSize; // Максимальное число записей, под блокировкой this
+    private volatile long ttlNanos; // Время жизни найденного студента
+    private volatile long negativeTtlNanos; // Время жизни записи об отсутствующем студенте
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Под блокировкой this
+    private long generation; // Счетчик инвалидаций, под блокировкой this
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Создает кэш.
+     *
+     * @param maxSize максимальное число записей
+     * @param ttlMillis время жизни найденного студента в миллисекундах
+     * @param negativeTtlMillis время жизни записи об отсутствующем студенте в миллисекундах
+     */
+    public StudentCache(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        setLimits(maxSize, ttlMillis, negativeTtlMillis);
+    }
+
+    /**
+     * Меняет размер и время жизни записей на работающем кэше. Лишние записи вытесняются сразу,
+     * новое время жизни действует для записей, загруженных после изменения.
+     *
+     * @param maxSize максимальное число записей
+     * @param ttlMillis время жизни найденного студента в миллисекундах
+     * @param negativeTtlMillis время жизни записи об отсутствующем студенте в миллисекундах
+     */
+    public synchronized void setLimits(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000;
+        evictOverflow();
+    }
+
+    /**
+     * Возвращает студента из кэша, при промахе загружает его через загрузчик и кэширует результат.
+     *
+     * @param uniqueNumber уникальный номер студента
+     * @param loader загрузчик, вызываемый при промахе
+     * @return копия студента или null, если студент не найден
+     * @throws SQLException если загрузчик не смог получить данные
+     */
+    public Student get(String uniqueNumber, Loader loader) throws SQLException {
+        long stamp;
+        synchronized (this) {
+            Entry entry = entries.get(uniqueNumber);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.student == null ? null : entry.student.toStudent();
+            }
+            if (entry != null) {
+                entries.remove(uniqueNumber);
+                evictions.increment();
+            }
+            stamp = generation;
+        }
+
+        misses.increment();
+        Student loaded = loader.load(uniqueNumber);
+        StudentRecord cached = StudentRecord.of(loaded);
+        long ttl = loaded != null ? ttlNanos : negativeTtlNanos;
+
+        synchronized (this) {
+            // Если за время загрузки кэш инвалидировали, загруженные данные могли устареть
+            if (stamp == generation && maxSize > 0) {
+                entries.put(uniqueNumber, new Entry(cached, System.nanoTime() + ttl));
+                evictOverflow();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Удаляет запись о студенте. Вызывается после любого изменения студента в базе данных.
+     *
+     * @param uniqueNumber уникальный номер студента
+     */
+    public synchronized void invalidate(String uniqueNumber) {
+        generation++;
+        entries.remove(uniqueNumber);
+    }
+
+    /**
+     * Очищает кэш полностью.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    static Student copyOf(Student student) {
+        if (student == null) {
+            return null;
+        }
+        Student copy = new Student(student.getUniqueNumber(), student.getFirstName(), student.getLastName(),
+                student.getPatronymic(), student.getBirthDate(), student.getGroupName());
+        copy.setId(student.getId());
+        copy.setVersion(student.getVersion());
+        return copy;
+    }
+
+    /**
+     * Запись кэша: студент (null - студент не найден) и момент истечения в System.nanoTime().
+     */
+    private record Entry(StudentRecord student, long expiresAt) {
+    }
+}
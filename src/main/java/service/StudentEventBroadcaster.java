@@ -0,0 +1,282 @@
+package service;
+
+import config.AppConfig;
+import json.JsonBuffer;
+import json.StudentCodec;
+import model.Student;
+import model.StudentWrite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Рассылка изменений студентов подписчикам (Server-Sent Events, /api/students/events).
+ * <p>
+ * - событие кодируется в кадр SSE один раз при публикации, подписчикам передается готовый массив байтов
+ * - последние historySize событий хранятся в кольцевом буфере: переподключившийся клиент получает
+ *   пропущенные события после своего Last-Event-ID
+ * - у каждого подписчика своя ограниченная очередь; публикация никогда не ждет подписчиков.
+ *   Если подписчик не успевает и его очередь заполнена, подписка закрывается, а клиент переподключается
+ *   с Last-Event-ID и дочитывает пропущенное из истории
+ * - если пропущенных событий в истории уже нет, клиент получает событие reset и должен перечитать список
+ * Номера событий начинаются с текущего времени, поэтому Last-Event-ID от прежнего запуска сервера
+ * не совпадет с новыми событиями и приведет к reset.
+ */
+public class StudentEventBroadcaster implements AutoCloseable {
+
+    /**
+     * Кадр SSE с номером события.
+     *
+     * @param id    номер события (Last-Event-ID)
+     * @param frame кадр в UTF-8: id, event, data и пустая строка
+     */
+    public record Event(long id, byte[] frame) {
+    }
+
+    private static final Logger logger = Logger.getLogger(StudentEventBroadcaster.class.getName());
+    private static final Event WAKE_UP = new Event(-1, new byte[0]); // Будит подписчика при закрытии
+
+    private final StudentCodec codec = new StudentCodec();
+    private final int queueSize; // Сколько событий может ждать отправки одному подписчику
+    private final int maxSubscribers;
+
+    private final Event[] history; // Кольцевой буфер последних событий
+    private int historyHead; // Индекс самого старого события
+    private int historyCount;
+    private long lastId = System.currentTimeMillis() * 1000; // Номер последнего опубликованного события
+    private final List<Subscription> subscribers = new ArrayList<>();
+    private boolean closed;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param historySize    сколько последних событий хранится для переподключения
+     * @param queueSize      размер очереди одного подписчика
+     * @param maxSubscribers максимальное число одновременных подписчиков
+     */
+    public StudentEventBroadcaster(int historySize, int queueSize, int maxSubscribers) {
+        if (historySize < 0 || queueSize <= 0 || maxSubscribers <= 0) {
+            throw new IllegalArgumentException("Invalid event settings: historySize=" + historySize
+                    + ", queueSize=" + queueSize + ", maxSubscribers=" + maxSubscribers);
+        }
+        this.history = new Event[historySize];
+        this.queueSize = queueSize;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    /**
+     * Создает рассылку по настройкам events.historySize, events.queueSize и events.maxSubscribers.
+     *
+     * @return рассылка
+     */
+    public static StudentEventBroadcaster fromConfig() {
+        return new StudentEventBroadcaster(
+                AppConfig.getInt("events.historySize", 1000),
+                AppConfig.getInt("events.queueSize", 256),
+                AppConfig.getInt("events.maxSubscribers", 1000));
+    }
+
+    /**
+     * Публикует изменение студента.
+     *
+     * @param type    вид изменения
+     * @param student для ADD - добавленный студент, для UPDATE - уникальный номер и измененные поля,
+     *                для DELETE - уникальный номер
+     */
+    public void publish(StudentWrite.Type type, Student student) {
+        byte[] data;
+        try (JsonBuffer json = codec.encode(student)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length());
+            json.writeTo(out);
+            data = out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream не бросает IOException
+        }
+        String name = switch (type) {
+            case ADD -> "added";
+            case UPDATE -> "updated";
+            case DELETE -> "deleted";
+        };
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Event event = new Event(++lastId, frame(lastId, name, data));
+            if (history.length > 0) {
+                history[(historyHead + historyCount) % history.length] = event;
+                if (historyCount < history.length) {
+                    historyCount++;
+                } else {
+                    historyHead = (historyHead + 1) % history.length;
+                }
+            }
+            for (int i = subscribers.size() - 1; i >= 0; i--) {
+                Subscription subscription = subscribers.get(i);
+                if (!subscription.queue.offer(event)) {
+                    subscribers.remove(i); // Подписчик не успевает: дочитает из истории после переподключения
+                    subscription.closed = true;
+                    dropped.increment();
+                }
+            }
+        }
+        published.increment();
+    }
+
+    /**
+     * Подписывается на события.
+     *
+     * @param lastEventId номер последнего полученного клиентом события (Last-Event-ID) или -1 для новых событий
+     * @return подписка, которую нужно закрыть
+     * @throws RejectedExecutionException если подписчиков уже maxSubscribers или рассылка остановлена
+     */
+    public synchronized Subscription subscribe(long lastEventId) {
+        if (closed) {
+            throw new RejectedExecutionException("Server is shutting down.");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RejectedExecutionException("Too many event subscribers.");
+        }
+        List<Event> missed = new ArrayList<>();
+        boolean reset = false;
+        if (lastEventId >= 0 && lastEventId != lastId) {
+            long oldest = historyCount > 0 ? history[historyHead].id() : lastId + 1;
+            if (lastEventId > lastId || lastEventId < oldest - 1) {
+                reset = true; // Номер из другого запуска сервера или пропущенное уже вытеснено из истории
+            } else {
+                for (int i = 0; i < historyCount; i++) {
+                    Event event = history[(historyHead + i) % history.length];
+                    if (event.id() > lastEventId) {
+                        missed.add(event);
+                    }
+                }
+            }
+        }
+        Subscription subscription = new Subscription(queueSize + missed.size(), reset ? lastId : -1);
+        subscription.queue.addAll(missed);
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscribers.remove(subscription);
+    }
+
+    private static byte[] frame(long id, String name, byte[] data) {
+        byte[] head = ("id: " + id + "\nevent: " + name + "\ndata: ").getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = new byte[head.length + data.length + 2];
+        System.arraycopy(head, 0, frame, 0, head.length);
+        System.arraycopy(data, 0, frame, head.length, data.length); // JSON без переводов строк
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    /** @return число текущих подписчиков */
+    public synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /** @return число опубликованных событий */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /** @return число подписок, закрытых из-за переполнения очереди подписчика */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Закрывает все подписки и перестает принимать новые (при остановке сервера).
+     */
+    @Override
+    public void close() {
+        List<Subscription> active;
+        synchronized (this) {
+            closed = true;
+            active = new ArrayList<>(subscribers);
+            subscribers.clear();
+        }
+        for (Subscription subscription : active) {
+            subscription.close();
+        }
+        if (!active.isEmpty()) {
+            logger.info("Closed " + active.size() + " event subscriptions");
+        }
+    }
+
+    /**
+     * Подписка одного клиента: очередь событий, которые еще не отправлены.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final BlockingQueue<Event> queue;
+        private final long resetId; // Номер для события reset или -1, если история клиента полна
+        private volatile boolean closed;
+
+        private Subscription(int capacity, long resetId) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.resetId = resetId;
+        }
+
+        /**
+         * @return true, если клиент должен перечитать список: пропущенных событий нет в истории
+         */
+        public boolean isReset() {
+            return resetId >= 0;
+        }
+
+        /**
+         * Кадр события reset: клиент перечитывает список и продолжает с номера этого события.
+         *
+         * @return кадр SSE
+         */
+        public byte[] resetFrame() {
+            return frame(resetId, "reset", "{}".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * Ждет следующее событие.
+         *
+         * @param timeoutMillis сколько ждать
+         * @return событие или null, если за это время событий не было или подписка закрыта
+         * @throws InterruptedException если поток прерван
+         */
+        public Event next(long timeoutMillis) throws InterruptedException {
+            // Закрытая подписка только дочитывает очередь
+            Event event = closed ? queue.poll() : queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            return event == WAKE_UP ? null : event;
+        }
+
+        /**
+         * @return следующее уже доступное событие или null, не ожидая
+         */
+        public Event poll() {
+            Event event = queue.poll();
+            return event == WAKE_UP ? null : event;
+        }
+
+        /**
+         * @return true, если подписка закрыта: клиент отключился, не успевал получать события или сервер остановлен
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unsubscribe(this);
+            queue.offer(WAKE_UP); // В заполненную очередь не поместится, но тогда подписчик и не ждет
+        }
+    }
+}
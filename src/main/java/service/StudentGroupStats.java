@@ -0,0 +1,150 @@
+package service;
+
+import model.GroupStats;
+import model.StudentRecord;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Статистика студентов по группам в памяти: число студентов, распределения по году рождения и возрасту.
+ * <p>
+ * Счетчики не пересчитываются по таблице: каждое изменение студента передается как пара
+ * "прежняя запись - новая запись" (см. {@link StudentSearchIndex}), из счетчиков прежней группы
+ * вычитается, к новой прибавляется. Поэтому перевод в другую группу и смена даты рождения учитываются точно.
+ * <p>
+ * У каждой группы хранится число студентов по дате рождения: из него точно считаются и годы рождения,
+ * и возраст в полных годах на любую дату. Готовый результат запоминается в {@link Snapshot}: чтение без изменений
+ * не берет блокировку, а после изменения заново считаются только измененные группы.
+ */
+public class StudentGroupStats {
+
+    /**
+     * Статистика всех групп на момент версии.
+     *
+     * @param version номер версии счетчиков (растет с каждым изменением)
+     * @param date    дата, на которую посчитан возраст
+     * @param total   число студентов
+     * @param groups  группы по возрастанию названия
+     */
+    public record Snapshot(long version, LocalDate date, int total, List<GroupStats> groups) {
+    }
+
+    private final Map<String, Group> groups = new TreeMap<>(); // Название -> счетчики, по возрастанию названия
+    private int total;
+    private volatile long version = System.currentTimeMillis(); // Версии разных запусков сервера не совпадают
+    private volatile Snapshot snapshot;
+
+    /**
+     * Учитывает изменение студента.
+     *
+     * @param before прежняя запись или null, если студент добавлен
+     * @param after  новая запись или null, если студент удален
+     */
+    public synchronized void apply(StudentRecord before, StudentRecord after) {
+        if (before != null && after != null && sameStats(before, after)) {
+            return; // Изменились только ФИО
+        }
+        if (before != null) {
+            count(before, -1);
+        }
+        if (after != null) {
+            count(after, 1);
+        }
+        if (before != null || after != null) {
+            version++;
+        }
+    }
+
+    /**
+     * @return статистика на сегодняшнюю дату
+     */
+    public Snapshot snapshot() {
+        return snapshot(LocalDate.now());
+    }
+
+    /**
+     * Возвращает статистику. Если с прошлого вызова ничего не изменилось, возвращается тот же объект.
+     *
+     * @param date дата, на которую считается возраст
+     * @return статистика всех групп
+     */
+    public Snapshot snapshot(LocalDate date) {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version && current.date().equals(date)) {
+            return current;
+        }
+        synchronized (this) {
+            List<GroupStats> result = new ArrayList<>(groups.size());
+            for (Group group : groups.values()) {
+                result.add(group.summary(date));
+            }
+            current = new Snapshot(version, date, total, Collections.unmodifiableList(result));
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private static boolean sameStats(StudentRecord a, StudentRecord b) {
+        return a.getBirthEpochDay() == b.getBirthEpochDay() && groupOf(a).equals(groupOf(b));
+    }
+
+    private static String groupOf(StudentRecord student) {
+        return student.getGroupName() != null ? student.getGroupName() : "";
+    }
+
+    private void count(StudentRecord student, int delta) {
+        String name = groupOf(student);
+        Group group = groups.computeIfAbsent(name, Group::new);
+        group.count += delta;
+        total += delta;
+        int birthDay = student.getBirthEpochDay();
+        if (birthDay == StudentRecord.NO_BIRTH_DATE) {
+            group.withoutBirthDate += delta;
+        } else {
+            group.birthDays.merge(birthDay, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        group.summary = null;
+        if (group.count <= 0) {
+            groups.remove(name);
+        }
+    }
+
+    /**
+     * Счетчики одной группы.
+     */
+    private static final class Group {
+        private final String name;
+        private int count;
+        private int withoutBirthDate;
+        private final Map<Integer, Integer> birthDays = new HashMap<>(); // День от 1970-01-01 -> число студентов
+        private GroupStats summary; // Последний результат или null после изменения
+        private LocalDate summaryDate;
+
+        private Group(String name) {
+            this.name = name;
+        }
+
+        private GroupStats summary(LocalDate date) {
+            if (summary == null || !date.equals(summaryDate)) {
+                Map<Integer, Integer> years = new TreeMap<>();
+                Map<Integer, Integer> ages = new TreeMap<>();
+                for (Map.Entry<Integer, Integer> entry : birthDays.entrySet()) {
+                    LocalDate birthDate = LocalDate.ofEpochDay(entry.getKey());
+                    years.merge(birthDate.getYear(), entry.getValue(), Integer::sum);
+                    ages.merge(Period.between(birthDate, date).getYears(), entry.getValue(), Integer::sum);
+                }
+                summary = new GroupStats(name, count, withoutBirthDate,
+                        Collections.unmodifiableMap(years), Collections.unmodifiableMap(ages));
+                summaryDate = date;
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,652 @@
+package service;
+
+import model.Student;
+import model.StudentRecord;
+
+import java.text.Normalizer;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Поисковый индекс в памяти по фамилии, имени и отчеству студентов.
+ * <p>
+ * Текст приводится к нижнему регистру, диакритика отбрасывается (ё ищется как е, й - как и).
+ * Индекс построен над словарем различных слов, а не над документами: у каждого слова есть
+ * списки документов по полям (фамилия, имя, отчество), слова хранятся в отсортированном словаре
+ * (поиск по началу слова - диапазон словаря), а триграммы указывают на слова (поиск подстроки).
+ * Различных слов намного меньше, чем студентов, поэтому поиск по словарю не зависит от числа строк.
+ * <p>
+ * Совпадения делятся на уровни: слово целиком, начало слова, часть слова (для запросов от трех
+ * символов), в каждом уровне фамилия выше остальных полей. Документы перебираются от лучшего уровня
+ * к худшему, и перебор останавливается, как только оставшиеся уровни не могут улучшить top-k.
+ * Для запроса из нескольких слов перебираются документы самого редкого слова, а лучший уровень
+ * совпадения остальных слов для каждого документа берется из заранее заполненных массивов,
+ * поэтому текст документов при поиске не просматривается.
+ * <p>
+ * Изменение студента не правит списки на месте: старый документ помечается удаленным,
+ * новый получает следующий номер. Когда удаленных документов становится больше живых,
+ * индекс перестраивается. Чтение параллельное, запись исключительная (ReadWriteLock).
+ * <p>
+ * Индекс хранит текущую запись каждого студента, поэтому он же сообщает о каждом изменении
+ * прежнюю и новую запись (например, для статистики групп, см. {@link StudentGroupStats}).
+ */
+public class StudentSearchIndex {
+    private static final Logger logger = Logger.getLogger(StudentSearchIndex.class.getName());
+    private static final int FIELDS = 3; // Фамилия, имя, отчество
+    private static final int LAST_NAME = 0;
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACT_GARBAGE = 1024;
+
+    private static final int EXACT = 3; // Запрос совпал со словом целиком
+    private static final int PREFIX = 2; // Запрос совпал с началом слова
+    private static final int SUBSTRING = 1; // Запрос найден внутри слова
+    private static final int TIERS = 6; // Уровни совпадения: качество (3) x фамилия или другое поле (2)
+    private static final int PREFIX_TIERS = 4; // Уровни 0-3: слово целиком или начало слова
+    private static final long ALL_PREFIX_BONUS = 1L << 32; // Все слова запроса совпали с началом слов
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private StudentRecord[] docs = new StudentRecord[1024]; // Номер документа -> студент (null - удален)
+    private int nextDoc; // Номер следующего документа
+    private int liveDocs; // Число неудаленных документов
+    private final Map<String, Integer> docByUniqueNumber = new HashMap<>();
+    private final TreeMap<String, Term> terms = new TreeMap<>(); // Словарь слов
+    private final Map<String, List<Term>> termsByGram = new HashMap<>(); // Триграмма -> слова с ней
+
+    private boolean loading; // Идет первоначальная загрузка из базы
+    private final Set<String> changedDuringLoad = new HashSet<>(); // Эти строки загрузка не перезаписывает
+    private volatile boolean ready;
+    private final BiConsumer<StudentRecord, StudentRecord> changeListener;
+
+    public StudentSearchIndex() {
+        this((before, after) -> { });
+    }
+
+    /**
+     * @param changeListener получает прежнюю и новую запись студента при каждом изменении
+     *                       (null - студента не было или он удален); вызывается под блокировкой записи,
+     *                       в порядке изменений
+     */
+    public StudentSearchIndex(BiConsumer<StudentRecord, StudentRecord> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Добавляет студента или заменяет уже проиндексированного с тем же уникальным номером.
+     *
+     * @param student студент (сохраняется в компактном неизменяемом виде)
+     */
+    public void put(Student student) {
+        if (student == null || student.getUniqueNumber() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged(student.getUniqueNumber());
+            apply(student.getUniqueNumber(), recordOf(student, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Применяет частичное обновление: заполненные (не null) поля заменяют проиндексированные.
+     * Если студента нет в индексе, он добавляется как есть.
+     *
+     * @param changes обновленные поля студента с уникальным номером
+     */
+    public void merge(Student changes) {
+        if (changes == null || changes.getUniqueNumber() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged(changes.getUniqueNumber());
+            Integer doc = docByUniqueNumber.get(changes.getUniqueNumber());
+            apply(changes.getUniqueNumber(), recordOf(changes, doc == null ? null : docs[doc]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет студента из индекса.
+     *
+     * @param uniqueNumber уникальный номер студента
+     */
+    public void remove(String uniqueNumber) {
+        lock.writeLock().lock();
+        try {
+            markChanged(uniqueNumber);
+            apply(uniqueNumber, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Начинает первоначальную загрузку. Изменения, пришедшие во время загрузки, имеют приоритет
+     * над строками загрузки, которые могли быть прочитаны раньше этих изменений.
+     */
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            ready = false;
+            changedDuringLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет строку первоначальной загрузки, если этот студент не менялся с начала загрузки.
+     *
+     * @param student студент, прочитанный из базы данных
+     */
+    public void loadRow(Student student) {
+        lock.writeLock().lock();
+        try {
+            if (!changedDuringLoad.contains(student.getUniqueNumber())) {
+                apply(student.getUniqueNumber(), recordOf(student, null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Завершает первоначальную загрузку.
+     *
+     * @param complete true, если прочитаны все строки; иначе индекс остается неготовым
+     */
+    public void finishLoad(boolean complete) {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            changedDuringLoad.clear();
+            ready = complete;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true, если индекс загружен полностью
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return число проиндексированных студентов
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет студентов по началу или части фамилии, имени и отчества.
+     * Выше ранжируются совпадения со словом целиком, затем с началом слова, затем внутри слова,
+     * при равенстве - совпадения в фамилии. Слова запроса короче трех символов ищутся только по началу слов.
+     *
+     * @param query строка поиска (одно или несколько слов)
+     * @param limit максимальное число результатов
+     * @return до limit лучших совпадений (неизменяемые записи, копировать не нужно)
+     */
+    public List<StudentRecord> search(String query, int limit) {
+        List<String> tokens = words(fold(query == null ? "" : query));
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<List<IntList>[]> matches = new ArrayList<>(tokens.size());
+            int driver = -1;
+            long driverSize = Long.MAX_VALUE;
+            for (String token : tokens) {
+                List<IntList>[] tiers = match(token);
+                long total = 0;
+                for (List<IntList> tier : tiers) {
+                    for (IntList list : tier) {
+                        total += list.size;
+                    }
+                }
+                if (total == 0) {
+                    return Collections.emptyList(); // Слово запроса не встречается нигде
+                }
+                if (total < driverSize) {
+                    driver = matches.size();
+                    driverSize = total;
+                }
+                matches.add(tiers);
+            }
+
+            byte[][] others = new byte[tokens.size()][];
+            int othersBest = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i != driver) {
+                    others[i] = bestTiers(matches.get(i));
+                    othersBest += tierScore(firstTier(matches.get(i)));
+                }
+            }
+            TopK top = collect(matches.get(driver), others, othersBest, limit);
+
+            List<StudentRecord> result = new ArrayList<>(top.size());
+            for (int doc : top.docsInOrder()) {
+                result.add(docs[doc]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Находит слова словаря, совпадающие со словом запроса, и раскладывает их списки документов по уровням.
+     *
+     * @param token нормализованное слово запроса
+     * @return списки документов по уровням (0 - лучший)
+     */
+    private List<IntList>[] match(String token) {
+        List<IntList>[] tiers = newTiers();
+        // Начало слова: диапазон отсортированного словаря; само слово - первое в диапазоне
+        NavigableMap<String, Term> byPrefix = terms.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (Term term : byPrefix.values()) {
+            addTier(tiers, term, term.word.length() == token.length() ? EXACT : PREFIX);
+        }
+        if (token.length() >= GRAM) {
+            // Часть слова: слова, содержащие самую редкую триграмму запроса, проверяются целиком
+            List<Term> candidates = null;
+            for (int i = 0; i + GRAM <= token.length(); i++) {
+                List<Term> withGram = termsByGram.get(token.substring(i, i + GRAM));
+                if (withGram == null) {
+                    return tiers;
+                }
+                if (candidates == null || withGram.size() < candidates.size()) {
+                    candidates = withGram;
+                }
+            }
+            for (Term term : candidates) {
+                if (!term.word.startsWith(token) && term.word.contains(token)) {
+                    addTier(tiers, term, SUBSTRING);
+                }
+            }
+        }
+        return tiers;
+    }
+
+    /**
+     * Создает пустые списки по уровням. Массив параметризованного типа создать нельзя,
+     * поэтому он создается как List<?>[]; элементы - только списки IntList.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<IntList>[] newTiers() {
+        List<IntList>[] tiers = (List<IntList>[]) new List<?>[TIERS];
+        for (int i = 0; i < TIERS; i++) {
+            tiers[i] = new ArrayList<>();
+        }
+        return tiers;
+    }
+
+    private static void addTier(List<IntList>[] tiers, Term term, int quality) {
+        for (int field = 0; field < FIELDS; field++) {
+            IntList list = term.postings[field];
+            if (list != null && list.size > 0) {
+                tiers[tierOf(quality, field)].add(list);
+            }
+        }
+    }
+
+    private static int tierOf(int quality, int field) {
+        return (EXACT - quality) * 2 + (field == LAST_NAME ? 0 : 1);
+    }
+
+    /**
+     * Оценка одного слова запроса на уровне tier: качество * 2, плюс 1 за совпадение в фамилии.
+     */
+    private static int tierScore(int tier) {
+        return (EXACT - tier / 2) * 2 + (tier % 2 == 0 ? 1 : 0);
+    }
+
+    /**
+     * Перебирает документы ведущего слова запроса от лучшего уровня к худшему и отбирает лучшие.
+     * Оценка документа - сумма оценок уровней всех слов запроса; если все слова совпали
+     * с началом слов, документ всегда выше документов с совпадением внутри слова.
+     *
+     * @param driverTiers списки документов ведущего (самого редкого) слова по уровням
+     * @param others      лучшие уровни остальных слов по документам (null для ведущего)
+     * @param othersBest  наибольшая возможная сумма оценок остальных слов
+     * @param limit       число результатов
+     * @return лучшие документы
+     */
+    private TopK collect(List<IntList>[] driverTiers, byte[][] others, int othersBest, int limit) {
+        TopK top = new TopK(limit);
+        long[] seen = new long[(nextDoc >> 6) + 1]; // Документ может встретиться в нескольких словах
+        for (int tier = 0; tier < TIERS; tier++) {
+            long bound = tierScore(tier) + othersBest + (tier < PREFIX_TIERS ? ALL_PREFIX_BONUS : 0);
+            for (IntList list : driverTiers[tier]) {
+                if (top.isFull() && top.minScore() >= bound) {
+                    return top; // Оставшиеся документы не могут попасть в top-k
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.values[i];
+                    if (docs[doc] == null || !mark(seen, doc)) {
+                        continue;
+                    }
+                    long score = score(doc, tier, others);
+                    if (score > 0) {
+                        top.offer(doc, score);
+                        if (top.isFull() && top.minScore() >= bound) {
+                            return top;
+                        }
+                    }
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return оценка документа или 0, если какое-то слово запроса в нем не найдено
+     */
+    private static long score(int doc, int driverTier, byte[][] others) {
+        long total = tierScore(driverTier);
+        boolean allPrefix = driverTier < PREFIX_TIERS;
+        for (byte[] tiers : others) {
+            if (tiers == null) {
+                continue;
+            }
+            int tier = tiers[doc] - 1;
+            if (tier < 0) {
+                return 0;
+            }
+            total += tierScore(tier);
+            allPrefix &= tier < PREFIX_TIERS;
+        }
+        return allPrefix ? total + ALL_PREFIX_BONUS : total;
+    }
+
+    private static boolean mark(long[] bits, int doc) {
+        long mask = 1L << doc;
+        if ((bits[doc >> 6] & mask) != 0) {
+            return false;
+        }
+        bits[doc >> 6] |= mask;
+        return true;
+    }
+
+    /**
+     * Для каждого документа запоминает лучший уровень совпадения слова запроса (уровень + 1, 0 - нет совпадения).
+     */
+    private byte[] bestTiers(List<IntList>[] tiers) {
+        byte[] best = new byte[nextDoc];
+        for (int tier = TIERS - 1; tier >= 0; tier--) { // Лучшие уровни записываются последними
+            for (IntList list : tiers[tier]) {
+                for (int i = 0; i < list.size; i++) {
+                    best[list.values[i]] = (byte) (tier + 1);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int firstTier(List<IntList>[] tiers) {
+        for (int tier = 0; tier < TIERS; tier++) {
+            if (!tiers[tier].isEmpty()) {
+                return tier;
+            }
+        }
+        return TIERS - 1;
+    }
+
+    /**
+     * Заменяет или удаляет запись студента и сообщает об изменении.
+     *
+     * @param record новая запись или null, чтобы удалить студента
+     */
+    /**
+     * Строит запись индекса из студента или из изменений текущей записи. Дату рождения не в формате
+     * YYYY-MM-DD (ее могли записать в базу в обход проверки) индекс пропускает с предупреждением,
+     * а не отказывает: студент остается в поиске и в статистике групп, но без даты рождения.
+     */
+    private static StudentRecord recordOf(Student student, StudentRecord current) {
+        try {
+            return current == null ? StudentRecord.of(student) : current.withChanges(student);
+        } catch (DateTimeParseException | ArithmeticException e) {
+            logger.warning("Birth date '" + student.getBirthDate() + "' of student " + student.getUniqueNumber()
+                    + " is not in format YYYY-MM-DD and is not indexed");
+            Student withoutDate = new Student(student.getUniqueNumber(), student.getFirstName(), student.getLastName(),
+                    student.getPatronymic(), null, student.getGroupName());
+            withoutDate.setId(student.getId());
+            withoutDate.setVersion(student.getVersion());
+            return current == null ? StudentRecord.of(withoutDate) : current.withChanges(withoutDate);
+        }
+    }
+
+    private void apply(String uniqueNumber, StudentRecord record) {
+        Integer doc = docByUniqueNumber.get(uniqueNumber);
+        StudentRecord previous = doc != null ? docs[doc] : null;
+        if (record != null) {
+            replace(record);
+        } else if (doc != null) {
+            docByUniqueNumber.remove(uniqueNumber);
+            delete(doc);
+            compactIfNeeded();
+        }
+        changeListener.accept(previous, record);
+    }
+
+    private void replace(StudentRecord student) {
+        Integer old = docByUniqueNumber.get(student.getUniqueNumber());
+        if (old != null) {
+            delete(old);
+        }
+        int doc = nextDoc++;
+        if (doc == docs.length) {
+            docs = Arrays.copyOf(docs, doc * 2);
+        }
+        String[] fields = {fold(nullToEmpty(student.getLastName())), fold(nullToEmpty(student.getFirstName())),
+                fold(nullToEmpty(student.getPatronymic()))};
+        for (int field = 0; field < FIELDS; field++) {
+            for (String word : new HashSet<>(words(fields[field]))) {
+                term(word).add(field, doc);
+            }
+        }
+        docs[doc] = student;
+        liveDocs++;
+        docByUniqueNumber.put(student.getUniqueNumber(), doc);
+        compactIfNeeded();
+    }
+
+    /**
+     * Возвращает слово словаря, создавая его (и ссылки из его триграмм) при первом появлении.
+     */
+    private Term term(String word) {
+        Term term = terms.get(word);
+        if (term == null) {
+            term = new Term(word);
+            terms.put(word, term);
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + GRAM <= word.length(); i++) {
+                grams.add(word.substring(i, i + GRAM));
+            }
+            for (String gram : grams) {
+                termsByGram.computeIfAbsent(gram, k -> new ArrayList<>()).add(term);
+            }
+        }
+        return term;
+    }
+
+    private void delete(int doc) {
+        docs[doc] = null;
+        liveDocs--;
+    }
+
+    private void markChanged(String uniqueNumber) {
+        if (loading) {
+            changedDuringLoad.add(uniqueNumber);
+        }
+    }
+
+    /**
+     * Перестраивает индекс без удаленных документов, когда их больше, чем живых.
+     */
+    private void compactIfNeeded() {
+        int garbage = nextDoc - liveDocs;
+        if (garbage < MIN_COMPACT_GARBAGE || garbage < liveDocs) {
+            return;
+        }
+        StudentRecord[] oldDocs = docs;
+        int oldCount = nextDoc;
+        docs = new StudentRecord[Math.max(1024, liveDocs * 2)];
+        nextDoc = 0;
+        liveDocs = 0;
+        docByUniqueNumber.clear();
+        terms.clear();
+        termsByGram.clear();
+        for (int i = 0; i < oldCount; i++) {
+            if (oldDocs[i] != null) {
+                replace(oldDocs[i]);
+            }
+        }
+    }
+
+    /**
+     * Разбивает нормализованный текст на слова (по пробелам).
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split(" ")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Приводит текст к виду для поиска: нижний регистр, без диакритических знаков,
+     * все символы, кроме букв и цифр, заменены пробелами.
+     *
+     * @param text исходный текст
+     * @return нормализованный текст
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            folded.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return folded.toString().trim();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Слово словаря и списки документов, где оно встречается, по полям.
+     */
+    private static final class Term {
+        final String word;
+        final IntList[] postings = new IntList[FIELDS];
+
+        Term(String word) {
+            this.word = word;
+        }
+
+        void add(int field, int doc) {
+            if (postings[field] == null) {
+                postings[field] = new IntList();
+            }
+            postings[field].add(doc);
+        }
+    }
+
+    /**
+     * Растущий массив int (список документов, по возрастанию номера).
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Лучшие k документов по оценке; при равной оценке выше документ с меньшим номером.
+     */
+    private static final class TopK {
+        private final int limit;
+        private final PriorityQueue<long[]> heap; // {оценка, номер документа}, наверху худший
+
+        TopK(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 256) + 1, TopK::compare);
+        }
+
+        private static int compare(long[] a, long[] b) {
+            int byScore = Long.compare(a[0], b[0]);
+            return byScore != 0 ? byScore : Long.compare(b[1], a[1]);
+        }
+
+        void offer(int doc, long score) {
+            long[] hit = {score, doc};
+            if (heap.size() < limit) {
+                heap.add(hit);
+            } else if (compare(hit, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+
+        boolean isFull() {
+            return heap.size() >= limit;
+        }
+
+        long minScore() {
+            return heap.peek()[0];
+        }
+
+        int size() {
+            return heap.size();
+        }
+
+        int[] docsInOrder() {
+            long[][] hits = heap.toArray(new long[0][]);
+            Arrays.sort(hits, (a, b) -> compare(b, a));
+            int[] result = new int[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                result[i] = (int) hits[i][1];
+            }
+            return result;
+        }
+    }
+}
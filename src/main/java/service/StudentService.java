@@ -1,8 +1,18 @@
 package service;
 
+import config.AppConfig;
+import db.DataSourceRouter;
+import db.RequestContext;
+import db.RowHandler;
 import db.StudentDAO;
+import db.TableVersions;
 import model.Student;
+import model.StudentQuery;
+import model.StudentRecord;
+import model.StudentWrite;
+import model.WriteStatus;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 /**
@@ -10,17 +20,49 @@ import java.util.List;
  * Он выполняет бизнес-логику и взаимодействует с DAO для работы с базой данных.
  * <p>
  * Responsibilities:
- * - Получение списка студентов
- * - Добавление нового студента
+ * - Получение списка студентов (целиком, постранично или потоком)
+ * - Добавление нового студента (по одному или пакетом)
  * - Удаление студента по уникальному номеру
  * - Обновление информации о студенте
  * - Получение студента по уникальному номеру
+ * - Отложенная запись (write-behind): добавление, обновление и удаление через {@link WriteBehindQueue}
+ * - Публикация выполненных изменений подписчикам через {@link StudentEventBroadcaster}
+ * <p>
+ * Чтения идут на реплики, если они настроены. Чтения, результат которых кэшируется или получает ETag
+ * по версии таблицы, сразу после записи выполняются в основной базе (см. {@link DataSourceRouter#pinIfRecentlyWritten()}).
  */
 public class StudentService {
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final long DEFAULT_CACHE_TTL_MS = 60_000;
+    private static final long DEFAULT_NEGATIVE_TTL_MS = 5_000;
+
     private final StudentDAO studentDAO; // DAO для работы с данными студентов
+    private final DataSourceRouter router; // Выбор основной базы или реплики для чтения
+    private final StudentCache cache; // Кэш студентов по уникальному номеру
+    private final UniqueNumberAllocator numberAllocator; // Выдача новых уникальных номеров
+    private final StudentGroupStats groupStats = new StudentGroupStats(); // Статистика групп в памяти
+    private final StudentSearchIndex searchIndex = new StudentSearchIndex(groupStats::apply); // Поиск по ФИО в памяти
+    private final StudentEventBroadcaster events = StudentEventBroadcaster.fromConfig(); // Лента изменений
+    private volatile WriteBehindQueue writeBehind; // null - запись синхронная
 
     public StudentService() {
-        this.studentDAO = new StudentDAO(); // Инициализация DAO
+        this(new StudentDAO()); // Инициализация DAO
+    }
+
+    /**
+     * Создает сервис, работающий с указанным DAO.
+     * Размеры кэша задаются настройками cache.maxSize, cache.ttlMs и cache.negativeTtlMs (см. {@link #reloadSettings()}).
+     *
+     * @param studentDAO DAO для работы с данными студентов
+     */
+    public StudentService(StudentDAO studentDAO) {
+        this.studentDAO = studentDAO;
+        this.router = studentDAO.getRouter();
+        this.cache = new StudentCache(
+                AppConfig.getInt("cache.maxSize", DEFAULT_CACHE_SIZE),
+                AppConfig.getLong("cache.ttlMs", DEFAULT_CACHE_TTL_MS),
+                AppConfig.getLong("cache.negativeTtlMs", DEFAULT_NEGATIVE_TTL_MS));
+        this.numberAllocator = new UniqueNumberAllocator(studentDAO, AppConfig.getInt("uniqueNumber.blockSize", 1000));
     }
 
     /**
@@ -33,6 +75,62 @@ public class StudentService {
         return studentDAO.getAllStudents();
     }
 
+    /**
+     * Получает страницу студентов с id больше указанного.
+     *
+     * @param afterId id последнего студента предыдущей страницы (0 - с начала)
+     * @param limit размер страницы
+     * @return студенты, упорядоченные по id
+     * @throws SQLException если произошла ошибка доступа к базе данных
+     */
+    public List<Student> getStudentsPage(int afterId, int limit) throws SQLException {
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            return studentDAO.getStudentsPage(afterId, limit);
+        }
+    }
+
+    /**
+     * Получает до limit студентов, подходящих под условия отбора, в заданном порядке.
+     *
+     * @param query условия отбора и сортировка
+     * @param afterId id последнего студента предыдущей страницы (0 - с начала, иное - только при сортировке по id)
+     * @param limit размер страницы
+     * @return студенты в заданном порядке
+     * @throws SQLException если произошла ошибка доступа к базе данных
+     */
+    public List<Student> getStudentsPage(StudentQuery query, int afterId, int limit) throws SQLException {
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            return studentDAO.getStudentsPage(query, afterId, limit);
+        }
+    }
+
+    /**
+     * Передает всех студентов обработчику по одному, не загружая список целиком.
+     *
+     * @param handler обработчик студентов
+     * @throws SQLException если произошла ошибка доступа к базе данных
+     * @throws IOException если обработчик не смог обработать студента
+     */
+    public void forEachStudent(RowHandler<Student> handler) throws SQLException, IOException {
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            studentDAO.forEachStudent(handler);
+        }
+    }
+
+    /**
+     * Передает обработчику по одному студентов, подходящих под условия отбора, в заданном порядке.
+     *
+     * @param query условия отбора и сортировка
+     * @param handler обработчик студентов
+     * @throws SQLException если произошла ошибка доступа к базе данных
+     * @throws IOException если обработчик не смог обработать студента
+     */
+    public void forEachStudent(StudentQuery query, RowHandler<Student> handler) throws SQLException, IOException {
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            studentDAO.forEachStudent(query, handler);
+        }
+    }
+
     /**
      * Добавляет нового студента в базу данных.
      *
@@ -40,7 +138,37 @@ public class StudentService {
      * @throws SQLException если произошла ошибка доступа к базе данных
      */
     public void addStudent(Student student) throws SQLException {
-        studentDAO.addStudent(student);
+        try {
+            studentDAO.addStudent(student);
+            searchIndex.put(student);
+            events.publish(StudentWrite.Type.ADD, student);
+        } finally {
+            cache.invalidate(student.getUniqueNumber()); // Убираем закэшированный 404
+        }
+    }
+
+    /**
+     * Добавляет пакет студентов одной транзакцией.
+     *
+     * @param students студенты для добавления
+     * @return массив той же длины: true - студент добавлен, false - уникальный номер уже занят
+     * @throws SQLException если произошла ошибка доступа к базе данных
+     */
+    public boolean[] addStudents(List<Student> students) throws SQLException {
+        try {
+            boolean[] inserted = studentDAO.addStudents(students);
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i]) {
+                    searchIndex.put(students.get(i));
+                    events.publish(StudentWrite.Type.ADD, students.get(i));
+                }
+            }
+            return inserted;
+        } finally {
+            for (Student student : students) {
+                cache.invalidate(student.getUniqueNumber());
+            }
+        }
     }
 
     /**
@@ -50,7 +178,27 @@ public class StudentService {
      * @throws SQLException если произошла ошибка доступа к базе данных
      */
     public void deleteStudent(String unique_number) throws SQLException {
-        studentDAO.deleteStudent(unique_number);
+        deleteStudent(unique_number, StudentDAO.ANY_VERSION);
+    }
+
+    /**
+     * Удаляет студента, если версия его строки совпадает с ожидаемой.
+     *
+     * @param unique_number   уникальный номер студента, которого нужно удалить
+     * @param expectedVersion ожидаемая версия строки или {@link StudentDAO#ANY_VERSION}
+     * @throws SQLException если произошла ошибка доступа к базе данных или версия не совпала
+     *                      (см. {@link StudentDAO#isVersionMismatch})
+     */
+    public void deleteStudent(String unique_number, int expectedVersion) throws SQLException {
+        try {
+            studentDAO.deleteStudent(unique_number, expectedVersion);
+            searchIndex.remove(unique_number);
+            Student deleted = new Student();
+            deleted.setUniqueNumber(unique_number);
+            events.publish(StudentWrite.Type.DELETE, deleted);
+        } finally {
+            cache.invalidate(unique_number);
+        }
     }
 
     /**
@@ -60,18 +208,142 @@ public class StudentService {
      * @throws SQLException если произошла ошибка доступа к базе данных
      */
     public void updateStudent(Student student) throws SQLException{
-        studentDAO.updateStudent(student);
+        updateStudent(student, StudentDAO.ANY_VERSION);
+    }
+
+    /**
+     * Обновление информации студента, если версия его строки совпадает с ожидаемой.
+     * После успешного обновления у объекта student установлена новая версия строки.
+     *
+     * @param student         обновленная информация для студента
+     * @param expectedVersion ожидаемая версия строки или {@link StudentDAO#ANY_VERSION}
+     * @throws SQLException если произошла ошибка доступа к базе данных или версия не совпала
+     *                      (см. {@link StudentDAO#isVersionMismatch})
+     */
+    public void updateStudent(Student student, int expectedVersion) throws SQLException {
+        try {
+            student.setVersion(studentDAO.updateStudent(student, expectedVersion));
+            searchIndex.merge(student);
+            events.publish(StudentWrite.Type.UPDATE, student);
+        } finally {
+            cache.invalidate(student.getUniqueNumber());
+        }
+    }
+
+    /**
+     * Применяет измененные настройки, которые можно менять без перезапуска: cache.maxSize, cache.ttlMs,
+     * cache.negativeTtlMs, writeBehind.batchSize и writeBehind.offerTimeoutMs.
+     */
+    public void reloadSettings() {
+        cache.setLimits(AppConfig.getInt("cache.maxSize", DEFAULT_CACHE_SIZE),
+                AppConfig.getLong("cache.ttlMs", DEFAULT_CACHE_TTL_MS),
+                AppConfig.getLong("cache.negativeTtlMs", DEFAULT_NEGATIVE_TTL_MS));
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.reloadSettings();
+        }
+    }
+
+    /**
+     * Включает отложенную запись: восстанавливает операции из журнала и запускает поток-писатель.
+     * Настройки берутся из {@link AppConfig} (writeBehind.*).
+     *
+     * @return число операций, восстановленных из журнала
+     * @throws IOException если журнал не удалось прочитать или открыть
+     */
+    public int startWriteBehind() throws IOException {
+        WriteBehindQueue queue = WriteBehindQueue.fromConfig(this::applyWrites);
+        int recovered = queue.start();
+        writeBehind = queue;
+        return recovered;
+    }
+
+    /**
+     * Останавливает отложенную запись, дождавшись выполнения принятых операций.
+     *
+     * @param timeoutSeconds сколько ждать выполнения очереди
+     */
+    public void stopWriteBehind(int timeoutSeconds) {
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.close(timeoutSeconds);
+        }
+    }
+
+    /**
+     * @return очередь отложенной записи или null, если запись синхронная
+     */
+    public WriteBehindQueue getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Ставит операцию записи в очередь write-behind. Изменение станет видно после выполнения операции.
+     *
+     * @param type    вид операции
+     * @param student данные студента; для DELETE достаточно уникального номера
+     * @return номер операции для {@link #getWriteStatus(long)}
+     * @throws java.util.concurrent.RejectedExecutionException если очередь переполнена или недоступна
+     */
+    public long submitWrite(StudentWrite.Type type, Student student) {
+        return writeBehind.submit(type, student);
+    }
+
+    /**
+     * @param id номер операции
+     * @return состояние отложенной операции или null, если она неизвестна
+     */
+    public WriteStatus getWriteStatus(long id) {
+        WriteBehindQueue queue = writeBehind;
+        return queue == null ? null : queue.getStatus(id);
+    }
+
+    /**
+     * Выполняет пачку отложенных операций и обновляет кэш и поисковый индекс, как синхронные методы записи.
+     */
+    private StudentWrite.Outcome[] applyWrites(List<StudentWrite> writes) throws SQLException {
+        StudentWrite.Outcome[] outcomes;
+        try {
+            outcomes = studentDAO.applyWrites(writes);
+        } finally {
+            for (StudentWrite write : writes) {
+                cache.invalidate(write.getUniqueNumber());
+            }
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == StudentWrite.Outcome.APPLIED) {
+                StudentWrite write = writes.get(i);
+                switch (write.getType()) {
+                    case ADD -> searchIndex.put(write.getStudent());
+                    case UPDATE -> searchIndex.merge(write.getStudent());
+                    case DELETE -> searchIndex.remove(write.getUniqueNumber());
+                }
+                events.publish(write.getType(), write.getStudent());
+            }
+        }
+        return outcomes;
     }
 
     /**
      * Получение информации о студенте по уникальному номеру.
+     * Результат (в том числе отсутствие студента) берется из кэша, при промахе - из базы данных.
      *
      * @param uniqueNumber уникальный идентификатор для студента.
      * @return объект студента, если найден, иначе null.
      * @throws SQLException если произошла ошибка при обращении к базе данных.
      */
     public Student getStudentsByUniqueNumber(String uniqueNumber) throws SQLException {
-       return studentDAO.getStudentByUnique(uniqueNumber);
+       return cache.get(uniqueNumber, this::loadStudent);
+    }
+
+    /**
+     * Загружает студента для кэша. Сразу после записи реплика может отставать, и устаревшая строка
+     * осталась бы в кэше для всех клиентов, поэтому в этом окне студент читается из основной базы.
+     */
+    private Student loadStudent(String uniqueNumber) throws SQLException {
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            return studentDAO.getStudentByUnique(uniqueNumber);
+        }
     }
 
     /**
@@ -84,4 +356,91 @@ public class StudentService {
     public boolean isUniqueNumberExists(String uniqueNumber) throws SQLException{
         return studentDAO.isUniqueNumberExists(uniqueNumber);
     }
+
+    /**
+     * Выдает новый уникальный номер для студента.
+     * Номера выдаются из заранее зарезервированных блоков, без запроса к базе на каждый вызов.
+     *
+     * @return уникальный номер
+     * @throws SQLException если не удалось зарезервировать новый блок номеров
+     */
+    public String generateUniqueNumber() throws SQLException {
+        return numberAllocator.next();
+    }
+
+    /**
+     * Возвращает кэш студентов (для метрик: попадания, промахи, вытеснения).
+     *
+     * @return кэш студентов
+     */
+    public StudentCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Ищет студентов по началу или части фамилии, имени и отчества в индексе в памяти, без запроса к базе.
+     *
+     * @param query строка поиска
+     * @param limit максимальное число результатов
+     * @return лучшие совпадения
+     */
+    public List<StudentRecord> searchStudents(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Заполняет поисковый индекс и статистику групп всеми студентами из базы данных
+     * (потоком, без загрузки таблицы в память). Изменения, сделанные через сервис во время загрузки, не теряются.
+     *
+     * @throws SQLException если произошла ошибка доступа к базе данных
+     * @throws IOException если не удалось обработать строку
+     */
+    public void loadSearchIndex() throws SQLException, IOException {
+        boolean complete = false;
+        searchIndex.beginLoad();
+        // Индекс учитывает только изменения, сделанные после начала загрузки, поэтому строки читаются из основной базы
+        try (RequestContext.Pin ignored = RequestContext.pinToPrimary()) {
+            studentDAO.forEachStudent(searchIndex::loadRow);
+            complete = true;
+        } finally {
+            searchIndex.finishLoad(complete);
+        }
+    }
+
+    /**
+     * Возвращает ленту изменений студентов (для /api/students/events и метрик).
+     *
+     * @return рассылка событий
+     */
+    public StudentEventBroadcaster getEvents() {
+        return events;
+    }
+
+    /**
+     * Возвращает статистику студентов по группам. Она полная, когда загружен поисковый индекс
+     * (см. {@link StudentSearchIndex#isReady()}).
+     *
+     * @return статистика групп
+     */
+    public StudentGroupStats getGroupStats() {
+        return groupStats;
+    }
+
+    /**
+     * Возвращает поисковый индекс (для метрик и проверки готовности).
+     *
+     * @return поисковый индекс
+     */
+    public StudentSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Возвращает версии таблицы и строк студентов (для ETag и Last-Modified).
+     *
+     * @return счетчики версий
+     */
+    public TableVersions getVersions() {
+        return studentDAO.getVersions();
+    }
 }
@@ -0,0 +1,102 @@
+package service;
+
+import db.StudentDAO;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Выдает уникальные номера студентов без обращения к базе данных на каждый вызов.
+ * <p>
+ * Номера резервируются в базе блоками (hi/lo): строка последовательности блокируется на время
+ * резервирования, поэтому блоки разных экземпляров сервера не пересекаются. Внутри блока
+ * номера, уже занятые студентами (например, заданные вручную), исключаются одним запросом,
+ * а оставшиеся хранятся как список свободных диапазонов. Выдача номера - O(1) под блокировкой,
+ * запрос к базе нужен только при исчерпании блока.
+ * <p>
+ * Пока последовательность не дошла до последнего шестизначного номера, номера удаленных студентов
+ * повторно не выдаются. Затем последовательность начинается сначала, и блоки состоят только из
+ * освободившихся номеров; номера кончаются, только если полный проход не нашел ни одного свободного.
+ */
+public class UniqueNumberAllocator {
+    private static final long MAX_NUMBER = 999_999; // Номера шестизначные
+
+    private final StudentDAO studentDAO;
+    private final int blockSize;
+    private final Deque<long[]> freeRanges = new ArrayDeque<>(); // Свободные диапазоны [start, end), под блокировкой this
+    private long fullBlocks; // Блоков подряд без единого свободного номера
+
+    /**
+     * Создает распределитель номеров.
+     *
+     * @param studentDAO DAO для резервирования блоков
+     * @param blockSize сколько номеров резервировать за одно обращение к базе
+     */
+    public UniqueNumberAllocator(StudentDAO studentDAO, int blockSize) {
+        this.studentDAO = studentDAO;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Выдает следующий свободный уникальный номер.
+     *
+     * @return уникальный номер
+     * @throws SQLException если не удалось зарезервировать новый блок или номера закончились
+     */
+    public synchronized String next() throws SQLException {
+        while (freeRanges.isEmpty()) {
+            reserveBlock();
+        }
+        long[] range = freeRanges.peekFirst();
+        long number = range[0]++;
+        if (range[0] == range[1]) {
+            freeRanges.pollFirst();
+        }
+        return String.valueOf(number);
+    }
+
+    /**
+     * @return сколько номеров осталось в уже зарезервированных блоках
+     */
+    public synchronized long available() {
+        long total = 0;
+        for (long[] range : freeRanges) {
+            total += range[1] - range[0];
+        }
+        return total;
+    }
+
+    private void reserveBlock() throws SQLException {
+        long start = studentDAO.reserveUniqueNumberBlock(blockSize, MAX_NUMBER);
+        long end = Math.min(start + blockSize, MAX_NUMBER + 1);
+
+        List<String> candidates = new ArrayList<>((int) (end - start));
+        for (long number = start; number < end; number++) {
+            candidates.add(String.valueOf(number));
+        }
+        Set<String> taken = studentDAO.findExistingUniqueNumbers(candidates);
+
+        long rangeStart = start;
+        for (long number = start; number < end; number++) {
+            if (taken.contains(String.valueOf(number))) {
+                if (number > rangeStart) {
+                    freeRanges.addLast(new long[]{rangeStart, number});
+                }
+                rangeStart = number + 1;
+            }
+        }
+        if (end > rangeStart) {
+            freeRanges.addLast(new long[]{rangeStart, end});
+        }
+        if (!freeRanges.isEmpty()) {
+            fullBlocks = 0;
+        } else if (++fullBlocks > MAX_NUMBER / blockSize + 1) {
+            fullBlocks = 0; // Следующий вызов снова проверит все блоки: студентов могли удалить
+            throw new SQLException("Unique number space is exhausted.");
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package service;
+
+import config.AppConfig;
+import model.Student;
+import model.StudentWrite;
+import model.WriteStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Очередь отложенной записи (write-behind) для добавления, обновления и удаления студентов.
+ * <p>
+ * Операция проверяется обработчиком, записывается в {@link WriteJournal} (с fsync) и кладется
+ * в ограниченный кольцевой буфер, после чего клиент сразу получает 202 и номер операции.
+ * Отдельный поток-писатель забирает до batchSize операций, объединяет последовательные изменения
+ * одной строки и выполняет пачку одной транзакцией. Место в буфере занимается до сброса журнала
+ * (порядок в буфере совпадает с порядком в журнале), но писатель не берет операцию, пока fsync
+ * не завершился; если fsync не удался, клиент получает 503, а операция отменяется.
+ * <p>
+ * Когда буфер заполнен (база не успевает или недоступна), новая операция ждет свободного места
+ * не дольше offerTimeoutMs, затем отклоняется {@link RejectedExecutionException} (503).
+ * Временные ошибки базы повторяются с растущей паузой; если пачка отклонена базой по другой причине,
+ * операции выполняются по одной, чтобы ошибка одной строки не блокировала остальные.
+ * Операции выполняются как минимум один раз: после падения процесса операции, не отмеченные
+ * в журнале выполненными, повторяются при запуске.
+ */
+public class WriteBehindQueue {
+
+    /**
+     * Выполняет пачку операций в базе данных одной транзакцией.
+     */
+    @FunctionalInterface
+    public interface Applier {
+        StudentWrite.Outcome[] apply(List<StudentWrite> writes) throws SQLException;
+    }
+
+    private static final Logger logger = Logger.getLogger(WriteBehindQueue.class.getName());
+    private static final long INITIAL_RETRY_DELAY_MS = 100;
+    private static final long MAX_RETRY_DELAY_MS = 5_000;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final long DEFAULT_OFFER_TIMEOUT_MS = 50;
+
+    private final WriteJournal journal;
+    private final Applier applier;
+    private final int capacity; // Сколько операций может ждать записи в базу
+    private volatile int batchSize; // Сколько операций выполняется одной транзакцией
+    private volatile long offerTimeoutMs; // Сколько ждать места в заполненном буфере
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private static final byte SYNCING = 0; // Операция еще не сброшена на диск
+    private static final byte READY = 1;
+    private static final byte CANCELLED = 2; // Сброс на диск не удался, клиент получил отказ
+
+    private StudentWrite[] ring; // Кольцевой буфер операций
+    private byte[] states; // Состояние операции в той же ячейке ring
+    private int head; // Индекс самой старой операции
+    private int count; // Число операций в буфере
+    private long nextId = System.currentTimeMillis() * 1000; // Номера не повторяются после перезапуска
+    private long lastReplayedId; // Операции с номером не больше этого восстановлены из журнала
+    private boolean closed;
+    private Thread writer;
+
+    private final Map<Long, WriteStatus> statuses; // Последние операции и их состояния
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Создает очередь. Журнал читается, а поток-писатель запускается методом {@link #start()}.
+     *
+     * @param journalPath       файл журнала
+     * @param journalCompactBytes размер журнала, после которого он переписывается
+     * @param capacity          размер буфера операций
+     * @param batchSize         максимальный размер пачки
+     * @param offerTimeoutMs    ожидание места в заполненном буфере, мс
+     * @param statusRetention   сколько последних операций помнит {@link #getStatus(long)}
+     * @param applier           выполнение пачки в базе данных
+     */
+    public WriteBehindQueue(Path journalPath, long journalCompactBytes, int capacity, int batchSize,
+                            long offerTimeoutMs, int statusRetention, Applier applier) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid write-behind settings: capacity=" + capacity + ", batchSize=" + batchSize);
+        }
+        this.journal = new WriteJournal(journalPath, journalCompactBytes);
+        this.applier = applier;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.ring = new StudentWrite[capacity];
+        this.states = new byte[capacity];
+        this.statuses = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, WriteStatus> eldest) {
+                return size() > statusRetention;
+            }
+        };
+    }
+
+    /**
+     * Создает очередь по настройкам writeBehind.journal, writeBehind.journalCompactBytes,
+     * writeBehind.capacity, writeBehind.batchSize, writeBehind.offerTimeoutMs и writeBehind.statusRetention.
+     *
+     * @param applier выполнение пачки в базе данных
+     * @return настроенная очередь (не запущенная)
+     */
+    public static WriteBehindQueue fromConfig(Applier applier) {
+        return new WriteBehindQueue(
+                Path.of(AppConfig.get("writeBehind.journal", "data/write-behind.journal")),
+                AppConfig.getLong("writeBehind.journalCompactBytes", 64L * 1024 * 1024),
+                AppConfig.getInt("writeBehind.capacity", 10_000),
+                AppConfig.getInt("writeBehind.batchSize", DEFAULT_BATCH_SIZE),
+                AppConfig.getLong("writeBehind.offerTimeoutMs", DEFAULT_OFFER_TIMEOUT_MS),
+                AppConfig.getInt("writeBehind.statusRetention", 100_000),
+                applier);
+    }
+
+    /**
+     * Применяет измененные writeBehind.batchSize и writeBehind.offerTimeoutMs; новый размер пачки
+     * действует со следующей пачки. Остальные настройки очереди меняются только перезапуском.
+     *
+     * @throws IllegalArgumentException если размер пачки не положительный
+     */
+    public void reloadSettings() {
+        int newBatchSize = AppConfig.getInt("writeBehind.batchSize", DEFAULT_BATCH_SIZE);
+        if (newBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid write-behind batchSize: " + newBatchSize);
+        }
+        batchSize = newBatchSize;
+        offerTimeoutMs = AppConfig.getLong("writeBehind.offerTimeoutMs", DEFAULT_OFFER_TIMEOUT_MS);
+    }
+
+    /**
+     * Восстанавливает незавершенные операции из журнала и запускает поток-писатель.
+     *
+     * @return число восстановленных операций
+     * @throws IOException если журнал не удалось прочитать или открыть
+     */
+    public int start() throws IOException {
+        List<StudentWrite> recovered = journal.open();
+        lock.lock();
+        try {
+            if (recovered.size() > ring.length) {
+                ring = new StudentWrite[recovered.size()]; // Буфер могли уменьшить между запусками
+                states = new byte[recovered.size()];
+            }
+            for (StudentWrite write : recovered) {
+                states[count] = READY;
+                ring[count++] = write;
+                nextId = Math.max(nextId, write.getId() + 1);
+                lastReplayedId = Math.max(lastReplayedId, write.getId());
+                setStatus(write, WriteStatus.QUEUED, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writer = new Thread(this::runWriter, "write-behind-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return recovered.size();
+    }
+
+    /**
+     * Ставит операцию в очередь. Возвращается только после того, как операция записана в журнал на диске.
+     *
+     * @param type    вид операции
+     * @param student данные студента (копируются); для DELETE достаточно уникального номера
+     * @return номер операции
+     * @throws RejectedExecutionException если буфер заполнен дольше offerTimeoutMs, очередь закрыта
+     *                                    или журнал недоступен
+     */
+    public long submit(StudentWrite.Type type, Student student) {
+        StudentWrite write;
+        int slot;
+        long position;
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+            while (count >= capacity && !closed) {
+                if (remaining <= 0) {
+                    rejected.increment();
+                    throw new RejectedExecutionException("Write queue is full.");
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            if (closed) {
+                throw new RejectedExecutionException("Write queue is closed.");
+            }
+            write = new StudentWrite(nextId, type, StudentCache.copyOf(student));
+            position = journal.append(write);
+            nextId++;
+            slot = (head + count) % ring.length;
+            ring[slot] = write;
+            states[slot] = SYNCING; // Писатель дойдет до нее только после publish
+            count++;
+            setStatus(write, WriteStatus.QUEUED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the write queue.", e);
+        } catch (IOException e) {
+            throw journalFailure(e);
+        } finally {
+            lock.unlock();
+        }
+        boolean durable = false;
+        try {
+            journal.sync(position); // Групповой fsync вне блокировки очереди
+            durable = true;
+        } catch (IOException e) {
+            throw journalFailure(e);
+        } finally {
+            publish(write, slot, durable);
+        }
+        return write.getId();
+    }
+
+    /**
+     * Открывает операцию писателю после сброса журнала или отменяет ее, если сброс не удался:
+     * клиент получил 503, поэтому операция не должна выполниться ни сейчас, ни после перезапуска.
+     * Пока операция в состоянии SYNCING, писатель ее не забирает, поэтому ячейка slot не меняется.
+     */
+    private void publish(StudentWrite write, int slot, boolean durable) {
+        lock.lock();
+        try {
+            states[slot] = durable ? READY : CANCELLED;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (durable) {
+            return;
+        }
+        synchronized (statuses) {
+            statuses.remove(write.getId());
+        }
+        try {
+            journal.complete(List.of(write.getId())); // Строка операции могла попасть на диск
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Write-behind journal error: ", e);
+        }
+    }
+
+    private static RejectedExecutionException journalFailure(IOException e) {
+        logger.log(Level.SEVERE, "Write-behind journal error: ", e);
+        return new RejectedExecutionException("Write journal is unavailable.", e);
+    }
+
+    /**
+     * @param id номер операции
+     * @return состояние операции или null, если она неизвестна (давно завершена или выдана до перезапуска)
+     */
+    public WriteStatus getStatus(long id) {
+        synchronized (statuses) {
+            return statuses.get(id);
+        }
+    }
+
+    private void setStatus(StudentWrite write, String status, String message) {
+        WriteStatus value = new WriteStatus(write.getId(), write.getType().name().toLowerCase(Locale.ROOT),
+                write.getUniqueNumber(), status, message);
+        synchronized (statuses) {
+            statuses.put(write.getId(), value);
+        }
+    }
+
+    /**
+     * Поток-писатель: забирает операции пачками и выполняет их, пока очередь не закрыта и не пуста.
+     */
+    private void runWriter() {
+        List<StudentWrite> batch = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (count == 0 || states[head] == SYNCING) {
+                    if (count == 0 && closed) {
+                        return; // Очередь закрыта и пуста
+                    }
+                    notEmpty.await();
+                }
+                int taken = 0;
+                while (taken < batchSize && count > 0 && states[head] != SYNCING) {
+                    if (states[head] == READY) {
+                        batch.add(ring[head]);
+                    }
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    count--;
+                    taken++;
+                }
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) {
+                continue; // Все взятые операции отменены
+            }
+            if (!applyBatch(coalesce(batch))) {
+                return; // Прерван при остановке; невыполненные операции остались в журнале
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Объединяет последовательные изменения одной строки: UPDATE, за которым следует UPDATE
+     * той же строки, становится одним UPDATE, а UPDATE, за которым следует DELETE, - одним DELETE.
+     * Результат такой группы одинаков для всех ее операций. ADD не объединяется: при занятом номере
+     * следующие за ним изменения должны применяться к существующей строке.
+     *
+     * @param batch операции в порядке поступления
+     * @return группы операций в порядке выполнения
+     */
+    static List<Group> coalesce(List<StudentWrite> batch) {
+        List<Group> groups = new ArrayList<>(batch.size());
+        Map<String, Group> lastByNumber = new HashMap<>();
+        for (StudentWrite write : batch) {
+            Group previous = lastByNumber.get(write.getUniqueNumber());
+            if (previous != null && previous.write.getType() == StudentWrite.Type.UPDATE
+                    && write.getType() != StudentWrite.Type.ADD) {
+                previous.write = write.getType() == StudentWrite.Type.UPDATE
+                        ? new StudentWrite(write.getId(), StudentWrite.Type.UPDATE,
+                                mergeChanges(previous.write.getStudent(), write.getStudent()))
+                        : write;
+                previous.members.add(write);
+                continue;
+            }
+            Group group = new Group(write);
+            groups.add(group);
+            lastByNumber.put(write.getUniqueNumber(), group);
+        }
+        return groups;
+    }
+
+    private static Student mergeChanges(Student earlier, Student later) {
+        Student merged = StudentCache.copyOf(earlier);
+        if (later.getFirstName() != null) merged.setFirstName(later.getFirstName());
+        if (later.getLastName() != null) merged.setLastName(later.getLastName());
+        if (later.getPatronymic() != null) merged.setPatronymic(later.getPatronymic());
+        if (later.getBirthDate() != null) merged.setBirthDate(later.getBirthDate());
+        if (later.getGroupName() != null) merged.setGroupName(later.getGroupName());
+        return merged;
+    }
+
+    /**
+     * Выполняет группы одной транзакцией; временные ошибки повторяются, а если база отклонила
+     * пачку, группы выполняются по одной, и ошибка достается только виновной группе.
+     *
+     * @return false, если поток прерван при остановке
+     */
+    private boolean applyBatch(List<Group> groups) {
+        try {
+            SQLException error = applyWithRetry(groups);
+            if (error != null && groups.size() == 1) {
+                fail(groups.get(0), error.getMessage());
+            } else if (error != null) {
+                for (Group group : groups) {
+                    SQLException single = applyWithRetry(Collections.singletonList(group));
+                    if (single != null) {
+                        fail(group, single.getMessage());
+                    }
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return null, если группы выполнены, или ошибка, с которой база отклонила пачку
+     * @throws InterruptedException если поток прерван во время паузы перед повтором
+     */
+    private SQLException applyWithRetry(List<Group> groups) throws InterruptedException {
+        List<StudentWrite> writes = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            writes.add(group.write);
+        }
+        long delay = INITIAL_RETRY_DELAY_MS;
+        while (true) {
+            try {
+                StudentWrite.Outcome[] outcomes = applier.apply(writes);
+                batches.increment();
+                for (int i = 0; i < groups.size(); i++) {
+                    finish(groups.get(i), outcomes[i]);
+                }
+                return null;
+            } catch (SQLException e) {
+                if (!isTransient(e)) {
+                    logger.log(Level.WARNING, "Write-behind batch rejected by the database: ", e);
+                    return e;
+                }
+                logger.log(Level.WARNING, "Write-behind batch failed, retrying in " + delay + " ms: " + e.getMessage());
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Ошибки соединения, тайм-ауты и взаимоблокировки проходят при повторе; остальные - нет.
+     */
+    private static boolean isTransient(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException
+                || state == null || state.startsWith("08") || state.startsWith("40");
+    }
+
+    private void finish(Group group, StudentWrite.Outcome outcome) {
+        for (StudentWrite write : group.members) {
+            if (outcome == StudentWrite.Outcome.APPLIED || write.getId() <= lastReplayedId) {
+                // Восстановленная из журнала операция могла быть выполнена до падения процесса
+                setStatus(write, WriteStatus.APPLIED, null);
+                applied.increment();
+            } else {
+                setStatus(write, WriteStatus.FAILED, outcome == StudentWrite.Outcome.CONFLICT
+                        ? "Unique number already exists." : "Student not found.");
+                failed.increment();
+            }
+        }
+        complete(group);
+    }
+
+    private void fail(Group group, String message) {
+        for (StudentWrite write : group.members) {
+            setStatus(write, WriteStatus.FAILED, message);
+            failed.increment();
+        }
+        complete(group);
+    }
+
+    private void complete(Group group) {
+        List<Long> ids = new ArrayList<>(group.members.size());
+        for (StudentWrite write : group.members) {
+            ids.add(write.getId());
+        }
+        try {
+            journal.complete(ids);
+        } catch (IOException e) {
+            // Операции выполнятся повторно после перезапуска
+            logger.log(Level.SEVERE, "Write-behind journal error: ", e);
+        }
+    }
+
+    /**
+     * Останавливает прием операций и ждет, пока писатель выполнит уже принятые.
+     * Операции, не выполненные за отведенное время, остаются в журнале до следующего запуска.
+     *
+     * @param timeoutSeconds сколько ждать выполнения очереди
+     */
+    public void close(int timeoutSeconds) {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (writer != null) {
+                writer.join(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+                if (writer.isAlive()) {
+                    writer.interrupt();
+                    writer.join(TimeUnit.SECONDS.toMillis(1));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Write-behind journal error: ", e);
+        }
+    }
+
+    /**
+     * @return число операций, ожидающих записи в базу (в буфере)
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return емкость буфера операций
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return число выполненных транзакций
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Операция (или несколько объединенных операций одной строки) и ее исходные операции.
+     */
+    static final class Group {
+        StudentWrite write; // Что выполняется в базе
+        final List<StudentWrite> members = new ArrayList<>(1); // Операции клиентов в этой группе
+
+        Group(StudentWrite write) {
+            this.write = write;
+            members.add(write);
+        }
+    }
+}
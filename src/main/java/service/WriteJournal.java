@@ -0,0 +1,238 @@
+package service;
+
+import json.JsonBuffer;
+import json.StudentCodec;
+import model.Student;
+import model.StudentWrite;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Журнал отложенных операций записи на локальном диске.
+ * <p>
+ * Операция дописывается строкой {@code + id TYPE json} до того, как клиент получит 202,
+ * а после записи в базу отмечается строкой {@code - id}. При запуске неотмеченные операции
+ * читаются из журнала и выполняются повторно, поэтому подтвержденные записи переживают падение
+ * процесса. Недописанная последняя строка (падение во время записи) пропускается: такая операция
+ * еще не была подтверждена.
+ * <p>
+ * Сброс на диск (fsync) групповой: поток, чей сброс уже покрыт чужим, не вызывает force повторно.
+ * Если запись строки не удалась, файл обрезается до последней целой строки (или переписывается
+ * перед следующей записью), чтобы следующая операция не оказалась в одной строке с обрывком.
+ * Когда журнал вырастает больше compactBytes, он переписывается только из незавершенных операций.
+ */
+class WriteJournal implements AutoCloseable {
+    private final Path path;
+    private final long compactBytes;
+    private final StudentCodec codec = new StudentCodec();
+    private final Map<Long, byte[]> pending = new LinkedHashMap<>(); // Незавершенные операции -> их строки
+    private final Object forceLock = new Object();
+    private FileChannel channel;
+    private long size; // Размер файла журнала (конец последней целой строки)
+    private boolean damaged; // Хвост неудачной записи не удалось обрезать
+    private volatile long appended; // Байт записано за все время (не уменьшается при сжатии)
+    private long forced; // Сколько из appended гарантированно на диске (под forceLock)
+
+    /**
+     * @param path         файл журнала (создается при необходимости)
+     * @param compactBytes размер, после которого журнал переписывается
+     */
+    WriteJournal(Path path, long compactBytes) {
+        this.path = path;
+        this.compactBytes = compactBytes;
+    }
+
+    /**
+     * Читает журнал и открывает его для записи.
+     *
+     * @return незавершенные операции в порядке поступления
+     * @throws IOException если журнал не удалось прочитать или открыть
+     */
+    synchronized List<StudentWrite> open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Map<Long, StudentWrite> writes = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readLine(line, writes);
+                }
+            }
+        }
+        for (StudentWrite write : writes.values()) {
+            pending.put(write.getId(), encode(write));
+        }
+        rewrite(); // Отбрасываем завершенные операции и недописанный хвост
+        return new ArrayList<>(writes.values());
+    }
+
+    private void readLine(String line, Map<Long, StudentWrite> writes) {
+        try {
+            if (line.startsWith("- ")) {
+                writes.remove(Long.parseLong(line.substring(2).trim()));
+            } else if (line.startsWith("+ ")) {
+                int idEnd = line.indexOf(' ', 2);
+                int typeEnd = line.indexOf(' ', idEnd + 1);
+                long id = Long.parseLong(line.substring(2, idEnd));
+                StudentWrite.Type type = StudentWrite.Type.valueOf(line.substring(idEnd + 1, typeEnd));
+                Student student = codec.readStudent(new ByteArrayInputStream(
+                        line.substring(typeEnd + 1).getBytes(StandardCharsets.UTF_8)));
+                if (student != null) {
+                    writes.put(id, new StudentWrite(id, type, student));
+                }
+            }
+        } catch (RuntimeException | IOException e) {
+            // Недописанная строка: операция не была подтверждена клиенту
+        }
+    }
+
+    /**
+     * Дописывает операцию в журнал без сброса на диск; перед ответом клиенту нужно вызвать {@link #sync(long)}.
+     *
+     * @param write операция
+     * @return позиция, которую должен покрыть sync
+     * @throws IOException если запись не удалась
+     */
+    synchronized long append(StudentWrite write) throws IOException {
+        byte[] line = encode(write);
+        write(line);
+        pending.put(write.getId(), line);
+        return appended;
+    }
+
+    /**
+     * Гарантирует, что журнал записан на диск как минимум до указанной позиции.
+     *
+     * @param position позиция, возвращенная {@link #append(StudentWrite)}
+     * @throws IOException если сброс не удался
+     */
+    void sync(long position) throws IOException {
+        synchronized (forceLock) {
+            if (forced >= position) {
+                return; // Другой поток уже сбросил журнал вместе с этой операцией
+            }
+            long target = appended;
+            channel.force(false);
+            forced = target;
+        }
+    }
+
+    /**
+     * Отмечает операции выполненными. Отметки не сбрасываются на диск: если они потеряются,
+     * операции будут выполнены повторно.
+     *
+     * @param ids номера выполненных операций
+     * @throws IOException если запись не удалась
+     */
+    synchronized void complete(Collection<Long> ids) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (long id : ids) {
+            if (pending.remove(id) != null) {
+                lines.append("- ").append(id).append('\n');
+            }
+        }
+        write(lines.toString().getBytes(StandardCharsets.UTF_8));
+        if (size > compactBytes) {
+            rewrite();
+        }
+    }
+
+    /**
+     * @return число незавершенных операций в журнале
+     */
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Переписывает журнал из незавершенных операций: новый файл сбрасывается на диск
+     * и атомарно заменяет старый.
+     */
+    private void rewrite() throws IOException {
+        synchronized (forceLock) {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            long newSize = 0;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (byte[] line : pending.values()) {
+                    ByteBuffer buffer = ByteBuffer.wrap(line);
+                    while (buffer.hasRemaining()) {
+                        newSize += out.write(buffer);
+                    }
+                }
+                out.force(true);
+            }
+            if (channel != null) {
+                channel.close();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = newSize;
+            forced = appended; // Все незавершенные операции уже на диске
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (damaged) {
+            rewrite(); // Файл заново собирается из незавершенных операций, без обрывка
+            damaged = false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(size);
+            } catch (IOException truncateFailure) {
+                damaged = true;
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        size += bytes.length;
+        appended += bytes.length;
+    }
+
+    private byte[] encode(StudentWrite write) {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        byte[] head = ("+ " + write.getId() + ' ' + write.getType() + ' ').getBytes(StandardCharsets.UTF_8);
+        line.write(head, 0, head.length);
+        try (JsonBuffer json = codec.encode(write.getStudent())) {
+            json.writeTo(line);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream не бросает IOException
+        }
+        line.write('\n');
+        return line.toByteArray();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        synchronized (forceLock) {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+-- Основная таблица студентов (на существующей базе ничего не меняет)
+CREATE TABLE IF NOT EXISTS students (
+    id            INT AUTO_INCREMENT PRIMARY KEY,
+    first_name    VARCHAR(100) NOT NULL,
+    last_name     VARCHAR(100) NOT NULL,
+    patronymic    VARCHAR(100),
+    birth_date    DATE,
+    group_name    VARCHAR(100),
+    unique_number VARCHAR(20)  NOT NULL
+);
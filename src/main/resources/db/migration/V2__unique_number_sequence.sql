@@ -0,0 +1,7 @@
+-- Последовательность для выдачи уникальных номеров блоками (hi/lo)
+CREATE TABLE IF NOT EXISTS unique_number_sequence (
+    name       VARCHAR(64) PRIMARY KEY,
+    next_value BIGINT      NOT NULL
+);
+
+INSERT INTO unique_number_sequence (name, next_value) VALUES ('students', 1);
@@ -0,0 +1,9 @@
+-- Индексы для отбора и сортировки списка студентов на стороне базы данных
+CREATE INDEX idx_students_group_name ON students (group_name);
+
+-- Префиксный поиск по фамилии (с именем для сортировки однофамильцев) и по имени
+CREATE INDEX idx_students_last_first ON students (last_name, first_name);
+
+CREATE INDEX idx_students_first_name ON students (first_name);
+
+CREATE INDEX idx_students_birth_date ON students (birth_date);
@@ -0,0 +1,5 @@
+-- Уникальность номера студента обеспечивает база: добавление выполняется одним INSERT,
+-- а занятый номер определяется по ошибке нарушения ключа. Индекс также ускоряет
+-- поиск, изменение и удаление по номеру. Перед применением на существующей базе
+-- повторяющиеся номера нужно устранить, иначе миграция завершится ошибкой.
+CREATE UNIQUE INDEX uq_students_unique_number ON students (unique_number);
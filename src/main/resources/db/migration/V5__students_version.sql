@@ -0,0 +1,3 @@
+-- Версия строки для оптимистической блокировки: каждое изменение увеличивает ее на единицу,
+-- а условное изменение (If-Match) выполняется только при совпадении версии.
+ALTER TABLE students ADD COLUMN version INT NOT NULL DEFAULT 1;
@@ -0,0 +1,66 @@
+import config.AppConfig;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppConfigTest {
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("app-config", ".properties");
+        System.setProperty("config.file", file.toString());
+        AppConfig.reload();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        System.clearProperty("config.file");
+        System.clearProperty("test.override");
+        AppConfig.reload();
+        Files.deleteIfExists(file);
+    }
+
+    private void write(String content) throws IOException {
+        Files.writeString(file, content);
+    }
+
+    @Test
+    void testFileValuesAndOverrides() throws IOException {
+        write("test.size = 42\ntest.override=file\ntest.broken=12x\n");
+        AppConfig.reload();
+        System.setProperty("test.override", "property");
+
+        assertEquals(42, AppConfig.getInt("test.size", 1));
+        assertEquals(42L, AppConfig.getLong("test.size", 1));
+        assertEquals("property", AppConfig.get("test.override", null)); // Системное свойство важнее файла
+        assertEquals(7, AppConfig.getInt("test.broken", 7)); // Некорректное значение - значение по умолчанию
+        assertEquals(5, AppConfig.getInt("test.missing", 5));
+        assertTrue(AppConfig.getBoolean("test.missing", true));
+    }
+
+    @Test
+    void testReloadReportsChangedKeys() throws IOException {
+        write("test.size=1\ntest.same=x\ntest.removed=y\n");
+        AppConfig.reload();
+        List<Set<String>> notified = new ArrayList<>();
+        AppConfig.addReloadListener(notified::add);
+
+        write("test.size=2\ntest.same=x\ntest.added=z\n");
+        Set<String> changed = AppConfig.reload();
+
+        assertEquals(Set.of("test.size", "test.removed", "test.added"), changed);
+        assertEquals(List.of(changed), notified);
+        assertEquals(2, AppConfig.getInt("test.size", 0));
+        assertNull(AppConfig.get("test.removed", null));
+        assertEquals(Set.of(), AppConfig.reload()); // Без изменений подписчики не вызываются
+        assertEquals(1, notified.size());
+    }
+}
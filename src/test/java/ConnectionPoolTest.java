@@ -0,0 +1,145 @@
+import db.ConnectionPool;
+import db.PoolSettings;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кэш подготовленных операторов в соединениях пула и изменение размера работающего пула. Используется H2 в памяти.
+ */
+class ConnectionPoolTest {
+    private static final String SELECT_SQL = "SELECT name FROM items WHERE id = ?";
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private ConnectionPool pool;
+
+    private ConnectionPool open(int statementCacheSize) throws SQLException {
+        PoolSettings settings = new PoolSettings("jdbc:h2:mem:pool" + databases.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1", "sa", "");
+        settings.setMinSize(0);
+        settings.setMaxSize(1); // Каждая выдача возвращает одно и то же физическое соединение
+        settings.setStatementCacheSize(statementCacheSize);
+        pool = new ConnectionPool(settings);
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+            statement.execute("INSERT INTO items VALUES (1, 'one'), (2, 'two')");
+        }
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private static String select(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setInt(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    @Test
+    void testStatementIsReusedAcrossBorrows() throws SQLException {
+        open(8);
+
+        for (int id = 1; id <= 2; id++) {
+            try (Connection connection = pool.getConnection()) {
+                assertEquals(id == 1 ? "one" : "two", select(connection, id));
+            }
+        }
+
+        assertEquals(1, pool.getStatementCacheMisses());
+        assertEquals(1, pool.getStatementCacheHits());
+    }
+
+    @Test
+    void testReturnedStatementIsResetAndItsHandleInvalidated() throws SQLException {
+        open(8);
+
+        try (Connection connection = pool.getConnection()) {
+            PreparedStatement first = connection.prepareStatement(SELECT_SQL);
+            first.setInt(1, 1);
+            first.close();
+            assertTrue(first.isClosed());
+            assertThrows(SQLException.class, first::executeQuery);
+
+            try (PreparedStatement second = connection.prepareStatement(SELECT_SQL)) {
+                assertSame(connection, second.getConnection());
+                assertThrows(SQLException.class, second::executeQuery); // Параметр прошлого заемщика очищен
+            }
+        }
+    }
+
+    @Test
+    void testSameStatementOpenTwiceAndDisabledCache() throws SQLException {
+        open(8);
+        try (Connection connection = pool.getConnection();
+             PreparedStatement outer = connection.prepareStatement(SELECT_SQL)) {
+            outer.setInt(1, 1);
+            assertEquals("two", select(connection, 2)); // Кэшированный оператор занят - готовится отдельный
+            try (ResultSet rs = outer.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals("one", rs.getString(1));
+            }
+        }
+        pool.close();
+
+        open(0);
+        try (Connection connection = pool.getConnection()) {
+            assertEquals("one", select(connection, 1));
+            assertEquals("one", select(connection, 1));
+        }
+        assertEquals(0, pool.getStatementCacheHits() + pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void testResizeChangesBorrowLimit() throws SQLException {
+        open(8);
+        pool.getSettings().setBorrowTimeoutMillis(50);
+
+        pool.resize(0, 2);
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            assertEquals(2, pool.getActiveCount());
+
+            pool.resize(0, 1); // Выданные соединения остаются у владельцев
+            assertEquals(1, pool.getMaxSize());
+        }
+        try (Connection connection = pool.getConnection()) {
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+        }
+        assertTrue(pool.getTotalCount() <= 1);
+        assertThrows(IllegalArgumentException.class, () -> pool.resize(2, 1));
+    }
+
+    @Test
+    void testLeakIsReportedOnceAfterThreshold() throws Exception {
+        PoolSettings settings = new PoolSettings("jdbc:h2:mem:pool" + databases.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1", "sa", "");
+        settings.setMinSize(0);
+        settings.setMaxSize(1);
+        settings.setLeakThresholdMillis(20);
+        settings.setHousekeepingPeriodMillis(10);
+        pool = new ConnectionPool(settings);
+
+        try (Connection connection = pool.getConnection()) {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (pool.getLeakCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+            assertEquals(1, pool.getLeakCount());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import db.ConnectionPool;
+import db.DataSourceRouter;
+import db.PoolSettings;
+import db.RequestContext;
+import db.SchemaMigrator;
+import db.StudentDAO;
+import model.Student;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Маршрутизация чтений на реплики. Основная база и реплики - отдельные базы H2 без репликации,
+ * поэтому по содержимому видно, откуда пришел ответ.
+ */
+class DataSourceRouterTest {
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private DataSourceRouter router;
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.end();
+        if (router != null) {
+            router.close();
+        }
+        pools.forEach(ConnectionPool::close);
+    }
+
+    private ConnectionPool database(String name) throws SQLException {
+        PoolSettings settings = new PoolSettings("jdbc:h2:mem:router" + databases.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        settings.setMinSize(0);
+        ConnectionPool pool = new ConnectionPool(settings);
+        pools.add(pool);
+        new SchemaMigrator(pool).migrate();
+        new StudentDAO(pool).addStudent(new Student("1", name, "Иванов", null, "2001-02-02", "A1"));
+        return pool;
+    }
+
+    private DataSourceRouter router(DataSourceRouter.Selection selection, ConnectionPool primary,
+                                    ConnectionPool... replicas) {
+        router = new DataSourceRouter(primary, List.of(replicas), selection, 0, 60_000);
+        return router;
+    }
+
+    private static String source(Connection connection) throws SQLException {
+        try (connection;
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT first_name FROM students WHERE unique_number = '1'")) {
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    void testReadsAreSpreadOverReplicasAndWritesGoToPrimary() throws SQLException {
+        router(DataSourceRouter.Selection.ROUND_ROBIN, database("primary"), database("replica1"), database("replica2"));
+
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sources.add(source(router.getReadConnection()));
+        }
+
+        assertEquals(2, sources.stream().filter("replica1"::equals).count());
+        assertEquals(2, sources.stream().filter("replica2"::equals).count());
+        assertEquals("primary", source(router.getWriteConnection()));
+    }
+
+    @Test
+    void testClientReadsItsWritesFromPrimary() throws SQLException {
+        StudentDAO dao = new StudentDAO(router(DataSourceRouter.Selection.ROUND_ROBIN,
+                database("primary"), database("replica")));
+
+        RequestContext.begin("writer");
+        Student changes = new Student();
+        changes.setUniqueNumber("1");
+        changes.setFirstName("changed");
+        dao.updateStudent(changes);
+        assertEquals("changed", dao.getStudentByUnique("1").getFirstName());
+
+        RequestContext.begin("other"); // Другой клиент может видеть отстающую реплику
+        assertEquals("replica", dao.getStudentByUnique("1").getFirstName());
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            assertEquals("changed", dao.getStudentByUnique("1").getFirstName()); // Чтение для кэша или ETag
+        }
+    }
+
+    @Test
+    void testStickyWindowStartsWhenWriteConnectionIsClosed() throws Exception {
+        router(DataSourceRouter.Selection.ROUND_ROBIN, database("primary"), database("replica"));
+        router.setStickyMillis(200);
+
+        RequestContext.begin("writer");
+        Connection write = router.getWriteConnection();
+        Thread.sleep(300); // Запись дольше окна stickyMillis
+        write.close();
+
+        assertEquals("primary", source(router.getReadConnection()));
+        RequestContext.begin("other");
+        assertEquals("replica", source(router.getReadConnection()));
+        try (RequestContext.Pin ignored = router.pinIfRecentlyWritten()) {
+            assertEquals("primary", source(router.getReadConnection()));
+        }
+    }
+
+    @Test
+    void testUnavailableReplicaFallsBackToPrimary() throws SQLException {
+        ConnectionPool fast = database("fast");
+        ConnectionPool broken = database("broken");
+        router(DataSourceRouter.Selection.LEAST_LATENCY, database("primary"), broken, fast);
+        broken.close();
+
+        router.checkHealth();
+
+        assertEquals(1, router.getHealthyReplicaCount());
+        assertEquals("fast", source(router.getReadConnection()));
+        fast.close();
+        assertEquals("primary", source(router.getReadConnection())); // Ошибка подключения - чтение с основной базы
+        assertEquals(1, router.getReplicaFailoverCount());
+        assertEquals(0, router.getHealthyReplicaCount());
+    }
+}
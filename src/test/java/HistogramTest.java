@@ -0,0 +1,45 @@
+import metrics.Histogram;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000); // от 1 мкс до 100 мс
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertWithinError(50_000_000L, histogram.getValueAtPercentile(50));
+        assertWithinError(99_000_000L, histogram.getValueAtPercentile(99));
+        assertEquals(100_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testCumulativeCounts() {
+        Histogram histogram = new Histogram();
+        histogram.record(500);
+        histogram.record(5_000);
+        histogram.record(5_000_000);
+
+        long[] counts = histogram.cumulativeCounts(new long[]{1_000, 1_000_000, 10_000_000});
+        assertEquals(1, counts[0]);
+        assertEquals(2, counts[1]);
+        assertEquals(3, counts[2]);
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getSum());
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "expected ~" + expected + " but was " + actual);
+    }
+}
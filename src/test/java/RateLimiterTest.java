@@ -0,0 +1,91 @@
+import main.LoadShedder;
+import main.RateLimiter;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testBurstThenRefill() {
+        RateLimiter limiter = new RateLimiter("test", 10, 3);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a", now));
+        }
+        long wait = limiter.tryAcquire("a", now);
+        assertEquals(SECOND / 10, wait);
+        assertEquals(1, limiter.getLimitedCount());
+
+        assertEquals(0, limiter.tryAcquire("a", now + wait));
+        assertTrue(limiter.tryAcquire("a", now + wait) > 0);
+    }
+
+    @Test
+    void testClientsHaveSeparateBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 1, 1);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.tryAcquire("a", now));
+        assertTrue(limiter.tryAcquire("a", now) > 0);
+        assertEquals(0, limiter.tryAcquire("b", now));
+        assertEquals(2, limiter.getClientCount());
+    }
+
+    @Test
+    void testZeroRateIsUnlimited() {
+        RateLimiter limiter = new RateLimiter("test", 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.tryAcquire("a", 0));
+        }
+        assertEquals(0, limiter.getClientCount());
+
+        limiter.setLimits(1, 1);
+        assertEquals(0, limiter.tryAcquire("a", 0));
+        assertTrue(limiter.tryAcquire("a", 0) > 0);
+        assertThrows(IllegalArgumentException.class, () -> limiter.setLimits(1, 0));
+    }
+
+    @Test
+    void testEvictIdleRemovesOnlyFullBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 10, 5);
+        long now = System.nanoTime();
+        limiter.tryAcquire("idle", now - 10 * SECOND);
+        limiter.tryAcquire("active", now + 10 * SECOND);
+
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(1, limiter.getClientCount());
+    }
+
+    @Test
+    void testLoadShedderThresholds() {
+        AtomicLong waitNanos = new AtomicLong();
+        AtomicLong borrows = new AtomicLong();
+        AtomicInteger pending = new AtomicInteger();
+        LoadShedder shedder = new LoadShedder(waitNanos::get, borrows::get, () -> 0, pending::get);
+        shedder.setThresholds(100, 0, 50);
+
+        waitNanos.addAndGet(10 * 150_000_000L);
+        borrows.addAndGet(10);
+        shedder.sample();
+        assertTrue(shedder.isOverloaded());
+        assertTrue(shedder.getReason().contains("pool wait"));
+
+        borrows.addAndGet(10); // Соединения выданы без ожидания
+        shedder.sample();
+        assertFalse(shedder.isOverloaded());
+
+        pending.set(50);
+        shedder.sample();
+        assertTrue(shedder.isOverloaded());
+
+        shedder.setThresholds(100, 0, 0);
+        shedder.sample();
+        assertFalse(shedder.isOverloaded());
+    }
+}
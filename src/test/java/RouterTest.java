@@ -0,0 +1,81 @@
+import Handler.Router;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Таблица маршрутов: неизменяемые сегменты, типизированные параметры, 404/405 и метки метрик.
+ */
+class RouterTest {
+    private static final Router.Endpoint NONE = (exchange, route) -> null;
+
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router()
+                .add("GET", "/api/students/", NONE)
+                .add("GET", "/api/students/{uniqueNumber:long}", NONE)
+                .add("GET", "/api/students/search", NONE)
+                .add("GET", "/api/students/operations/{id:long}", NONE)
+                .add("PUT", "/api/students/{uniqueNumber:long}", NONE);
+    }
+
+    @Test
+    void testLiteralSegmentsWinOverParameters() {
+        assertEquals("/api/students/search", router.match("GET", "/api/students/search").label());
+        assertNull(router.match("GET", "/api/students/serach")); // Опечатка не попадает в номер студента
+        assertNull(router.match("PUT", "/api/students/search"));
+    }
+
+    @Test
+    void testTrailingSlashIsIgnored() {
+        assertEquals("/api/students/", router.match("GET", "/api/students").label());
+        assertEquals("/api/students/", router.match("GET", "/api/students/").label());
+        assertEquals("/api/students/{uniqueNumber}", router.match("GET", "/api/students/42/").label());
+    }
+
+    @Test
+    void testParametersAreExtractedFromPath() throws IOException {
+        Router.Route route = router.match("GET", "/api/students/017");
+        assertEquals("017", route.param("/api/students/017", "uniqueNumber"));
+        assertThrows(IllegalArgumentException.class, () -> route.param("/api/students/017", "id"));
+
+        Router.Route operation = router.match("GET", "/api/students/operations/123");
+        assertEquals("/api/students/operations/{id}", operation.label());
+        assertEquals(123L, operation.longParam("/api/students/operations/123", "id"));
+        assertThrows(IOException.class,
+                () -> operation.longParam("/api/students/operations/99999999999999999999", "id"));
+    }
+
+    @Test
+    void testTypedParameterRejectsNonDigits() {
+        assertNull(router.match("GET", "/api/students/operations/abc"));
+        assertNull(router.match("GET", "/api/students/operations/-1"));
+        assertNull(router.match("GET", "/api/students/A-17"));
+    }
+
+    @Test
+    void testUnknownPathsAndMethods() {
+        assertNull(router.match("GET", "/api/students/a/b/c"));
+        assertNull(router.match("GET", "/api/students//"));
+        assertNull(router.match("PATCH", "/api/students/1"));
+        assertNull(router.match("DELETE", "/api/students/1"));
+        assertEquals("GET, PUT", router.allowedMethods("/api/students/1"));
+        assertNull(router.allowedMethods("/api/teachers/1"));
+        assertEquals("unmatched", router.labelOf("GET", "/api/students/a/b/c"));
+        assertEquals("unmatched", Router.labelOf(null));
+    }
+
+    @Test
+    void testInvalidOrConflictingRoutesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "/api/students/{number:long}", NONE));
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "api/students", NONE));
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "/api/{id:uuid}", NONE));
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "/api/{id}/{id}", NONE));
+        assertThrows(IllegalArgumentException.class, () -> router.add("GET", "/api//students", NONE));
+    }
+}
@@ -0,0 +1,87 @@
+import model.Student;
+import org.junit.jupiter.api.*;
+import service.StudentCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCacheTest {
+    private StudentCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StudentCache(2, 60_000, 60_000);
+        loads = new AtomicInteger();
+    }
+
+    private Student load(String uniqueNumber) {
+        loads.incrementAndGet();
+        return "404".equals(uniqueNumber) ? null
+                : new Student(uniqueNumber, "Иван", "Иванов", "Иванович", "2001-02-02", "A1");
+    }
+
+    @Test
+    void testRepeatedReadHitsCache() throws Exception {
+        cache.get("1", this::load);
+        Student student = cache.get("1", this::load);
+
+        assertEquals("Иван", student.getFirstName());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testMissingStudentIsCached() throws Exception {
+        assertNull(cache.get("404", this::load));
+        assertNull(cache.get("404", this::load));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidateReloads() throws Exception {
+        cache.get("1", this::load);
+        cache.invalidate("1");
+        cache.get("1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadRacingWithInvalidationIsNotCached() throws Exception {
+        cache.get("1", key -> {
+            cache.invalidate(key); // Студента изменили, пока шла загрузка
+            return load(key);
+        });
+        cache.get("1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws Exception {
+        cache.get("1", this::load);
+        cache.get("2", this::load);
+        cache.get("1", this::load);
+        cache.get("3", this::load);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("1", this::load);
+        assertEquals(3, loads.get(), "Студент 1 использовался недавно и должен остаться в кэше");
+    }
+
+    @Test
+    void testExpiredEntryIsReloaded() throws Exception {
+        StudentCache shortLived = new StudentCache(10, 0, 0);
+        shortLived.get("1", this::load);
+        shortLived.get("1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testReturnedStudentIsACopy() throws Exception {
+        cache.get("1", this::load).setFirstName("Петр");
+        assertEquals("Иван", cache.get("1", this::load).getFirstName());
+    }
+}
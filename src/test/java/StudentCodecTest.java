@@ -0,0 +1,161 @@
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import json.JsonBuffer;
+import json.StudentCodec;
+import model.Student;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCodecTest {
+    private static final String EMOJI = "😀"; // U+1F600, 4 байта в UTF-8
+
+    private final StudentCodec codec = new StudentCodec();
+
+    private static Student student(String firstName) {
+        Student student = new Student("123456", firstName, "Иванов", "Иванович", "2001-02-02", "Группа \"A1\"\\");
+        student.setId(7);
+        student.setVersion(3);
+        return student;
+    }
+
+    private static String utf8(JsonBuffer buffer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Поток, отдающий по одному байту за вызов и не сообщающий о доступных байтах.
+     */
+    private static InputStream trickle(byte[] bytes) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+    }
+
+    private Student read(byte[] body) throws IOException {
+        return codec.readStudent(new ByteArrayInputStream(body));
+    }
+
+    @Test
+    void testCyrillicRoundTrip() throws IOException {
+        Student original = student("Алёна");
+        try (JsonBuffer buffer = codec.encode(original)) {
+            String json = utf8(buffer);
+            assertTrue(json.contains("\"firstName\":\"Алёна\""));
+            assertEquals(json.getBytes(StandardCharsets.UTF_8).length, buffer.length());
+
+            Student decoded = read(json.getBytes(StandardCharsets.UTF_8));
+            assertEquals("Алёна", decoded.getFirstName());
+            assertEquals("Группа \"A1\"\\", decoded.getGroupName());
+            assertEquals(3, decoded.getVersion());
+        }
+    }
+
+    @Test
+    void testFourByteCodePointSplitAcrossReads() throws IOException {
+        String name = "Ян" + EMOJI + "ко";
+        byte[] body = ("{\"firstName\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8);
+        assertEquals(name, codec.readStudent(trickle(body)).getFirstName());
+
+        // Символ проходит через границу буфера символов JsonReader (1024): половины пары - в разных read
+        for (int prefix = 1000; prefix < 1030; prefix++) {
+            String value = "x".repeat(prefix) + EMOJI + "y";
+            byte[] json = ("{\"firstName\":\"" + value + "\"}").getBytes(StandardCharsets.UTF_8);
+            assertEquals(value, read(json).getFirstName(), "prefix " + prefix);
+            assertEquals(value, codec.readStudent(trickle(json)).getFirstName(), "trickled prefix " + prefix);
+        }
+    }
+
+    @Test
+    void testMalformedBytesBecomeReplacementCharacter() throws IOException {
+        byte[] invalid = {'{', '"', 'f', 'i', 'r', 's', 't', 'N', 'a', 'm', 'e', '"', ':', '"',
+                (byte) 0xFF, 'a', // Недопустимый первый байт
+                (byte) 0xD0, 'b', // Нет продолжения: 'b' остается отдельным символом
+                (byte) 0xC0, (byte) 0x80, // Избыточная запись U+0000
+                (byte) 0xED, (byte) 0xA0, (byte) 0x80, // Суррогатная половина
+                (byte) 0xE2, (byte) 0x82, // Обрыв перед закрывающей кавычкой
+                '"', '}'};
+
+        assertEquals("�a�b���", read(invalid).getFirstName());
+        assertEquals("�a�b���", codec.readStudent(trickle(invalid)).getFirstName());
+    }
+
+    @Test
+    void testBufferIsReusedCleanAfterClose() {
+        JsonBuffer first = codec.encode(List.of(student("Первый"), student("Второй"), student("Третий")));
+        first.close();
+
+        try (JsonBuffer second = codec.encode(student("Ян"))) {
+            assertSame(first, second);
+            String json = utf8(second);
+            assertEquals(new Gson().toJson(student("Ян")), json);
+            assertEquals(json.getBytes(StandardCharsets.UTF_8).length, second.length());
+        }
+    }
+
+    @Test
+    void testStreamedOutputMatchesBufferedOutput() throws IOException {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            students.add(student("Имя" + i + EMOJI));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = codec.streamTo(out)) {
+            writer.beginArray();
+            for (Student student : students) {
+                codec.writeStudent(writer, student);
+            }
+            writer.endArray();
+        }
+
+        try (JsonBuffer buffered = codec.encode(students)) {
+            assertEquals(utf8(buffered), out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testAdapterMatchesReflectiveGson() throws IOException {
+        Gson reflective = new Gson();
+        Student full = student("Алёна" + EMOJI);
+        Student partial = new Student();
+        partial.setUniqueNumber("42");
+        partial.setFirstName("Ян");
+        partial.setVersion(1);
+
+        for (Student student : List.of(full, partial)) {
+            StringWriter expected = new StringWriter();
+            reflective.toJson(student, Student.class, new JsonWriter(expected));
+            StringWriter actual = new StringWriter();
+            codec.writeStudent(new JsonWriter(actual), student);
+            assertEquals(expected.toString(), actual.toString());
+
+            Student decoded = codec.readStudent(new JsonReader(new StringReader(expected.toString())));
+            assertEquals(reflective.toJson(student), reflective.toJson(decoded));
+        }
+    }
+}
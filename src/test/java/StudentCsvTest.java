@@ -0,0 +1,52 @@
+import csv.StudentCsv;
+import model.Student;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCsvTest {
+
+    private static StudentCsv.StudentCsvReader reader(String text) throws IOException {
+        return StudentCsv.newReader(new StringReader(text));
+    }
+
+    @Test
+    void testWrittenRowsAreReadBack() throws IOException {
+        StringWriter out = new StringWriter();
+        StudentCsv.writeHeader(out);
+        StudentCsv.writeStudent(out, new Student("1", "Иван", "Петров, \"мл.\"", null, "2000-01-01", "A\n1"));
+
+        assertEquals("uniqueNumber,lastName,firstName,patronymic,birthDate,groupName\r\n"
+                + "1,\"Петров, \"\"мл.\"\"\",Иван,,2000-01-01,\"A\n1\"\r\n", out.toString());
+
+        StudentCsv.StudentCsvReader reader = reader(out.toString());
+        assertTrue(reader.hasNext());
+        Student student = reader.next();
+        assertEquals("Петров, \"мл.\"", student.getLastName());
+        assertEquals("A\n1", student.getGroupName());
+        assertNull(student.getPatronymic()); // Пустое значение - поле не задано
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void testColumnsFollowHeaderOrder() throws IOException {
+        StudentCsv.StudentCsvReader reader = reader("\uFEFFGroupName,comment,uniqueNumber\n\nB2,x,7\n");
+
+        Student student = reader.next();
+        assertEquals("7", student.getUniqueNumber());
+        assertEquals("B2", student.getGroupName());
+        assertNull(student.getFirstName());
+        assertFalse(reader.hasNext()); // Пустая строка пропущена
+    }
+
+    @Test
+    void testMalformedInput() {
+        assertThrows(IOException.class, () -> reader(""));
+        assertThrows(IOException.class, () -> reader("lastName,firstName\nA,B\n"));
+        assertThrows(IOException.class, () -> reader("uniqueNumber,lastName\n1,\"Петров\n").next());
+    }
+}
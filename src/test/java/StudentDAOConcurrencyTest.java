@@ -0,0 +1,260 @@
+import db.ConnectionPool;
+import db.PoolSettings;
+import db.SchemaMigrator;
+import db.StudentDAO;
+import model.Student;
+import model.StudentQuery;
+import service.UniqueNumberAllocator;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Добавление студентов при параллельных клиентах: занятый номер отклоняет уникальный индекс базы.
+ * Используется H2 и схема из миграций приложения.
+ */
+class StudentDAOConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private ConnectionPool pool;
+    private StudentDAO studentDAO;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Без режима MySQL: в нем H2 при параллельных INSERT в разных сессиях иногда выдает
+        // повторяющиеся значения AUTO_INCREMENT; в MySQL такой проблемы нет
+        PoolSettings settings = new PoolSettings("jdbc:h2:mem:concurrency" + databases.incrementAndGet()
+                + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        settings.setMaxSize(THREADS);
+        pool = new ConnectionPool(settings);
+        new SchemaMigrator(pool).migrate();
+        studentDAO = new StudentDAO(pool);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    private static Student student(String uniqueNumber) {
+        return new Student(uniqueNumber, "Иван", "Иванов", "Иванович", "2001-02-02", "A1");
+    }
+
+    /**
+     * Запускает задачи одновременно (после общего старта) и возвращает их результаты.
+     */
+    private <T> List<Future<T>> runConcurrently(List<Callable<T>> tasks) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    @Test
+    void testDuplicateAddIsRejectedByUniqueIndex() throws SQLException {
+        studentDAO.addStudent(student("100"));
+
+        SQLException e = assertThrows(SQLException.class, () -> studentDAO.addStudent(student("100")));
+        assertTrue(StudentDAO.isDuplicateKey(e));
+        assertEquals("Unique number already exists.", e.getMessage());
+        assertEquals(1, studentDAO.getAllStudents().size());
+    }
+
+    @Test
+    void testConcurrentAddsOfSameNumberInsertExactlyOnce() throws Exception {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                try {
+                    studentDAO.addStudent(student("200"));
+                    return true;
+                } catch (SQLException e) {
+                    assertTrue(StudentDAO.isDuplicateKey(e), e.getMessage());
+                    return false;
+                }
+            });
+        }
+
+        int inserted = 0;
+        for (Future<Boolean> future : runConcurrently(tasks)) {
+            if (future.get()) {
+                inserted++;
+            }
+        }
+
+        assertEquals(1, inserted);
+        assertEquals(1, studentDAO.getAllStudents().size());
+    }
+
+    @Test
+    void testConcurrentAddsOfDistinctNumbersAllSucceed() throws Exception {
+        int perThread = 50;
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    studentDAO.addStudent(student(thread + "-" + i));
+                }
+                return perThread;
+            });
+        }
+
+        for (Future<Integer> future : runConcurrently(tasks)) {
+            assertEquals(perThread, future.get());
+        }
+        assertEquals(THREADS * perThread, studentDAO.getAllStudents().size());
+    }
+
+    @Test
+    void testUpdateAndDeleteOfMissingStudentAreNotFound() {
+        Student changes = new Student();
+        changes.setUniqueNumber("404");
+        changes.setGroupName("B2");
+
+        SQLException update = assertThrows(SQLException.class, () -> studentDAO.updateStudent(changes));
+        SQLException delete = assertThrows(SQLException.class, () -> studentDAO.deleteStudent("404"));
+        assertTrue(StudentDAO.isNotFound(update));
+        assertTrue(StudentDAO.isNotFound(delete));
+        assertFalse(StudentDAO.isDuplicateKey(update));
+    }
+
+    @Test
+    void testConcurrentConditionalUpdatesOfSameVersionApplyExactlyOnce() throws Exception {
+        Student added = student("300");
+        studentDAO.addStudent(added);
+        int version = studentDAO.getStudentByUnique("300").getVersion();
+        assertEquals(version, added.getVersion());
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String group = "G" + i;
+            tasks.add(() -> {
+                Student changes = new Student();
+                changes.setUniqueNumber("300");
+                changes.setGroupName(group);
+                try {
+                    assertEquals(version + 1, studentDAO.updateStudent(changes, version));
+                    return true;
+                } catch (SQLException e) {
+                    assertTrue(StudentDAO.isVersionMismatch(e), e.getMessage());
+                    return false;
+                }
+            });
+        }
+
+        int applied = 0;
+        for (Future<Boolean> future : runConcurrently(tasks)) {
+            if (future.get()) {
+                applied++;
+            }
+        }
+
+        assertEquals(1, applied);
+        assertEquals(version + 1, studentDAO.getStudentByUnique("300").getVersion());
+    }
+
+    @Test
+    void testConditionalDeleteChecksVersion() throws SQLException {
+        studentDAO.addStudent(student("400"));
+        Student changes = new Student();
+        changes.setUniqueNumber("400");
+        changes.setGroupName("B2");
+        assertEquals(2, studentDAO.updateStudent(changes, StudentDAO.ANY_VERSION)); // Без проверки версия тоже известна
+
+        SQLException stale = assertThrows(SQLException.class, () -> studentDAO.deleteStudent("400", 1));
+        assertTrue(StudentDAO.isVersionMismatch(stale));
+        assertFalse(StudentDAO.isNotFound(stale));
+
+        studentDAO.deleteStudent("400", 2);
+        SQLException missing = assertThrows(SQLException.class, () -> studentDAO.deleteStudent("400", 2));
+        assertTrue(StudentDAO.isNotFound(missing));
+    }
+
+    @Test
+    void testAllocatorReusesFreedNumbersAfterLastNumber() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE unique_number_sequence SET next_value = 999995 WHERE name = 'students'");
+        }
+        for (String uniqueNumber : List.of("999995", "999996", "999997", "999998", "999999", "1", "2")) {
+            studentDAO.addStudent(student(uniqueNumber));
+        }
+
+        UniqueNumberAllocator allocator = new UniqueNumberAllocator(studentDAO, 5);
+        assertEquals("3", allocator.next());
+        assertEquals("4", allocator.next());
+    }
+
+    @Test
+    void testStreamingPagesMatchSingleQuery() throws Exception {
+        String[] birthDates = {"2001-02-02", null, "2000-01-01", "2001-02-02", null, "1999-12-31", "2001-02-02"};
+        for (int i = 0; i < birthDates.length; i++) {
+            studentDAO.addStudent(new Student(String.format("%06d", i + 1), "Иван", "Иванов", "Иванович",
+                    birthDates[i], "A1"));
+        }
+        System.setProperty("db.fetchSize", "2");
+        StudentDAO pagedDAO;
+        try {
+            pagedDAO = new StudentDAO(pool);
+        } finally {
+            System.clearProperty("db.fetchSize");
+        }
+
+        for (StudentQuery.SortField field : StudentQuery.SortField.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                StudentQuery query = new StudentQuery();
+                query.setSortField(field);
+                query.setDescending(descending);
+                List<Integer> streamed = new ArrayList<>();
+                pagedDAO.forEachStudent(query, student -> {
+                    assertEquals(0, pool.getActiveCount()); // Соединение не удерживается во время обработки
+                    streamed.add(student.getId());
+                });
+
+                List<Integer> expected = new ArrayList<>();
+                for (Student student : studentDAO.getStudentsPage(query, 0, 100)) {
+                    expected.add(student.getId());
+                }
+                assertEquals(expected, streamed, field + (descending ? " desc" : ""));
+            }
+        }
+    }
+
+    @Test
+    void testAddStudentsReportsEachRow() throws SQLException {
+        studentDAO.addStudent(student("000010"));
+        List<Student> batch = List.of(student("000011"), student("000010"), student("000012"), student("000011"));
+
+        boolean[] inserted = studentDAO.addStudents(batch);
+
+        // Занятый номер и повтор номера внутри пакета пропускаются, остальные вставляются
+        assertArrayEquals(new boolean[]{true, false, true, false}, inserted);
+        assertEquals(1, batch.get(0).getVersion());
+        assertEquals(0, batch.get(3).getVersion());
+        assertEquals(3, studentDAO.getAllStudents().size());
+        assertArrayEquals(new boolean[0], studentDAO.addStudents(List.of()));
+    }
+}
@@ -0,0 +1,99 @@
+import model.Student;
+import model.StudentWrite;
+import org.junit.jupiter.api.*;
+import service.StudentEventBroadcaster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentEventBroadcasterTest {
+
+    private StudentEventBroadcaster events;
+
+    @BeforeEach
+    void setUp() {
+        events = new StudentEventBroadcaster(3, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        events.close();
+    }
+
+    private void publish(String uniqueNumber) {
+        events.publish(StudentWrite.Type.ADD, new Student(uniqueNumber, "Иван", "Иванов", null, null, "A1"));
+    }
+
+    private static String text(StudentEventBroadcaster.Event event) {
+        return new String(event.frame(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSubscriberReceivesEncodedFrames() throws InterruptedException {
+        StudentEventBroadcaster.Subscription subscription = events.subscribe(-1);
+        publish("1");
+        Student deleted = new Student();
+        deleted.setUniqueNumber("1");
+        events.publish(StudentWrite.Type.DELETE, deleted);
+
+        StudentEventBroadcaster.Event added = subscription.next(1000);
+        assertEquals("id: " + added.id() + "\nevent: added\ndata: "
+                + "{\"id\":0,\"firstName\":\"Иван\",\"lastName\":\"Иванов\",\"groupName\":\"A1\",\"uniqueNumber\":\"1\"}\n\n", text(added));
+        StudentEventBroadcaster.Event removed = subscription.poll();
+        assertEquals(added.id() + 1, removed.id());
+        assertTrue(text(removed).contains("event: deleted\ndata: {\"id\":0,\"uniqueNumber\":\"1\"}"));
+        assertNull(subscription.poll());
+    }
+
+    @Test
+    void testReconnectReplaysMissedEventsOrResets() {
+        StudentEventBroadcaster.Subscription first = events.subscribe(-1);
+        publish("1");
+        long seen = first.poll().id();
+        first.close();
+        publish("2");
+        publish("3");
+
+        StudentEventBroadcaster.Subscription resumed = events.subscribe(seen);
+        assertFalse(resumed.isReset());
+        assertEquals(seen + 1, resumed.poll().id());
+        assertEquals(seen + 2, resumed.poll().id());
+        assertNull(resumed.poll());
+        resumed.close();
+
+        publish("4");
+        publish("5"); // История из 3 событий больше не содержит событие сразу после seen
+        assertTrue(events.subscribe(seen).isReset());
+        assertTrue(events.subscribe(Long.MAX_VALUE).isReset()); // Номер из другого запуска сервера
+    }
+
+    @Test
+    void testSlowSubscriberIsDroppedWithoutBlockingOthers() {
+        StudentEventBroadcaster.Subscription slow = events.subscribe(-1);
+        StudentEventBroadcaster.Subscription fast = events.subscribe(-1);
+        for (int i = 0; i < 3; i++) {
+            publish(String.valueOf(i));
+            assertNotNull(fast.poll());
+        }
+
+        assertTrue(slow.isClosed());
+        assertFalse(fast.isClosed());
+        assertEquals(1, events.getDroppedCount());
+        assertEquals(1, events.getSubscriberCount());
+        assertNotNull(slow.poll()); // Закрытая подписка дочитывает очередь
+        assertNotNull(slow.poll());
+        assertNull(slow.poll());
+    }
+
+    @Test
+    void testSubscriberLimit() {
+        events.subscribe(-1);
+        StudentEventBroadcaster.Subscription second = events.subscribe(-1);
+
+        assertThrows(RejectedExecutionException.class, () -> events.subscribe(-1));
+        second.close();
+        assertDoesNotThrow(() -> events.subscribe(-1));
+    }
+}
@@ -0,0 +1,85 @@
+import model.GroupStats;
+import model.Student;
+import org.junit.jupiter.api.*;
+import service.StudentGroupStats;
+import service.StudentSearchIndex;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentGroupStatsTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private StudentGroupStats stats;
+    private StudentSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        stats = new StudentGroupStats();
+        index = new StudentSearchIndex(stats::apply);
+        index.put(new Student("1", "Иван", "Петров", null, "2000-05-31", "A1"));
+        index.put(new Student("2", "Петр", "Иванов", null, "2000-06-02", "A1"));
+        index.put(new Student("3", "Анна", "Сидорова", null, "2001-01-15", "B2"));
+    }
+
+    private GroupStats group(String name) {
+        return stats.snapshot(TODAY).groups().stream()
+                .filter(group -> group.getGroup().equals(name))
+                .findFirst().orElse(null);
+    }
+
+    @Test
+    void testCountsAndDistributions() {
+        StudentGroupStats.Snapshot snapshot = stats.snapshot(TODAY);
+
+        assertEquals(3, snapshot.total());
+        assertEquals(2, snapshot.groups().size());
+        assertEquals("A1", snapshot.groups().get(0).getGroup()); // Группы по возрастанию названия
+        assertEquals(2, group("A1").getCount());
+        assertEquals(Map.of(2000, 2), group("A1").getBirthYears());
+        assertEquals(Map.of(23, 1, 24, 1), group("A1").getAges()); // День рождения 2 июня еще не наступил
+    }
+
+    @Test
+    void testGroupMoveUpdateAndDelete() {
+        Student move = new Student();
+        move.setUniqueNumber("2");
+        move.setGroupName("B2");
+        index.merge(move);
+
+        assertEquals(1, group("A1").getCount());
+        assertEquals(2, group("B2").getCount());
+        assertEquals(Map.of(2000, 1, 2001, 1), group("B2").getBirthYears());
+
+        Student birthDate = new Student();
+        birthDate.setUniqueNumber("3");
+        birthDate.setBirthDate("1999-12-31");
+        index.merge(birthDate);
+        assertEquals(Map.of(1999, 1, 2000, 1), group("B2").getBirthYears());
+
+        index.remove("1");
+        index.remove("404");
+        assertNull(group("A1")); // Пустая группа исчезает
+        assertEquals(2, stats.snapshot(TODAY).total());
+    }
+
+    @Test
+    void testSnapshotIsReusedUntilChange() {
+        StudentGroupStats.Snapshot first = stats.snapshot(TODAY);
+        Student rename = new Student();
+        rename.setUniqueNumber("1");
+        rename.setLastName("Смирнов");
+        index.merge(rename); // ФИО в статистику не входит
+
+        assertSame(first, stats.snapshot(TODAY));
+        assertNotSame(first, stats.snapshot(TODAY.plusDays(1)));
+
+        index.put(new Student("4", "Олег", "Козлов", null, null, "C3"));
+        StudentGroupStats.Snapshot changed = stats.snapshot(TODAY);
+        assertTrue(changed.version() > first.version());
+        assertEquals(1, group("C3").getWithoutBirthDate());
+        assertTrue(group("C3").getBirthYears().isEmpty());
+    }
+}
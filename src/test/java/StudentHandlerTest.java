@@ -0,0 +1,262 @@
+import Handler.RequestDecompressionFilter;
+import Handler.StudentHandler;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import db.ConnectionPool;
+import db.PoolSettings;
+import db.SchemaMigrator;
+import db.StudentDAO;
+import org.junit.jupiter.api.*;
+import service.StudentService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запросы к /api/students через HTTP-сервер на свободном порту.
+ * Используется H2 и схема из миграций приложения.
+ */
+class StudentHandlerTest {
+    private static final AtomicInteger databases = new AtomicInteger();
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String STUDENT = "{\"uniqueNumber\":\"%s\",\"firstName\":\"Иван\",\"lastName\":\"Иванов\","
+            + "\"patronymic\":\"Иванович\",\"birthDate\":\"2001-02-02\",\"groupName\":\"A1\"}";
+
+    private ConnectionPool pool;
+    private StudentHandler handler;
+    private HttpServer server;
+    private HttpClient client;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = new ConnectionPool(new PoolSettings("jdbc:h2:mem:handler" + databases.incrementAndGet()
+                + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+        new SchemaMigrator(pool).migrate();
+        handler = new StudentHandler(new StudentService(new StudentDAO(pool)));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/students", handler).getFilters().add(new RequestDecompressionFilter(MAX_BODY_BYTES));
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        pool.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String... headers) throws Exception {
+        return client.send(request(method, path, body, headers), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path, String body, String... headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path)).method(method,
+                body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        return request.build();
+    }
+
+    /**
+     * GET с заданным Accept-Encoding; возвращает кодировку ответа (или null) и распакованное тело.
+     */
+    private String[] getEncoded(String path, String acceptEncoding) throws Exception {
+        HttpResponse<byte[]> response = client.send(acceptEncoding == null ? request("GET", path, null)
+                : request("GET", path, null, "Accept-Encoding", acceptEncoding), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        String encoding = response.headers().firstValue("Content-Encoding").orElse(null);
+        return new String[]{encoding, new String(decode(response.body(), encoding), StandardCharsets.UTF_8)};
+    }
+
+    private static byte[] decode(byte[] body, String encoding) throws IOException {
+        if (encoding == null) {
+            return body;
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return (encoding.equals("gzip") ? new GZIPInputStream(in) : new InflaterInputStream(in)).readAllBytes();
+    }
+
+    private void addStudents(int count) throws Exception {
+        for (int i = 1; i <= count; i++) {
+            assertEquals(200, send("POST", "/api/students/", STUDENT.formatted(String.format("%06d", 100 + i))).statusCode());
+        }
+    }
+
+    @Test
+    void testReAddedStudentDoesNotMatchOldEtag() throws Exception {
+        assertEquals(200, send("POST", "/api/students/", STUDENT.formatted("000001")).statusCode());
+        HttpResponse<String> first = send("GET", "/api/students/000001", null);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, send("GET", "/api/students/000001", null, "If-None-Match", etag).statusCode());
+
+        assertEquals(200, send("DELETE", "/api/students/000001", null).statusCode());
+        assertEquals(200, send("POST", "/api/students/", STUDENT.formatted("000001")).statusCode());
+
+        // Новая строка снова имеет версию 1 в базе, но ее тег не совпадает с тегом удаленной
+        HttpResponse<String> again = send("GET", "/api/students/000001", null, "If-None-Match", etag);
+        assertEquals(200, again.statusCode());
+        assertNotEquals(etag, again.headers().firstValue("ETag").orElseThrow());
+        assertEquals(304, send("GET", "/api/students/000001", null,
+                "If-None-Match", again.headers().firstValue("ETag").orElseThrow()).statusCode());
+    }
+
+    @Test
+    void testIfMatchAcceptsRowEtagAndBareVersion() throws Exception {
+        send("POST", "/api/students/", STUDENT.formatted("000002"));
+        String etag = send("GET", "/api/students/000002", null).headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> updated = send("PUT", "/api/students/000002", "{\"groupName\":\"B2\"}", "If-Match", etag);
+        assertEquals(200, updated.statusCode());
+        assertEquals(412, send("PUT", "/api/students/000002", "{\"groupName\":\"C3\"}", "If-Match", etag).statusCode());
+        assertTrue(updated.headers().firstValue("ETag").orElseThrow().startsWith("\"2-"));
+        assertEquals(200, send("DELETE", "/api/students/000002", null, "If-Match", "\"2\"").statusCode());
+    }
+
+    @Test
+    void testSynchronousAddRejectsUnparseableBirthDate() throws Exception {
+        HttpResponse<String> response = send("POST", "/api/students/",
+                STUDENT.formatted("000003").replace("2001-02-02", "2000/1/1"));
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("YYYY-MM-DD"));
+        assertEquals(404, send("GET", "/api/students/000003", null).statusCode());
+    }
+
+    @Test
+    void testAcceptEncodingNegotiation() throws Exception {
+        addStudents(20); // Страница списка больше порога сжатия compression.minSize
+        String page = "/api/students/?limit=100";
+        String identity = getEncoded(page, null)[1];
+        assertTrue(identity.length() >= 1024);
+
+        String[][] cases = {
+                {"gzip", "gzip"}, {"deflate", "deflate"}, {"GZIP;q=0.5", "gzip"}, {"x-gzip", "gzip"},
+                {"deflate, gzip", "gzip"}, {"gzip;q=0, deflate", "deflate"}, {"gzip;q=0", null},
+                {"*", "gzip"}, {"gzip;q=0, *", "deflate"}, {"*;q=0", null}, {"*;q=0, deflate", "deflate"},
+                {"identity", null}, {"identity;q=0", null}, {"br", null}, {"gzip;q=bad", null}};
+        for (String[] c : cases) {
+            String[] response = getEncoded(page, c[0]);
+            assertEquals(c[1], response[0], c[0]);
+            assertEquals(identity, response[1], c[0]);
+        }
+        assertEquals("Accept-Encoding", send("GET", page, null).headers().firstValue("Vary").orElse(null));
+
+        // Ответ меньше порога не сжимается
+        assertNull(getEncoded("/api/students/000101", "gzip")[0]);
+    }
+
+    @Test
+    void testListSnapshotIsServedUntilTableVersionChanges() throws Exception {
+        addStudents(20);
+        String first = getEncoded("/api/students/", null)[1]; // Поток из базы, попутно сохраняется снимок
+        assertEquals(0, handler.getListCache().getHitCount());
+        assertTrue(handler.getListCache().getSizeBytes() > 0);
+
+        assertEquals(first, getEncoded("/api/students/", null)[1]);
+        String[] gzipped = getEncoded("/api/students/", "gzip"); // Сжатая копия снимка
+        assertEquals("gzip", gzipped[0]);
+        assertEquals(first, gzipped[1]);
+        assertEquals(2, handler.getListCache().getHitCount());
+
+        send("POST", "/api/students/", STUDENT.formatted("000999"));
+        long misses = handler.getListCache().getMissCount();
+        String after = getEncoded("/api/students/", null)[1];
+        assertTrue(after.contains("000999"));
+        assertEquals(misses + 1, handler.getListCache().getMissCount());
+        assertEquals(2, handler.getListCache().getHitCount());
+        assertEquals(after, getEncoded("/api/students/", null)[1]);
+        assertEquals(3, handler.getListCache().getHitCount());
+    }
+
+    private static String row(JsonArray results, int index) {
+        JsonObject result = results.get(index).getAsJsonObject();
+        assertEquals(index, result.get("index").getAsInt());
+        return result.get("status").getAsString();
+    }
+
+    @Test
+    void testBatchReportsEachRowAndCommitsChunks() throws Exception {
+        send("POST", "/api/students/", STUDENT.formatted("000500"));
+        // Порция 1: строки 0 и 1 (повтор номера внутри порции); строка 2 некорректна;
+        // порция 2: строки 3 и 4 (номер 4 уже есть в базе); порция 3: строка 5
+        String body = "[" + String.join(",", STUDENT.formatted("000501"), STUDENT.formatted("000501"),
+                "{\"uniqueNumber\":\"000502\"}", STUDENT.formatted("000503"), STUDENT.formatted("000500"),
+                STUDENT.formatted("000504")) + "]";
+
+        HttpResponse<String> response = send("POST", "/api/students/batch?chunkSize=2", body);
+
+        assertEquals(200, response.statusCode());
+        JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+        JsonArray results = result.getAsJsonArray("results");
+        assertEquals(6, results.size());
+        assertEquals(List.of("created", "conflict", "invalid", "created", "conflict", "created"),
+                List.of(row(results, 0), row(results, 1), row(results, 2), row(results, 3), row(results, 4), row(results, 5)));
+        assertEquals(3, result.get("created").getAsInt());
+        assertEquals(2, result.get("conflicts").getAsInt());
+        assertEquals(1, result.get("invalid").getAsInt());
+        assertEquals(404, send("GET", "/api/students/000502", null).statusCode());
+        assertEquals(200, send("GET", "/api/students/000504", null).statusCode());
+    }
+
+    @Test
+    void testBatchKeepsCommittedChunksWhenBodyBreaks() throws Exception {
+        String body = "[" + STUDENT.formatted("000601") + "," + STUDENT.formatted("000602") + ","
+                + STUDENT.formatted("000603") + ",{\"uniqueNumber\":"; // Обрыв после первой порции
+
+        HttpResponse<String> response = send("POST", "/api/students/batch?chunkSize=2", body);
+
+        assertEquals(400, response.statusCode());
+        JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(2, result.get("created").getAsInt());
+        assertTrue(result.get("error").getAsString().startsWith("Malformed request body"));
+        assertEquals(200, send("GET", "/api/students/000602", null).statusCode());
+        assertEquals(404, send("GET", "/api/students/000603", null).statusCode()); // Незавершенная порция не вставлена
+    }
+
+    private HttpResponse<String> sendGzip(String path, String body) throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(compressed.toByteArray())).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testDecodedRequestBodyIsLimited() throws Exception {
+        assertEquals(200, sendGzip("/api/students/", STUDENT.formatted("000701")).statusCode());
+
+        // Пробелы сжимаются почти без остатка: тело в несколько килобайт распаковывается в мегабайт
+        String bomb = STUDENT.formatted("000702").replace("{", "{" + " ".repeat(1024 * 1024));
+        HttpResponse<String> response = sendGzip("/api/students/", bomb);
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("server.maxBodyBytes"), response.body());
+        assertEquals(404, send("GET", "/api/students/000702", null).statusCode());
+
+        // Без сжатия ограничение фильтра не применяется
+        assertEquals(200, send("POST", "/api/students/", STUDENT.formatted("000703")
+                .replace("{", "{" + " ".repeat(2 * MAX_BODY_BYTES))).statusCode());
+    }
+}
@@ -0,0 +1,141 @@
+import db.ConnectionPool;
+import db.PoolSettings;
+import db.SchemaMigrator;
+import db.StudentDAO;
+import model.Student;
+import model.StudentQuery;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Отбор и сортировка списка студентов в базе данных, включая порядок NULL и постраничное чтение.
+ * Используется H2 и схема из миграций приложения.
+ */
+class StudentQueryTest {
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private ConnectionPool pool;
+    private StudentDAO studentDAO;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool(new PoolSettings("jdbc:h2:mem:query" + databases.incrementAndGet()
+                + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+        new SchemaMigrator(pool).migrate();
+        studentDAO = new StudentDAO(pool);
+        studentDAO.addStudent(new Student("1", "Иван", "Петров", null, "2001-02-02", "A1"));
+        studentDAO.addStudent(new Student("2", "Пётр", "Иванов", null, null, "A1"));
+        studentDAO.addStudent(new Student("3", "Анна", "Иванова", null, "2000-05-05", "B2"));
+        studentDAO.addStudent(new Student("4", "Олег", "Смирнов", null, "1999-12-31", "B2"));
+        studentDAO.addStudent(new Student("5", "Ян", "Ив_ко", null, null, "A1"));
+        studentDAO.addStudent(new Student("6", "Мария", "Сидорова", null, "2000-05-05", "A1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private static StudentQuery sortedBy(StudentQuery.SortField field, boolean descending) {
+        StudentQuery query = new StudentQuery();
+        query.setSortField(field);
+        query.setDescending(descending);
+        return query;
+    }
+
+    private List<String> find(StudentQuery query) throws SQLException {
+        List<String> found = new ArrayList<>();
+        for (Student student : studentDAO.getStudentsPage(query, 0, 100)) {
+            found.add(student.getUniqueNumber());
+        }
+        return found;
+    }
+
+    @Test
+    void testGroupFilter() throws SQLException {
+        StudentQuery query = new StudentQuery();
+        query.setGroupName("A1");
+        assertEquals(List.of("1", "2", "5", "6"), find(query));
+
+        query.setGroupName("A");
+        assertTrue(find(query).isEmpty()); // Только точное совпадение
+    }
+
+    @Test
+    void testNamePrefixMatchesLastOrFirstName() throws SQLException {
+        StudentQuery query = new StudentQuery();
+        query.setNamePrefix("Иван");
+        assertEquals(List.of("1", "2", "3"), find(query));
+
+        query.setNamePrefix("Ив_");
+        assertEquals(List.of("5"), find(query)); // "_" - обычный символ, а не шаблон LIKE
+        query.setNamePrefix("ван");
+        assertTrue(find(query).isEmpty()); // Только начало слова
+    }
+
+    @Test
+    void testBirthDateRangeIsInclusiveAndSkipsUnknownDates() throws SQLException {
+        StudentQuery query = new StudentQuery();
+        query.setBirthFrom(LocalDate.of(2000, 1, 1));
+        query.setBirthTo(LocalDate.of(2000, 5, 5));
+        assertEquals(List.of("3", "6"), find(query));
+
+        query.setBirthTo(null);
+        query.setBirthFrom(LocalDate.of(2000, 5, 5));
+        assertEquals(List.of("1", "3", "6"), find(query));
+    }
+
+    @Test
+    void testSortByNullableColumnPutsNullsFirstAscendingAndLastDescending() throws SQLException {
+        // При равных датах порядок задает id в том же направлении
+        assertEquals(List.of("2", "5", "4", "3", "6", "1"), find(sortedBy(StudentQuery.SortField.BIRTH_DATE, false)));
+        assertEquals(List.of("1", "6", "3", "4", "5", "2"), find(sortedBy(StudentQuery.SortField.BIRTH_DATE, true)));
+        assertEquals(List.of("6", "5", "4", "3", "2", "1"), find(sortedBy(StudentQuery.SortField.ID, true)));
+
+        assertEquals(List.of("2", "5", "4"), studentDAO.getStudentsPage(sortedBy(StudentQuery.SortField.BIRTH_DATE,
+                false), 0, 3).stream().map(Student::getUniqueNumber).toList());
+    }
+
+    @Test
+    void testFilterCombinedWithSortAlsoWhenReadInPages() throws Exception {
+        StudentQuery query = sortedBy(StudentQuery.SortField.BIRTH_DATE, true);
+        query.setGroupName("A1");
+        query.setNamePrefix("И");
+        assertEquals(List.of("1", "5", "2"), find(query));
+
+        query.setNamePrefix(null);
+        assertEquals(List.of("1", "6", "5", "2"), find(query));
+
+        System.setProperty("db.fetchSize", "1");
+        StudentDAO pagedDAO;
+        try {
+            pagedDAO = new StudentDAO(pool);
+        } finally {
+            System.clearProperty("db.fetchSize");
+        }
+        List<String> streamed = new ArrayList<>();
+        pagedDAO.forEachStudent(query, student -> streamed.add(student.getUniqueNumber()));
+        assertEquals(List.of("1", "6", "5", "2"), streamed);
+    }
+
+    @Test
+    void testQueryDefaults() {
+        StudentQuery query = new StudentQuery();
+        assertTrue(query.isUnfiltered());
+        assertTrue(query.isIdOrder());
+
+        query.setDescending(true);
+        assertFalse(query.isIdOrder());
+        assertFalse(query.isUnfiltered());
+
+        assertEquals(StudentQuery.SortField.BIRTH_DATE, StudentQuery.SortField.fromParam("birthDate"));
+        assertNull(StudentQuery.SortField.fromParam("birth_date"));
+    }
+}
@@ -0,0 +1,70 @@
+import json.JsonBuffer;
+import json.StudentCodec;
+import model.Student;
+import model.StudentRecord;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentRecordTest {
+    private final StudentCodec codec = new StudentCodec();
+
+    private String json(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonBuffer buffer = codec.encode(value)) {
+            buffer.writeTo(out);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Student student(String uniqueNumber, String birthDate) {
+        Student student = new Student(uniqueNumber, "Иван", "Иванов", null, birthDate, "ИВТ-22");
+        student.setId(7);
+        return student;
+    }
+
+    @Test
+    void testWireFormatMatchesStudent() throws IOException {
+        for (Student student : List.of(student("123456", "2001-02-03"), student("c-17", null), student("007", "1999-12-31"))) {
+            StudentRecord record = StudentRecord.of(student);
+            assertEquals(json(student), json(record));
+            assertEquals(json(List.of(student)), json(List.of(record)));
+        }
+    }
+
+    @Test
+    void testNumericFieldsAreDecoded() {
+        StudentRecord numeric = StudentRecord.of(student("123456", "2001-02-03"));
+        assertEquals(123456, numeric.getNumericUniqueNumber());
+        assertEquals("123456", numeric.getUniqueNumber());
+        assertEquals(LocalDate.of(2001, 2, 3), numeric.getBirthDate());
+
+        StudentRecord text = StudentRecord.of(student("0123", null));
+        assertEquals(-1, text.getNumericUniqueNumber());
+        assertEquals("0123", text.getUniqueNumber()); // Ведущий ноль сохраняется
+        assertNull(text.getBirthDate());
+        assertEquals(StudentRecord.NO_BIRTH_DATE, text.getBirthEpochDay());
+    }
+
+    @Test
+    void testWithChangesReplacesOnlyFilledFields() {
+        StudentRecord record = StudentRecord.of(student("1", "2001-02-03"));
+        Student changes = new Student();
+        changes.setLastName("Петров");
+        changes.setBirthDate("2002-03-04");
+
+        Student merged = record.withChanges(changes).toStudent();
+
+        assertEquals("Иван", merged.getFirstName());
+        assertEquals("Петров", merged.getLastName());
+        assertEquals("2002-03-04", merged.getBirthDate());
+        assertEquals(7, merged.getId());
+        assertEquals("Иванов", record.getLastName()); // Исходная запись не меняется
+    }
+}
@@ -0,0 +1,104 @@
+import model.Student;
+import model.StudentRecord;
+import org.junit.jupiter.api.*;
+import service.StudentSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentSearchIndexTest {
+
+    private StudentSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new StudentSearchIndex();
+        index.put(new Student("1", "Иван", "Петров", "Сергеевич", "2000-01-01", "A1"));
+        index.put(new Student("2", "Пётр", "Иванов", "Иванович", "2000-01-01", "A1"));
+        index.put(new Student("3", "Алёна", "Сидорова", "Петровна", "2000-01-01", "B2"));
+        index.put(new Student("4", "José", "García", null, "2000-01-01", "B2"));
+    }
+
+    @Test
+    void testExactWordRanksAbovePrefix() {
+        List<String> found = uniqueNumbers(index.search("Иван", 10));
+
+        assertEquals(List.of("1", "2"), found); // Имя "Иван" совпало целиком, "Иванов" - только началом
+    }
+
+    @Test
+    void testSubstringAndCaseFolding() {
+        assertEquals(List.of("3"), uniqueNumbers(index.search("ДОРОВ", 10)));
+        assertEquals(List.of("1", "3"), uniqueNumbers(index.search("петров", 10)));
+    }
+
+    @Test
+    void testDiacriticsAreIgnored() {
+        assertEquals("2", index.search("петр", 10).get(0).getUniqueNumber());
+        assertEquals(List.of("3"), uniqueNumbers(index.search("Алена", 10)));
+        assertEquals(List.of("4"), uniqueNumbers(index.search("garcia jose", 10)));
+    }
+
+    @Test
+    void testShortQueryMatchesWordStartOnly() {
+        assertEquals(List.of("3"), uniqueNumbers(index.search("си", 10)));
+        assertTrue(index.search("ов", 10).isEmpty());
+    }
+
+    @Test
+    void testUpdateAndRemoveKeepIndexCurrent() {
+        Student changes = new Student();
+        changes.setUniqueNumber("1");
+        changes.setLastName("Смирнов");
+        index.merge(changes);
+
+        assertEquals(List.of("1"), uniqueNumbers(index.search("смирнов", 10)));
+        assertEquals("Иван", index.search("смирнов", 10).get(0).getFirstName());
+        assertFalse(uniqueNumbers(index.search("петров", 10)).contains("1"));
+
+        index.remove("2");
+        assertTrue(index.search("иванов", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testLimitAndLoadDoesNotOverwriteNewerChanges() {
+        assertEquals(1, index.search("а", 1).size());
+
+        index.beginLoad();
+        index.remove("3");
+        index.loadRow(new Student("3", "Алёна", "Сидорова", "Петровна", "2000-01-01", "B2"));
+        index.finishLoad(true);
+
+        assertTrue(index.isReady());
+        assertTrue(index.search("сидорова", 10).isEmpty());
+    }
+
+    private static List<String> uniqueNumbers(List<StudentRecord> students) {
+        return students.stream().map(StudentRecord::getUniqueNumber).collect(Collectors.toList());
+    }
+
+    @Test
+    void testUnparseableBirthDateIsSkippedNotThrown() {
+        List<StudentRecord> changes = new ArrayList<>();
+        StudentSearchIndex listened = new StudentSearchIndex((previous, current) -> changes.add(current));
+
+        listened.put(new Student("5", "Олег", "Смирнов", null, "2000/1/1", "C3"));
+        listened.merge(changeOf("5", "31.12.1999"));
+
+        assertEquals(List.of("5"), uniqueNumbers(listened.search("смирнов", 10)));
+        assertEquals(2, changes.size());
+        assertNull(changes.get(1).getBirthDate());
+        assertEquals("C3", changes.get(1).getGroupName());
+    }
+
+    private static Student changeOf(String uniqueNumber, String birthDate) {
+        Student changes = new Student();
+        changes.setUniqueNumber(uniqueNumber);
+        changes.setBirthDate(birthDate);
+        return changes;
+    }
+}
@@ -0,0 +1,58 @@
+import db.TableVersions;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableVersionsTest {
+
+    @Test
+    void testBumpChangesTableAndRowTags() {
+        TableVersions versions = new TableVersions();
+        String tableTag = versions.etag("t", versions.table());
+        String rowTag = versions.etag("r", versions.row("100"));
+        String otherRowTag = versions.etag("r", versions.row("200"));
+
+        versions.bump("100");
+
+        assertNotEquals(tableTag, versions.etag("t", versions.table()));
+        assertNotEquals(rowTag, versions.etag("r", versions.row("100")));
+        assertEquals(otherRowTag, versions.etag("r", versions.row("200")));
+    }
+
+    @Test
+    void testBumpAllUsesOneTableVersion() {
+        TableVersions versions = new TableVersions();
+        versions.bumpAll(List.of("1", "2"));
+
+        assertEquals(1, versions.table().version());
+        assertEquals(1, versions.row("1").version());
+        assertEquals(1, versions.row("2").version());
+        assertEquals(0, versions.row("3").version());
+    }
+
+    @Test
+    void testTagsDifferBetweenInstances() throws InterruptedException {
+        TableVersions first = new TableVersions();
+        Thread.sleep(2);
+        TableVersions second = new TableVersions();
+
+        assertNotEquals(first.etag("t", first.table()), second.etag("t", second.table()));
+    }
+
+    @Test
+    void testRemoveForgetsRowWithoutReusingTags() {
+        TableVersions versions = new TableVersions();
+        assertSame(versions.row("1"), versions.row("2"));
+
+        versions.bump("1");
+        String changedTag = versions.etag("r", versions.row("1"));
+        versions.remove("1");
+
+        assertEquals(0, versions.rowCount());
+        assertNotEquals(changedTag, versions.etag("r", versions.row("1")));
+        assertEquals(2, versions.row("1").version());
+        assertSame(versions.row("1"), versions.row("3"));
+    }
+}
@@ -0,0 +1,173 @@
+import model.Student;
+import model.StudentWrite;
+import model.WriteStatus;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import service.WriteBehindQueue;
+
+import java.nio.file.Path;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+    @TempDir
+    Path dir;
+
+    private final List<List<StudentWrite>> batches = new CopyOnWriteArrayList<>();
+    private final List<WriteBehindQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (WriteBehindQueue queue : queues) {
+            queue.close(1);
+        }
+    }
+
+    private WriteBehindQueue start(int capacity, long offerTimeoutMs, WriteBehindQueue.Applier applier) throws Exception {
+        WriteBehindQueue queue = new WriteBehindQueue(dir.resolve("writes.journal"), 1024 * 1024,
+                capacity, 100, offerTimeoutMs, 1000, applier);
+        queues.add(queue);
+        queue.start();
+        return queue;
+    }
+
+    private StudentWrite.Outcome[] record(List<StudentWrite> writes) {
+        batches.add(new ArrayList<>(writes));
+        StudentWrite.Outcome[] outcomes = new StudentWrite.Outcome[writes.size()];
+        Arrays.fill(outcomes, StudentWrite.Outcome.APPLIED);
+        return outcomes;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Student student(String uniqueNumber, String firstName, String lastName, String groupName) {
+        Student student = new Student();
+        student.setUniqueNumber(uniqueNumber);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setGroupName(groupName);
+        return student;
+    }
+
+    private static WriteStatus awaitDone(WriteBehindQueue queue, long id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            WriteStatus status = queue.getStatus(id);
+            if (status != null && !WriteStatus.QUEUED.equals(status.getStatus())) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        fail("Operation " + id + " was not applied");
+        return null;
+    }
+
+    @Test
+    void testSubmittedWriteIsAppliedAndReported() throws Exception {
+        WriteBehindQueue queue = start(10, 100, this::record);
+
+        long id = queue.submit(StudentWrite.Type.ADD, student("1", "Иван", "Иванов", "A1"));
+
+        WriteStatus status = awaitDone(queue, id);
+        assertEquals(WriteStatus.APPLIED, status.getStatus());
+        assertEquals("add", status.getType());
+        assertEquals("1", status.getUniqueNumber());
+        assertEquals("Иван", batches.get(0).get(0).getStudent().getFirstName());
+    }
+
+    @Test
+    void testRejectedWriteIsReportedAsFailed() throws Exception {
+        WriteBehindQueue queue = start(10, 100, writes -> new StudentWrite.Outcome[]{StudentWrite.Outcome.CONFLICT});
+
+        long id = queue.submit(StudentWrite.Type.ADD, student("1", "Иван", "Иванов", "A1"));
+
+        WriteStatus status = awaitDone(queue, id);
+        assertEquals(WriteStatus.FAILED, status.getStatus());
+        assertEquals("Unique number already exists.", status.getMessage());
+    }
+
+    @Test
+    void testConsecutiveUpdatesOfOneStudentAreCoalesced() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindQueue queue = start(10, 100, writes -> {
+            entered.countDown();
+            awaitQuietly(release);
+            return record(writes);
+        });
+
+        long first = queue.submit(StudentWrite.Type.UPDATE, student("1", "Петр", null, null));
+        assertTrue(entered.await(5, TimeUnit.SECONDS)); // Писатель занят первой пачкой
+        long second = queue.submit(StudentWrite.Type.UPDATE, student("1", null, "Петров", null));
+        long third = queue.submit(StudentWrite.Type.UPDATE, student("1", null, null, "B2"));
+        long other = queue.submit(StudentWrite.Type.DELETE, student("2", null, null, null));
+        release.countDown();
+
+        assertEquals(WriteStatus.APPLIED, awaitDone(queue, third).getStatus());
+        assertEquals(WriteStatus.APPLIED, awaitDone(queue, second).getStatus());
+        assertEquals(WriteStatus.APPLIED, awaitDone(queue, first).getStatus());
+        assertEquals(WriteStatus.APPLIED, awaitDone(queue, other).getStatus());
+
+        List<StudentWrite> merged = batches.get(1);
+        assertEquals(2, merged.size());
+        Student changes = merged.get(0).getStudent();
+        assertNull(changes.getFirstName());
+        assertEquals("Петров", changes.getLastName());
+        assertEquals("B2", changes.getGroupName());
+        assertEquals(StudentWrite.Type.DELETE, merged.get(1).getType());
+    }
+
+    @Test
+    void testFullQueueRejectsNewWrites() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindQueue queue = start(1, 50, writes -> {
+            entered.countDown();
+            awaitQuietly(release);
+            return record(writes);
+        });
+
+        queue.submit(StudentWrite.Type.ADD, student("1", "Иван", "Иванов", "A1"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        queue.submit(StudentWrite.Type.ADD, student("2", "Иван", "Иванов", "A1")); // Занимает единственное место
+
+        assertThrows(RejectedExecutionException.class,
+                () -> queue.submit(StudentWrite.Type.ADD, student("3", "Иван", "Иванов", "A1")));
+        assertEquals(1, queue.getRejectedCount());
+        release.countDown();
+    }
+
+    @Test
+    void testAcknowledgedWritesAreReplayedAfterCrash() throws Exception {
+        // База недоступна: операции подтверждены клиенту, но остаются только в журнале
+        WriteBehindQueue crashed = start(10, 100, writes -> {
+            throw new SQLTransientConnectionException("Connection refused");
+        });
+        long first = crashed.submit(StudentWrite.Type.ADD, student("1", "Иван", "Иванов", "A1"));
+        long second = crashed.submit(StudentWrite.Type.UPDATE, student("1", null, null, "B2"));
+
+        WriteBehindQueue restarted = start(10, 100, this::record);
+
+        assertEquals(WriteStatus.APPLIED, awaitDone(restarted, second).getStatus());
+        assertEquals(WriteStatus.APPLIED, awaitDone(restarted, first).getStatus());
+        List<StudentWrite> replayed = new ArrayList<>();
+        batches.forEach(replayed::addAll);
+        assertEquals(List.of(first, second), replayed.stream().map(StudentWrite::getId).toList());
+        assertEquals("Иван", replayed.get(0).getStudent().getFirstName());
+        assertTrue(restarted.submit(StudentWrite.Type.DELETE, student("1", null, null, null)) > second);
+    }
+}